@@ -4,13 +4,15 @@ package app.quantun.backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
 
 /**
  * The main class for the Backend Application.
  * This class contains the main method which serves as the entry point for the Spring Boot application.
+ * The caching advice runs outside the transaction advice, so a cache hit never opens a transaction.
  */
 @SpringBootApplication
-@EnableCaching
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
 public class BackendApplication {
 
 
@@ -0,0 +1,127 @@
+package app.quantun.backend.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Access and load activity of a cache: the approximate hottest keys and the time spent loading.
+ * <p>
+ * Hot keys are tracked with the Space-Saving algorithm: a fixed number of counters, where an untracked
+ * key takes over the counter with the lowest count and inherits that count as its error. Any key
+ * accessed more often than {@code accesses / capacity} times is guaranteed to be tracked. Recording
+ * skips the update when another thread holds the counters, so tracking never blocks a cache read;
+ * under contention the counts become a sample, which keeps the ranking intact.
+ */
+public class CacheActivity {
+
+    private final int capacity;
+    private final Map<Object, Counter> counters;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    /**
+     * Create an activity tracker.
+     *
+     * @param capacity the number of keys tracked
+     */
+    public CacheActivity(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Record an access to a key.
+     *
+     * @param key the key accessed
+     */
+    public void recordAccess(Object key) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            Counter counter = counters.get(key);
+            if (counter != null) {
+                counter.count++;
+            } else if (counters.size() < capacity) {
+                counters.put(key, new Counter(key, 1, 0));
+            } else {
+                Counter min = counters.values().stream().min(Comparator.comparingLong(c -> c.count)).orElseThrow();
+                counters.remove(min.key);
+                counters.put(key, new Counter(key, min.count + 1, min.count));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record a load of a value.
+     *
+     * @param nanos the time the load took
+     */
+    public void recordLoad(long nanos) {
+        loads.increment();
+        loadNanos.add(nanos);
+    }
+
+    /**
+     * @return the number of loads recorded
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * @return the total time spent loading, in nanoseconds
+     */
+    public long getTotalLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    /**
+     * Return the hottest keys, hottest first.
+     *
+     * @param limit the maximum number of keys returned
+     * @return the hottest keys with their estimated access counts
+     */
+    public List<HotKey> hottest(int limit) {
+        List<HotKey> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            counters.values().forEach(c -> snapshot.add(new HotKey(String.valueOf(c.key), c.count, c.error)));
+        } finally {
+            lock.unlock();
+        }
+        snapshot.sort(Comparator.comparingLong(HotKey::count).reversed());
+        return snapshot.size() > limit ? snapshot.subList(0, limit) : snapshot;
+    }
+
+    /**
+     * A hot key with its estimated access count.
+     *
+     * @param key   the key
+     * @param count the estimated number of accesses, never below the actual number
+     * @param error the maximum overestimation of the count
+     */
+    public record HotKey(String key, long count, long error) {
+    }
+
+    private static final class Counter {
+        private final Object key;
+        private long count;
+        private final long error;
+
+        private Counter(Object key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
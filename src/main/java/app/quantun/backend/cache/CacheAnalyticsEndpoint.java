@@ -0,0 +1,155 @@
+package app.quantun.backend.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint reporting, per cache, the Caffeine statistics, the load time, the approximate
+ * hottest keys and an estimate of the size of the cached data.
+ * <p>
+ * The size is estimated from the serialized size of a sample of entries, extrapolated to the
+ * estimated number of entries. It does not include object headers and references, so it is a lower
+ * bound of the heap used, suitable for comparing caches and sizing their maximum weight.
+ */
+@Component
+@Endpoint(id = "cacheanalytics")
+public class CacheAnalyticsEndpoint {
+
+    private static final int HOT_KEYS = 20;
+    private static final int SIZE_SAMPLE = 100;
+
+    private final CacheManager cacheManager;
+    private final ProductFilterCache productFilterCache;
+    private final ProductJsonCache productJsonCache;
+    private final PageTotalCache pageTotalCache;
+    private final ObjectMapper objectMapper;
+
+    public CacheAnalyticsEndpoint(CacheManager cacheManager, ProductFilterCache productFilterCache,
+                                  ProductJsonCache productJsonCache, PageTotalCache pageTotalCache,
+                                  ObjectMapper objectMapper) {
+        this.cacheManager = cacheManager;
+        this.productFilterCache = productFilterCache;
+        this.productJsonCache = productJsonCache;
+        this.pageTotalCache = pageTotalCache;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Report on every cache.
+     *
+     * @return the report of each cache, keyed by cache name
+     */
+    @ReadOperation
+    public Map<String, CacheReport> caches() {
+        Map<String, CacheReport> reports = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            reports.put(name, report(name));
+        }
+        reports.put("productFilters", report(productFilterCache.getNativeCache(), productFilterCache.getActivity()));
+        reports.put("productJson", report(productJsonCache.getNativeCache(), null));
+        reports.put("pageTotals", report(pageTotalCache.getNativeCache(), null));
+        return reports;
+    }
+
+    /**
+     * Report on a single cache.
+     *
+     * @param name the cache name
+     * @return the report of the cache, or {@code null} (404) if there is no such cache
+     */
+    @ReadOperation
+    @Nullable
+    public CacheReport cache(@Selector String name) {
+        return caches().get(name);
+    }
+
+    private CacheReport report(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache instanceof TransactionAwareCacheDecorator decorator) {
+            cache = decorator.getTargetCache();
+        }
+        if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            return null;
+        }
+        CacheActivity activity = cache instanceof CoalescingCache coalescingCache ? coalescingCache.getActivity() : null;
+        return report(nativeCache, activity);
+    }
+
+    private CacheReport report(com.github.benmanes.caffeine.cache.Cache<?, ?> cache, @Nullable CacheActivity activity) {
+        CacheStats stats = cache.stats();
+        long size = cache.estimatedSize();
+        long averageEntryBytes = averageEntryBytes(cache);
+
+        // Values put by the cache decorators are loaded outside Caffeine, which then records no load time
+        long loads = activity != null ? activity.getLoadCount() : stats.loadCount();
+        long loadNanos = activity != null ? activity.getTotalLoadNanos() : stats.totalLoadTime();
+
+        return new CacheReport(
+                size,
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                loads,
+                loads > 0 ? loadNanos / loads / 1_000 : 0,
+                averageEntryBytes,
+                averageEntryBytes * size,
+                activity != null ? activity.hottest(HOT_KEYS) : List.of());
+    }
+
+    private long averageEntryBytes(com.github.benmanes.caffeine.cache.Cache<?, ?> cache) {
+        long total = 0;
+        int sampled = 0;
+        Iterator<? extends Map.Entry<?, ?>> entries = cache.asMap().entrySet().iterator();
+        while (entries.hasNext() && sampled < SIZE_SAMPLE) {
+            Map.Entry<?, ?> entry = entries.next();
+            total += serializedSize(entry.getKey()) + serializedSize(entry.getValue());
+            sampled++;
+        }
+        return sampled > 0 ? total / sampled : 0;
+    }
+
+    private long serializedSize(Object value) {
+        if (value instanceof ProductJsonCache.EncodedProduct encoded) {
+            return encoded.json().length + (encoded.gzip() != null ? encoded.gzip().length : 0) + encoded.etag().length();
+        }
+        try {
+            return objectMapper.writeValueAsBytes(value).length;
+        } catch (JsonProcessingException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Statistics of a single cache.
+     *
+     * @param estimatedSize       the approximate number of entries
+     * @param hits                the number of hits
+     * @param misses              the number of misses
+     * @param hitRate             the ratio of hits to requests
+     * @param evictions           the number of entries evicted by size or expiry
+     * @param loads               the number of values loaded
+     * @param averageLoadMicros   the average time a load took, in microseconds
+     * @param averageEntryBytes   the average serialized size of a sampled entry
+     * @param estimatedBytes      the estimated serialized size of all entries
+     * @param hottestKeys         the approximate hottest keys, hottest first, if tracked
+     */
+    public record CacheReport(long estimatedSize, long hits, long misses, double hitRate, long evictions,
+                              long loads, long averageLoadMicros, long averageEntryBytes, long estimatedBytes,
+                              List<CacheActivity.HotKey> hottestKeys) {
+    }
+}
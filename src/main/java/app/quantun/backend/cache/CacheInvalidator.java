@@ -0,0 +1,104 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.models.entity.Category;
+import app.quantun.backend.models.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Evicts the local copies of entities changed on another instance.
+ * Covers the application caches as well as the Hibernate second-level cache, which would otherwise
+ * reload the stale state into the application caches.
+ */
+@Component
+@Slf4j
+public class CacheInvalidator {
+
+    private static final String CATEGORY_PRODUCTS_ROLE = Category.class.getName() + ".products";
+
+    private final CacheManager cacheManager;
+    private final ProductFilterCache productFilterCache;
+    private final PageTotalCache pageTotalCache;
+    private final CategoryCatalog categoryCatalog;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CacheInvalidator(CacheManager cacheManager, ProductFilterCache productFilterCache,
+                            PageTotalCache pageTotalCache, CategoryCatalog categoryCatalog,
+                            EntityManagerFactory entityManagerFactory) {
+        this.cacheManager = cacheManager;
+        this.productFilterCache = productFilterCache;
+        this.pageTotalCache = pageTotalCache;
+        this.categoryCatalog = categoryCatalog;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Evict the local copies of a batch of changed entities.
+     * Caches holding query results are cleared once per batch rather than once per change.
+     *
+     * @param changes the changes made on other instances
+     */
+    public void apply(Collection<InvalidationBus.Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        org.hibernate.Cache secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        boolean productsChanged = false;
+        boolean categoriesChanged = false;
+
+        for (InvalidationBus.Change change : changes) {
+            switch (change.entityType()) {
+                case InvalidationBus.PRODUCT -> {
+                    evict(CacheConfig.PRODUCTS, change.entityId());
+                    secondLevelCache.evictEntityData(Product.class, change.entityId());
+                    productsChanged = true;
+                }
+                case InvalidationBus.CATEGORY_PRODUCTS -> {
+                    // The products of the category are not known here
+                    clear(CacheConfig.PRODUCTS);
+                    secondLevelCache.evictEntityData(Product.class);
+                    productsChanged = true;
+                }
+                case InvalidationBus.CATEGORY -> {
+                    categoriesChanged = true;
+                    secondLevelCache.evictEntityData(Category.class, change.entityId());
+                    secondLevelCache.evictCollectionData(CATEGORY_PRODUCTS_ROLE, change.entityId());
+                }
+                default -> log.warn("Ignoring invalidation of unknown entity type '{}'", change.entityType());
+            }
+        }
+
+        if (productsChanged) {
+            // The category of a product changed elsewhere is unknown here
+            secondLevelCache.evictCollectionData(CATEGORY_PRODUCTS_ROLE);
+            clear(CacheConfig.PRODUCT_PAGES);
+            productFilterCache.invalidateAll();
+            pageTotalCache.invalidateAll();
+        }
+        if (categoriesChanged) {
+            categoryCatalog.refresh();
+        }
+        log.debug("Applied {} cache invalidations from other instances", changes.size());
+    }
+
+    private void evict(String cacheName, Long key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.config.AppCacheProperties;
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.service.ProductService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a snapshot of the hottest keys of the entity caches on disk and replays it on startup.
+ * <p>
+ * Only keys are written, never values: warming loads each key through its service, so the warmed
+ * entries are as fresh as the database and the snapshot cannot leak stale or foreign data.
+ * While warming runs in the background this indicator reports the instance out of service, which
+ * holds it out of the readiness group until the caches are warm or the warm timeout elapses.
+ */
+@Component("cacheWarmupHealthIndicator")
+@ConditionalOnProperty(prefix = "app.cache.snapshot", name = "enabled", havingValue = "true")
+@Slf4j
+public class CacheSnapshotManager implements HealthIndicator {
+
+    private static final String FILE_SUFFIX = ".keys";
+
+    private final AppCacheProperties.Snapshot snapshot;
+    private final CacheManager cacheManager;
+    private final Map<String, LongConsumer> loaders;
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-warmer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean warming;
+    private volatile int warmedKeys;
+
+    public CacheSnapshotManager(AppCacheProperties cacheProperties, CacheManager cacheManager,
+                                ProductService productService) {
+        this.snapshot = cacheProperties.getSnapshot();
+        this.cacheManager = cacheManager;
+        // Loading through the services fills the caches exactly as a request would
+        this.loaders = Map.of(CacheConfig.PRODUCTS, productService::getProductById);
+    }
+
+    /**
+     * Start warming the caches from the last snapshot, before the application reports ready.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmOnStartup() {
+        warming = true;
+        warmer.execute(this::warm);
+    }
+
+    /**
+     * Write the hot keys of every snapshot cache.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.snapshot.interval:PT5M}",
+            initialDelayString = "${app.cache.snapshot.interval:PT5M}")
+    public void writeSnapshots() {
+        if (warming) {
+            // The caches are still being filled from the previous snapshot
+            return;
+        }
+        for (String cacheName : snapshot.getCaches()) {
+            writeSnapshot(cacheName);
+        }
+    }
+
+    /**
+     * Write a final snapshot and stop warming on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        warmer.shutdownNow();
+        writeSnapshots();
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = warming ? Health.outOfService() : Health.up();
+        return builder.withDetail("warmedKeys", warmedKeys).build();
+    }
+
+    private void warm() {
+        long deadline = System.nanoTime() + snapshot.getWarmTimeout().toNanos();
+        try {
+            for (String cacheName : snapshot.getCaches()) {
+                LongConsumer loader = loaders.get(cacheName);
+                if (loader == null) {
+                    log.warn("Cannot warm cache '{}': no loader is registered for it", cacheName);
+                    continue;
+                }
+                if (!warmCache(cacheName, loader, deadline)) {
+                    log.warn("Cache warm-up stopped after {} keys: warm timeout of {} elapsed",
+                            warmedKeys, snapshot.getWarmTimeout());
+                    return;
+                }
+            }
+            log.info("Cache warm-up finished, {} keys loaded", warmedKeys);
+        } finally {
+            warming = false;
+        }
+    }
+
+    /**
+     * Load the snapshot keys of a cache, hottest first.
+     *
+     * @return false if the deadline elapsed or warming was interrupted before all keys were loaded
+     */
+    private boolean warmCache(String cacheName, LongConsumer loader, long deadline) {
+        for (long key : readSnapshot(cacheName)) {
+            if (System.nanoTime() > deadline || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            try {
+                loader.accept(key);
+                warmedKeys++;
+            } catch (RuntimeException ex) {
+                log.debug("Could not warm key {} of cache '{}': {}", key, cacheName, ex.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private List<Long> readSnapshot(String cacheName) {
+        Path file = snapshotFile(cacheName);
+        if (!Files.isReadable(file)) {
+            return List.of();
+        }
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.limit(snapshot.getMaxKeys())
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .map(Long::valueOf)
+                    .toList();
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Ignoring unreadable cache snapshot {}: {}", file, ex.getMessage());
+            return List.of();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeSnapshot(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null
+                || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).policy().eviction()
+                .map(eviction -> eviction.hottest(snapshot.getMaxKeys()))
+                .ifPresent(hottest -> hottest.keySet().stream()
+                        .filter(Long.class::isInstance)
+                        .forEach(key -> keys.add(key.toString())));
+
+        Path file = snapshotFile(cacheName);
+        try {
+            Files.createDirectories(file.getParent());
+            // Write aside and move, so a crash mid-write never leaves a truncated snapshot
+            Path temp = Files.createTempFile(file.getParent(), cacheName, ".tmp");
+            Files.write(temp, keys, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote {} hot keys of cache '{}' to {}", keys.size(), cacheName, file);
+        } catch (IOException ex) {
+            log.warn("Could not write cache snapshot {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private Path snapshotFile(String cacheName) {
+        return Path.of(snapshot.getDirectory()).toAbsolutePath().resolve(cacheName + FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,248 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.models.contract.response.CategoryResponseDTO;
+import app.quantun.backend.repository.CategoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory catalog of all categories.
+ * <p>
+ * Reads are served from an immutable snapshot held in an atomic reference, without locking or database
+ * access. Changes request a rebuild, which runs on a background thread and swaps in a new snapshot;
+ * requests made while a rebuild runs are folded into one more rebuild. A lookup or listing made while the
+ * rebuild of a change is outstanding waits for it, so a category is visible, changed or gone right after the
+ * transaction that wrote it commits. The catalog is also rebuilt on a schedule, to pick up changes made
+ * outside the services; lookups do not wait for those rebuilds.
+ * <p>
+ * A rebuild that fails, such as while the database is down, is retried with a growing delay, and lookups
+ * are served from the last snapshot meanwhile instead of waiting.
+ */
+@Component
+@Slf4j
+public class CategoryCatalog {
+
+    private static final long REFRESH_WAIT_MILLIS = 2_000;
+    private static final long MIN_RETRY_MILLIS = 1_000;
+    private static final long MAX_RETRY_MILLIS = 60_000;
+
+    private final CategoryRepository categoryRepository;
+    private final ModelMapper modelMapper;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong requestedVersion = new AtomicLong();
+
+    /**
+     * The version requested by the last change, which lookups wait for.
+     */
+    private final AtomicLong changedVersion = new AtomicLong();
+
+    /**
+     * The version the last failed rebuild was for; lookups do not wait for it or an older version.
+     */
+    private volatile long failedVersion = -1;
+
+    /**
+     * The delay before retrying a failed rebuild, doubled on each failure in a row. Only used by the refresher.
+     */
+    private long retryMillis = MIN_RETRY_MILLIS;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final Object refreshMonitor = new Object();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-catalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CategoryCatalog(CategoryRepository categoryRepository, ModelMapper modelMapper) {
+        this.categoryRepository = categoryRepository;
+        this.modelMapper = modelMapper;
+    }
+
+    /**
+     * Find a category by its ID.
+     *
+     * @param id the ID of the category
+     * @return the category, or empty if there is no such category
+     */
+    public Optional<CategoryResponseDTO> findById(Long id) {
+        return Optional.ofNullable(currentAfterChanges().byId().get(id));
+    }
+
+    /**
+     * Check whether a category exists.
+     *
+     * @param id the ID of the category
+     * @return true if the category exists
+     */
+    public boolean contains(Long id) {
+        return findById(id).isPresent();
+    }
+
+    /**
+     * @return all categories, ordered by ID
+     */
+    public List<CategoryResponseDTO> getAll() {
+        return currentAfterChanges().all();
+    }
+
+    /**
+     * Request a rebuild of the catalog after a change of the categories. Returns immediately; the rebuild runs
+     * in the background, and lookups made until it completes wait for it.
+     */
+    public void refresh() {
+        changedVersion.accumulateAndGet(requestRebuild(), Math::max);
+    }
+
+    /**
+     * Request a rebuild of the catalog without waiting for it in lookups.
+     *
+     * @return the version the rebuild is for
+     */
+    private long requestRebuild() {
+        long version = requestedVersion.incrementAndGet();
+        if (refreshing.compareAndSet(false, true)) {
+            refresher.execute(this::rebuildUntilCurrent);
+        }
+        return version;
+    }
+
+    /**
+     * Rebuild the catalog once the application is ready, to include the categories written on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshOnStartup() {
+        refresh();
+    }
+
+    /**
+     * Rebuild the catalog periodically.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.category-catalog-refresh:PT5M}",
+            initialDelayString = "${app.cache.category-catalog-refresh:PT5M}")
+    public void scheduledRefresh() {
+        requestRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * @return the current snapshot, once it includes the last change, unless its rebuild failed or takes too long
+     */
+    private Snapshot currentAfterChanges() {
+        Snapshot current = current();
+        long changed = changedVersion.get();
+        if (current.version() < changed && failedVersion < changed) {
+            current = awaitRefresh(changed);
+        }
+        return current;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+        synchronized (refreshMonitor) {
+            if (snapshot.get() == null) {
+                snapshot.compareAndSet(null, build(requestedVersion.get()));
+            }
+            return snapshot.get();
+        }
+    }
+
+    private void rebuildUntilCurrent() {
+        long version = requestedVersion.get();
+        try {
+            Snapshot built;
+            do {
+                version = requestedVersion.get();
+                built = build(version);
+                snapshot.set(built);
+                synchronized (refreshMonitor) {
+                    refreshMonitor.notifyAll();
+                }
+            } while (built.version() < requestedVersion.get());
+            retryMillis = MIN_RETRY_MILLIS;
+        } catch (RuntimeException ex) {
+            // Retried later rather than right away, which would spin while the database is down; the flag
+            // stays set, so requests made meanwhile are folded into the retry
+            failedVersion = version;
+            log.warn("Could not rebuild the category catalog, retrying in {} ms: {}", retryMillis, ex.getMessage());
+            synchronized (refreshMonitor) {
+                refreshMonitor.notifyAll();
+            }
+            if (!refresher.isShutdown()) {
+                refresher.schedule(this::rebuildUntilCurrent, retryMillis, TimeUnit.MILLISECONDS);
+            }
+            retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+            return;
+        }
+        refreshing.set(false);
+        synchronized (refreshMonitor) {
+            refreshMonitor.notifyAll();
+        }
+        // A refresh requested between the last check and clearing the flag found it still set
+        if (snapshot.get().version() < requestedVersion.get() && refreshing.compareAndSet(false, true)) {
+            refresher.execute(this::rebuildUntilCurrent);
+        }
+    }
+
+    private Snapshot awaitRefresh(long version) {
+        long deadline = System.currentTimeMillis() + REFRESH_WAIT_MILLIS;
+        synchronized (refreshMonitor) {
+            while (snapshot.get().version() < version && failedVersion < version) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    refreshMonitor.wait(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return snapshot.get();
+    }
+
+    private Snapshot build(long version) {
+        Map<Long, CategoryResponseDTO> byId = new LinkedHashMap<>();
+        categoryRepository.findAll(Sort.by("id")).forEach(category ->
+                byId.put(category.getId(), modelMapper.map(category, CategoryResponseDTO.class)));
+        log.debug("Built category catalog version {} with {} categories", version, byId.size());
+        return new Snapshot(version, Map.copyOf(byId), List.copyOf(byId.values()));
+    }
+
+    /**
+     * An immutable view of all categories.
+     *
+     * @param version the refresh request the snapshot includes
+     * @param byId    the categories keyed by ID
+     * @param all     the categories ordered by ID
+     */
+    private record Snapshot(long version, Map<Long, CategoryResponseDTO> byId, List<CategoryResponseDTO> all) {
+    }
+}
@@ -0,0 +1,460 @@
+package app.quantun.backend.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache decorator that coalesces concurrent misses for the same key into a single load.
+ * <p>
+ * Used through {@code @Cacheable(sync = true)}: the first caller for a missing key runs the load, every
+ * concurrent caller for the same key waits for that load instead of running its own. Entries close to
+ * their expiry are refreshed early with probability rising towards expiry (the XFetch algorithm), so a
+ * popular entry is usually reloaded before it expires for everyone. The refresh runs in the background;
+ * the caller that triggers it is answered from the entry it is refreshing.
+ * <p>
+ * A loaded value is only kept if no write or eviction of its key happened during the load, so a load that
+ * read the data before a change committed never replaces the entry written or evicted for that change.
+ * Values loaded outside of the cache, such as by a query for many keys, are stored the same way with
+ * {@link #putLoaded(Object, Object, long)}, given the {@link #generation(Object)} of their key before the query.
+ * <p>
+ * When negative caching is enabled, keys whose load returned {@code null} are remembered as absent in a
+ * separate bounded cache with a short expiry, so repeated lookups of unknown keys do not reach the loader
+ * and cannot evict cached values. Any write or eviction of a key forgets that it was absent.
+ */
+@Slf4j
+public class CoalescingCache implements Cache {
+
+    private static final int TRACKED_HOT_KEYS = 128;
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache delegate;
+    private final Duration timeToLive;
+    private final double earlyRefreshBeta;
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Write time and last load duration of each entry, used to decide on early refreshes.
+     */
+    private final com.github.benmanes.caffeine.cache.Cache<Object, LoadStamp> stamps;
+
+    /**
+     * Keys whose last load returned {@code null}, or {@code null} if negative caching is disabled.
+     */
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Boolean> absentKeys;
+
+    /**
+     * Generations of the keys, by hash stripe, incremented on every write and eviction of a key, so a load that
+     * raced with one does not cache its value or record its key as absent. Keys sharing a stripe only cost
+     * an occasional discarded load.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /**
+     * Incremented on every clear, which changes the generation of every key.
+     */
+    private final AtomicLong clears = new AtomicLong();
+
+    private final ExecutorService refresher;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder earlyRefreshes = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final CacheActivity activity = new CacheActivity(TRACKED_HOT_KEYS);
+
+    /**
+     * Create a coalescing decorator.
+     *
+     * @param delegate         the cache holding the values
+     * @param maximumSize      the maximum number of entries of the delegate
+     * @param timeToLive       the write expiry of the delegate, or {@code null} if entries do not expire
+     * @param earlyRefreshBeta the early refresh aggressiveness, 0 to disable early refresh
+     */
+    public CoalescingCache(Cache delegate, long maximumSize, Duration timeToLive, double earlyRefreshBeta) {
+        this(delegate, maximumSize, timeToLive, earlyRefreshBeta, 0, null);
+    }
+
+    /**
+     * Create a coalescing decorator that also remembers absent keys.
+     *
+     * @param delegate            the cache holding the values
+     * @param maximumSize         the maximum number of entries of the delegate
+     * @param timeToLive          the write expiry of the delegate, or {@code null} if entries do not expire
+     * @param earlyRefreshBeta    the early refresh aggressiveness, 0 to disable early refresh
+     * @param negativeMaximumSize the maximum number of absent keys remembered, 0 to disable negative caching
+     * @param negativeTimeToLive  how long a key is remembered as absent
+     */
+    public CoalescingCache(Cache delegate, long maximumSize, Duration timeToLive, double earlyRefreshBeta,
+                           long negativeMaximumSize, Duration negativeTimeToLive) {
+        this.delegate = delegate;
+        this.timeToLive = timeToLive;
+        this.earlyRefreshBeta = timeToLive != null ? earlyRefreshBeta : 0;
+        this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-refresh-" + delegate.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maximumSize);
+        if (timeToLive != null) {
+            builder.expireAfterWrite(timeToLive);
+        }
+        this.stamps = builder.build();
+
+        if (negativeMaximumSize > 0) {
+            Caffeine<Object, Object> negativeBuilder = Caffeine.newBuilder().maximumSize(negativeMaximumSize);
+            if (negativeTimeToLive != null) {
+                negativeBuilder.expireAfterWrite(negativeTimeToLive);
+            }
+            this.absentKeys = negativeBuilder.build();
+        } else {
+            this.absentKeys = null;
+        }
+    }
+
+    /**
+     * Register the load counters of this cache with a meter registry.
+     *
+     * @param registry the meter registry
+     */
+    public void bindTo(MeterRegistry registry) {
+        registerCounter(registry, "load", loads);
+        registerCounter(registry, "coalesced", coalescedLoads);
+        registerCounter(registry, "early_refresh", earlyRefreshes);
+        if (absentKeys != null) {
+            FunctionCounter.builder("cache.negative.hits", negativeHits, LongAdder::sum)
+                    .tag("cache", getName())
+                    .description("Lookups answered by a key remembered as absent")
+                    .register(registry);
+        }
+    }
+
+    private void registerCounter(MeterRegistry registry, String result, LongAdder counter) {
+        FunctionCounter.builder("cache.coalescing.loads", counter, LongAdder::sum)
+                .tag("cache", getName())
+                .tag("result", result)
+                .description("Cache loads by outcome: run, coalesced onto an in-flight load, or early refresh")
+                .register(registry);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        activity.recordAccess(key);
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        activity.recordAccess(key);
+        return delegate.get(key, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        activity.recordAccess(key);
+        ValueWrapper cached = delegate.get(key);
+        if (cached == null) {
+            if (isKnownAbsent(key)) {
+                negativeHits.increment();
+                return null;
+            }
+            return (T) load(key, valueLoader);
+        }
+        if (shouldRefreshEarly(key) && !inFlight.containsKey(key)) {
+            refresh(key, valueLoader);
+        }
+        return (T) cached.get();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        generations.incrementAndGet(stripe(key));
+        forgetAbsent(key);
+        delegate.put(key, value);
+        LoadStamp previous = stamps.getIfPresent(key);
+        stamps.put(key, new LoadStamp(System.nanoTime(), previous != null ? previous.loadNanos() : 0));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        generations.incrementAndGet(stripe(key));
+        forgetAbsent(key);
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+        if (existing == null) {
+            stamps.put(key, new LoadStamp(System.nanoTime(), 0));
+        }
+        return existing;
+    }
+
+    /**
+     * Store a value loaded outside of the cache, unless its key was written or evicted since the load began,
+     * as for the loads of the cache. A {@code null} value remembers the key as absent, if negative caching is
+     * enabled.
+     *
+     * @param key              the cache key
+     * @param value            the loaded value, or {@code null} if there is none
+     * @param generationBefore the {@link #generation(Object)} of the key taken before the load read the data
+     */
+    public void putLoaded(Object key, Object value, long generationBefore) {
+        LoadStamp previous = stamps.getIfPresent(key);
+        store(key, value, generationBefore, previous != null ? previous.loadNanos() : 0);
+    }
+
+    @Override
+    public void evict(Object key) {
+        generations.incrementAndGet(stripe(key));
+        forgetAbsent(key);
+        delegate.evict(key);
+        stamps.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        clears.incrementAndGet();
+        if (absentKeys != null) {
+            absentKeys.invalidateAll();
+        }
+        delegate.clear();
+        stamps.invalidateAll();
+    }
+
+    /**
+     * @return the access and load activity of this cache
+     */
+    public CacheActivity getActivity() {
+        return activity;
+    }
+
+    /**
+     * @return the number of loads that were actually run
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * @return the number of callers that waited for an in-flight load instead of running their own
+     */
+    public long getCoalescedLoadCount() {
+        return coalescedLoads.sum();
+    }
+
+    /**
+     * @return the number of loads run before the entry expired
+     */
+    public long getEarlyRefreshCount() {
+        return earlyRefreshes.sum();
+    }
+
+    /**
+     * @return the number of lookups answered by a key remembered as absent
+     */
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    /**
+     * Load a value, or wait for the load already in flight for the same key.
+     *
+     * @param key         the cache key
+     * @param valueLoader the loader of the value
+     * @return the loaded value
+     */
+    private Object load(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> ownLoad = new CompletableFuture<>();
+        CompletableFuture<Object> runningLoad = inFlight.putIfAbsent(key, ownLoad);
+        if (runningLoad != null) {
+            coalescedLoads.increment();
+            return awaitLoad(key, valueLoader, runningLoad);
+        }
+
+        try {
+            // Another caller may have completed its load between our miss and claiming the key
+            ValueWrapper cached = delegate.get(key);
+            Object value;
+            if (cached != null) {
+                value = cached.get();
+            } else {
+                value = runLoad(key, valueLoader, false);
+            }
+            ownLoad.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            ownLoad.completeExceptionally(ex.getCause() != null ? ex.getCause() : ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, ownLoad);
+        }
+    }
+
+    /**
+     * Refresh a cached entry before it expires, in the background. Misses of the key in the meantime wait
+     * for the refresh, as for any load in flight.
+     *
+     * @param key         the cache key
+     * @param valueLoader the loader of the value
+     */
+    private void refresh(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> ownLoad = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, ownLoad) != null) {
+            return;
+        }
+        refresher.execute(() -> {
+            try {
+                ownLoad.complete(runLoad(key, valueLoader, true));
+            } catch (RuntimeException ex) {
+                // The entry stays cached until it expires, and is loaded again then
+                log.warn("Could not refresh entry {} of cache '{}': {}", key, getName(), ex.getMessage());
+                ownLoad.completeExceptionally(ex.getCause() != null ? ex.getCause() : ex);
+            } finally {
+                inFlight.remove(key, ownLoad);
+            }
+        });
+    }
+
+    private Object runLoad(Object key, Callable<?> valueLoader, boolean earlyRefresh) {
+        if (earlyRefresh) {
+            earlyRefreshes.increment();
+            log.debug("Refreshing entry {} of cache '{}' before expiry", key, getName());
+        }
+        loads.increment();
+
+        long generationBefore = generation(key);
+        long start = System.nanoTime();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+        long loadNanos = System.nanoTime() - start;
+        activity.recordLoad(loadNanos);
+        store(key, value, generationBefore, loadNanos);
+        return value;
+    }
+
+    /**
+     * Store a loaded value, or remember its key as absent, if the key is still at the generation the load
+     * began at.
+     */
+    private void store(Object key, Object value, long generationBefore, long loadNanos) {
+        // A write or eviction during the load is newer than what the loader read; it is checked again once
+        // the result is stored, and the result dropped if one came in between
+        if (value == null && absentKeys != null) {
+            if (generation(key) == generationBefore) {
+                delegate.evict(key);
+                absentKeys.put(key, Boolean.TRUE);
+                if (generation(key) != generationBefore) {
+                    absentKeys.invalidate(key);
+                }
+            }
+            return;
+        }
+        if (generation(key) == generationBefore) {
+            delegate.put(key, value);
+            stamps.put(key, new LoadStamp(System.nanoTime(), loadNanos));
+            if (generation(key) != generationBefore) {
+                delegate.evict(key);
+                stamps.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * The generation of a key, changed by every write or eviction of the key and every clear. Taken before
+     * loading a value outside of the cache, to store it with {@link #putLoaded(Object, Object, long)}.
+     *
+     * @param key the cache key
+     * @return the generation of the key
+     */
+    public long generation(Object key) {
+        return clears.get() + generations.get(stripe(key));
+    }
+
+    private static int stripe(Object key) {
+        return Math.floorMod(key.hashCode() * 0x9E3779B9, GENERATION_STRIPES);
+    }
+
+    private Object awaitLoad(Object key, Callable<?> valueLoader, CompletableFuture<Object> runningLoad) {
+        try {
+            return runningLoad.join();
+        } catch (CompletionException ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+        }
+    }
+
+    /**
+     * Whether a key is remembered as absent: its last load returned {@code null}, and it was not written or
+     * evicted since. {@link #get(Object)} answers {@code null} for such a key, as for a key never loaded.
+     *
+     * @param key the cache key
+     * @return whether the key is known to be absent; always {@code false} if negative caching is disabled
+     */
+    public boolean isKnownAbsent(Object key) {
+        return absentKeys != null && absentKeys.getIfPresent(key) != null;
+    }
+
+    private void forgetAbsent(Object key) {
+        if (absentKeys != null) {
+            absentKeys.invalidate(key);
+        }
+    }
+
+    /**
+     * Decide whether to refresh an entry before it expires.
+     * The entry is refreshed when {@code now - loadTime * beta * ln(random) >= expiry}, which becomes
+     * more likely the closer the entry is to expiry and the longer it took to load.
+     *
+     * @param key the cache key
+     * @return true if this caller should refresh the entry
+     */
+    private boolean shouldRefreshEarly(Object key) {
+        if (earlyRefreshBeta <= 0) {
+            return false;
+        }
+        LoadStamp stamp = stamps.getIfPresent(key);
+        if (stamp == null || stamp.loadNanos() == 0) {
+            return false;
+        }
+        long expiresAt = stamp.writtenAt() + timeToLive.toNanos();
+        double gap = -stamp.loadNanos() * earlyRefreshBeta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.nanoTime() + gap >= expiresAt;
+    }
+
+    /**
+     * Write time and load duration of a cache entry.
+     *
+     * @param writtenAt the {@link System#nanoTime()} at which the entry was written
+     * @param loadNanos how long the last load of the entry took, 0 if unknown
+     */
+    private record LoadStamp(long writtenAt, long loadNanos) {
+    }
+}
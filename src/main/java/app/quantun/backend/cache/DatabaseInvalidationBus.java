@@ -0,0 +1,139 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.config.AppCacheProperties;
+import app.quantun.backend.models.entity.CacheInvalidation;
+import app.quantun.backend.repository.CacheInvalidationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Invalidation bus backed by the {@code cache_invalidation} change-log table.
+ * <p>
+ * The changes published during a transaction are collected, de-duplicated and written in one batch
+ * just before it commits, so they become visible to the other instances exactly when the data does,
+ * and never for a rolled back transaction. Every instance polls the table for the entries written by
+ * the others. Since entries may commit out of ID order, each poll re-reads a lookback window and skips
+ * the entries it has already applied. Entries are stamped, and the window placed, with the clock of the
+ * database rather than of the instances, so the window does not depend on the clock skew between them.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.cache.invalidation", name = "transport", havingValue = "database", matchIfMissing = true)
+@Slf4j
+public class DatabaseInvalidationBus implements InvalidationBus {
+
+    private final CacheInvalidationRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidator invalidator;
+    private final AppCacheProperties.Invalidation settings;
+
+    /**
+     * Creation time of the entries applied within the lookback window, keyed by entry ID.
+     * Only used by the polling thread.
+     */
+    private final Map<Long, Instant> applied = new HashMap<>();
+
+    /**
+     * The database time of the start of the last successful poll, {@code null} before the first one.
+     */
+    private volatile Instant lastPoll;
+
+    public DatabaseInvalidationBus(CacheInvalidationRepository repository, JdbcTemplate jdbcTemplate,
+                                   CacheInvalidator invalidator, AppCacheProperties cacheProperties) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidator = invalidator;
+        this.settings = cacheProperties.getInvalidation();
+    }
+
+    @Override
+    public void publish(String entityType, Long entityId) {
+        Change change = new Change(entityType, entityId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(Set.of(change));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<Change> pending = (Set<Change>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Change> changes = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DatabaseInvalidationBus.this);
+                }
+            });
+            pending = changes;
+        }
+        pending.add(change);
+    }
+
+    /**
+     * Apply the entries written by the other instances since the last poll.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.poll-interval:PT1S}")
+    public void poll() {
+        try {
+            Instant pollStart = databaseTime();
+            Instant since = (lastPoll != null ? lastPoll : pollStart).minus(settings.getLookback());
+            Set<Change> changes = new LinkedHashSet<>();
+            for (CacheInvalidation entry : repository.findByCreatedAtGreaterThanEqualAndOriginNodeNotOrderByIdAsc(
+                    since, settings.getNodeId())) {
+                if (applied.putIfAbsent(entry.getId(), entry.getCreatedAt()) == null) {
+                    changes.add(new Change(entry.getEntityType(), entry.getEntityId()));
+                }
+            }
+            applied.values().removeIf(createdAt -> createdAt.isBefore(since));
+            invalidator.apply(changes);
+            lastPoll = pollStart;
+        } catch (RuntimeException ex) {
+            // The next poll reads the same window again
+            log.warn("Could not poll the cache invalidation change-log: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Delete the change-log entries older than the retention.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.retention:PT1H}")
+    public void purge() {
+        int deleted = repository.deleteByCreatedAtBefore(databaseTime().minus(settings.getRetention()));
+        log.debug("Purged {} cache invalidation change-log entries", deleted);
+    }
+
+    private void write(Set<Change> changes) {
+        Instant now = databaseTime();
+        List<CacheInvalidation> entries = changes.stream()
+                .map(change -> new CacheInvalidation(null, change.entityType(), change.entityId(),
+                        settings.getNodeId(), now))
+                .toList();
+        repository.saveAll(entries);
+        log.debug("Published {} cache invalidations", entries.size());
+    }
+
+    /**
+     * @return the current time of the database, which every instance stamps and reads the entries with
+     */
+    private Instant databaseTime() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class).toInstant();
+    }
+}
@@ -0,0 +1,44 @@
+package app.quantun.backend.cache;
+
+/**
+ * Propagates entity changes to the other instances, so they evict their local cache entries.
+ * <p>
+ * The services publish every committed mutation; the instance that made the change has already
+ * updated its own caches and ignores its own messages. Implementations deliver each change at least
+ * once and hand it to {@link CacheInvalidator#apply} on the other instances.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Entity type of products.
+     */
+    String PRODUCT = "product";
+
+    /**
+     * Entity type of categories.
+     */
+    String CATEGORY = "category";
+
+    /**
+     * Entity type of all the products of a category, changed at once; the ID is the ID of the category.
+     * Published instead of one change per product, which a large category would turn into as many rows.
+     */
+    String CATEGORY_PRODUCTS = "category-products";
+
+    /**
+     * Publish the change of an entity, once the current transaction commits.
+     *
+     * @param entityType the type of the entity, {@link #PRODUCT}, {@link #CATEGORY} or {@link #CATEGORY_PRODUCTS}
+     * @param entityId   the ID of the entity
+     */
+    void publish(String entityType, Long entityId);
+
+    /**
+     * The change of an entity.
+     *
+     * @param entityType the type of the entity
+     * @param entityId   the ID of the entity
+     */
+    record Change(String entityType, Long entityId) {
+    }
+}
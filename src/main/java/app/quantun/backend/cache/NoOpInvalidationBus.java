@@ -0,0 +1,17 @@
+package app.quantun.backend.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalidation bus for a single instance, where there is nobody to notify.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.cache.invalidation", name = "transport", havingValue = "none")
+public class NoOpInvalidationBus implements InvalidationBus {
+
+    @Override
+    public void publish(String entityType, Long entityId) {
+        // The local caches are maintained by the services themselves
+    }
+}
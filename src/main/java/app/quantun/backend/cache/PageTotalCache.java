@@ -0,0 +1,171 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.config.AppCacheProperties;
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.models.contract.response.TotalAwarePage;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Turns slices into pages without running a count query for every page.
+ * <p>
+ * The total is taken, in order of cost, from the slice itself when it is the last one, from the memoized
+ * count of the query, or from a count query. Totals are exact by default. A request can opt in to an estimate
+ * with the {@value #PREFER_HEADER} header {@code count=estimated}, or every request with the
+ * {@link AppCacheProperties.TotalMode#ESTIMATED} mode: the count query then never runs on the request
+ * thread, the page reports a bound told by the slice, and the count runs in the background, memoized for the
+ * following pages of the query. Counts are keyed by the query without its paging and sorting, and are all
+ * dropped when a product is written.
+ */
+@Component
+@Slf4j
+public class PageTotalCache {
+
+    private static final String CACHE_NAME = "pageTotals";
+
+    /**
+     * The request header asking for an estimated total, with the preference {@value #PREFER_ESTIMATED}.
+     */
+    public static final String PREFER_HEADER = "Prefer";
+    public static final String PREFER_ESTIMATED = "count=estimated";
+
+    private final AppCacheProperties.TotalMode mode;
+    private final Cache<Object, Long> counts;
+    private final Set<Object> counting = ConcurrentHashMap.newKeySet();
+    private final ExecutorService counter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "page-total-counter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Incremented on every invalidation; a count that overlapped an invalidation is not memoized.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public PageTotalCache(AppCacheProperties cacheProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        AppCacheProperties.PageTotals pageTotals = cacheProperties.getPageTotals();
+        this.mode = pageTotals.getMode();
+        this.counts = CacheConfig.newCaffeine(pageTotals.getCounts()).build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, counts, CACHE_NAME));
+    }
+
+    /**
+     * Build the page of a slice.
+     *
+     * @param countKey the key of the query, without its paging and sorting
+     * @param slice    the slice fetched for the page
+     * @param count    the count query of the query
+     * @param <T>      the type of the elements
+     * @return the page, flagged with how its total was obtained
+     */
+    public <T> TotalAwarePage<T> page(Object countKey, Slice<T> slice, LongSupplier count) {
+        long offset = slice.getPageable().isPaged() ? slice.getPageable().getOffset() : 0;
+        long seen = offset + slice.getNumberOfElements();
+
+        // The last slice tells the total, unless it lies past the end
+        if (!slice.hasNext() && (slice.hasContent() || offset == 0)) {
+            return new TotalAwarePage<>(slice.getContent(), slice.getPageable(), seen, TotalAwarePage.Total.EXACT);
+        }
+
+        // A memoized count must agree with the slice: past a full slice, or at most the offset of a slice past the end
+        Long memoized = counts.getIfPresent(countKey);
+        if (memoized != null && (slice.hasNext() ? memoized > seen : memoized <= offset)) {
+            return new TotalAwarePage<>(slice.getContent(), slice.getPageable(), memoized, TotalAwarePage.Total.CACHED);
+        }
+
+        if (mode == AppCacheProperties.TotalMode.EXACT && !isEstimateRequested()) {
+            long loadGeneration = generation.get();
+            long total = count.getAsLong();
+            memoize(countKey, total, loadGeneration);
+            return new TotalAwarePage<>(slice.getContent(), slice.getPageable(), total, TotalAwarePage.Total.EXACT);
+        }
+
+        countInBackground(countKey, count);
+        long bound = slice.hasNext() ? seen + 1 : offset;
+        return new TotalAwarePage<>(slice.getContent(), slice.getPageable(), bound, TotalAwarePage.Total.ESTIMATED);
+    }
+
+    /**
+     * Drop all memoized counts, once the current transaction commits.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        AfterCommit.run(this::invalidateAll);
+    }
+
+    /**
+     * Drop all memoized counts.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        counts.invalidateAll();
+    }
+
+    /**
+     * @return the underlying Caffeine cache
+     */
+    public Cache<Object, Long> getNativeCache() {
+        return counts;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        counter.shutdownNow();
+    }
+
+    /**
+     * @return whether the current request, if any, prefers an estimated total
+     */
+    private static boolean isEstimateRequested() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return false;
+        }
+        String prefer = servletAttributes.getRequest().getHeader(PREFER_HEADER);
+        return prefer != null && prefer.contains(PREFER_ESTIMATED);
+    }
+
+    private void countInBackground(Object countKey, LongSupplier count) {
+        if (!counting.add(countKey)) {
+            return;
+        }
+        long loadGeneration = generation.get();
+        try {
+            counter.execute(() -> {
+                try {
+                    memoize(countKey, count.getAsLong(), loadGeneration);
+                } catch (RuntimeException ex) {
+                    log.warn("Could not count the results of {}: {}", countKey, ex.getMessage());
+                } finally {
+                    counting.remove(countKey);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            counting.remove(countKey);
+        }
+    }
+
+    private void memoize(Object countKey, long total, long loadGeneration) {
+        if (generation.get() == loadGeneration) {
+            counts.put(countKey, total);
+        }
+    }
+}
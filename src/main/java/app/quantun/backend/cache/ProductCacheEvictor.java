@@ -0,0 +1,110 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.models.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evicts products written without Hibernate, by set-based or conditional SQL, from the caches of this instance
+ * once the current transaction commits, and publishes their change to the other instances.
+ * The second-level entries are evicted before the cached responses are, so the product cache is never reloaded
+ * from a stale second-level entry.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCacheEvictor {
+
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final InvalidationBus invalidationBus;
+    private final PageTotalCache pageTotalCache;
+    private final ProductFilterCache productFilterCache;
+
+    /**
+     * Evict products from the caches, and the cached pages if asked.
+     *
+     * @param ids        the IDs of the products
+     * @param clearPages whether to clear the cached pages, which the caller otherwise leaves to expire
+     */
+    public void evict(Collection<Long> ids, boolean clearPages) {
+        org.hibernate.Cache secondLevelCache = secondLevelCache();
+        // Registered first, so the product cache is never reloaded from a stale second-level entry
+        AfterCommit.run(() -> ids.forEach(id -> secondLevelCache.evictEntityData(Product.class, id)));
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS);
+        for (Long id : ids) {
+            if (products != null) {
+                products.evict(id);
+            }
+            invalidationBus.publish(InvalidationBus.PRODUCT, id);
+        }
+        if (clearPages) {
+            clear(CacheConfig.PRODUCT_PAGES);
+        }
+    }
+
+    /**
+     * Evict products whose stock changed from the caches.
+     * Pages, filter results and totals only change their members when a product goes in or out of stock;
+     * otherwise they keep the stock they were cached with until they expire, so a hot product does not empty
+     * them on every reservation.
+     *
+     * @param ids            the IDs of the products
+     * @param inStockChanged whether the products went in or out of stock
+     */
+    public void evictStockChange(Collection<Long> ids, boolean inStockChanged) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (inStockChanged) {
+            pageTotalCache.invalidate();
+            AfterCommit.run(productFilterCache::invalidateAll);
+        }
+        evict(ids, inStockChanged);
+    }
+
+    /**
+     * Evict a product whose cached fields are unchanged, such as after a change of its reserved or leased units,
+     * from the second-level cache only, whose version of it is stale.
+     *
+     * @param id the ID of the product
+     */
+    public void evictVersion(Long id) {
+        org.hibernate.Cache secondLevelCache = secondLevelCache();
+        AfterCommit.run(() -> secondLevelCache.evictEntityData(Product.class, id));
+        invalidationBus.publish(InvalidationBus.PRODUCT, id);
+    }
+
+    /**
+     * Evict every product from the caches, along with the cached pages, after the products of a category changed
+     * at once, and publish a single change for them.
+     *
+     * @param categoryId the ID of the category
+     */
+    public void evictCategoryProducts(Long categoryId) {
+        org.hibernate.Cache secondLevelCache = secondLevelCache();
+        AfterCommit.run(() -> secondLevelCache.evictEntityData(Product.class));
+        for (String name : List.of(CacheConfig.PRODUCTS, CacheConfig.PRODUCT_PAGES)) {
+            clear(name);
+        }
+        invalidationBus.publish(InvalidationBus.CATEGORY_PRODUCTS, categoryId);
+    }
+
+    private org.hibernate.Cache secondLevelCache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
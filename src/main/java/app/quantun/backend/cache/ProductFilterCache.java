@@ -0,0 +1,104 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.config.AppCacheProperties;
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.models.contract.response.TotalAwarePage;
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Query-result cache for product filter queries.
+ * Entries are keyed by a {@link ProductFilterKey} and tagged by its category and price range, so a product
+ * write only invalidates the entries whose results it could have changed.
+ */
+@Component
+@Slf4j
+public class ProductFilterCache {
+
+    private static final int TRACKED_HOT_KEYS = 128;
+
+    private final Cache<Object, Object> cache;
+    private final CacheActivity activity = new CacheActivity(TRACKED_HOT_KEYS);
+
+    /**
+     * Incremented on every invalidation; a load that overlapped an invalidation is not stored.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProductFilterCache(AppCacheProperties cacheProperties) {
+        this.cache = CacheConfig.newCaffeine(cacheProperties.getProductFilters()).build();
+    }
+
+    /**
+     * Return the cached result for a filter, loading and caching it on a miss.
+     *
+     * @param key    the canonical filter key
+     * @param loader the loader that runs the query
+     * @param <T>    the type of the result
+     * @return the cached or freshly loaded result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ProductFilterKey key, Supplier<T> loader) {
+        activity.recordAccess(key);
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            log.debug("Filter cache hit for {}", key);
+            return (T) cached;
+        }
+
+        long loadGeneration = generation.get();
+        long start = System.nanoTime();
+        T result = loader.get();
+        activity.recordLoad(System.nanoTime() - start);
+        // A page whose total is only a lower bound is not kept, so the memoized count is used next time
+        boolean estimated = result instanceof TotalAwarePage<?> page && page.isTotalEstimated();
+        if (result != null && !estimated && generation.get() == loadGeneration) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Invalidate, once the current transaction commits, the entries a product with the given
+     * category and price could appear in.
+     *
+     * @param categoryId the category ID of the product, or {@code null} if it has none
+     * @param price      the price of the product
+     */
+    public void invalidate(Long categoryId, BigDecimal price) {
+        generation.incrementAndGet();
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            cache.asMap().keySet().removeIf(key ->
+                    key instanceof ProductFilterKey filterKey && filterKey.matchesTags(categoryId, price));
+            log.debug("Invalidated filter cache entries for category {} and price {}", categoryId, price);
+        });
+    }
+
+    /**
+     * @return the underlying Caffeine cache
+     */
+    public Cache<Object, Object> getNativeCache() {
+        return cache;
+    }
+
+    /**
+     * @return the access and load activity of this cache
+     */
+    public CacheActivity getActivity() {
+        return activity;
+    }
+
+    /**
+     * Invalidate all entries.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
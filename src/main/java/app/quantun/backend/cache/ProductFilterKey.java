@@ -0,0 +1,111 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.models.contract.request.ProductFilterDTO;
+import lombok.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Canonical cache key for a product filter query.
+ * Text criteria are lower-cased (the specification compares them case-insensitively), blank text and
+ * missing paging or sorting fall back to the defaults of {@link ProductFilterDTO}, and prices are
+ * compared by value, so equivalent filters share one cache entry.
+ * The category and price range of the key double as the invalidation tags of the entry.
+ */
+@Value
+public class ProductFilterKey {
+
+    private static final int DEFAULT_PAGE = 0;
+    private static final int DEFAULT_SIZE = 10;
+    private static final String DEFAULT_SORT_BY = "id";
+
+    /**
+     * Whether the cached result is a slice rather than a page.
+     */
+    boolean slice;
+
+    String name;
+    String description;
+    Long categoryId;
+    BigDecimal minPrice;
+    BigDecimal maxPrice;
+    Boolean inStock;
+    Integer minStock;
+    LocalDateTime createdAfter;
+    LocalDateTime createdBefore;
+    LocalDateTime updatedAfter;
+    LocalDateTime updatedBefore;
+    int page;
+    int size;
+    String sortBy;
+    Sort.Direction sortDirection;
+
+    /**
+     * Build the canonical key of a filter.
+     *
+     * @param filter the filter criteria
+     * @param slice  whether the result is a slice rather than a page
+     * @return the canonical key
+     */
+    public static ProductFilterKey of(ProductFilterDTO filter, boolean slice) {
+        return new ProductFilterKey(
+                slice,
+                normalizeText(filter.getName()),
+                normalizeText(filter.getDescription()),
+                filter.getCategoryId(),
+                normalizeAmount(filter.getMinPrice()),
+                normalizeAmount(filter.getMaxPrice()),
+                filter.getInStock(),
+                filter.getMinStock(),
+                filter.getCreatedAfter(),
+                filter.getCreatedBefore(),
+                filter.getUpdatedAfter(),
+                filter.getUpdatedBefore(),
+                filter.getPage() != null ? filter.getPage() : DEFAULT_PAGE,
+                filter.getSize() != null ? filter.getSize() : DEFAULT_SIZE,
+                StringUtils.hasText(filter.getSortBy()) ? filter.getSortBy().trim() : DEFAULT_SORT_BY,
+                filter.getSortDirection() != null ? filter.getSortDirection() : Sort.Direction.ASC
+        );
+    }
+
+    /**
+     * The key of the same criteria without paging and sorting, shared by all pages of a filter.
+     *
+     * @return the key without paging and sorting
+     */
+    public ProductFilterKey withoutPaging() {
+        return new ProductFilterKey(false, name, description, categoryId, minPrice, maxPrice, inStock, minStock,
+                createdAfter, createdBefore, updatedAfter, updatedBefore, 0, 0, null, null);
+    }
+
+    /**
+     * Check whether a product with the given category and price may appear in the cached result.
+     * Only the category and price range tags are compared, so the check may over-match but never under-match.
+     *
+     * @param productCategoryId the category ID of the product, or {@code null} if it has none
+     * @param price             the price of the product, or {@code null} if unknown
+     * @return true if the cached result may contain the product
+     */
+    public boolean matchesTags(Long productCategoryId, BigDecimal price) {
+        if (categoryId != null && !categoryId.equals(productCategoryId)) {
+            return false;
+        }
+        if (price == null) {
+            return true;
+        }
+        return (minPrice == null || price.compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+    }
+
+    private static String normalizeText(String value) {
+        return StringUtils.hasText(value) ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static BigDecimal normalizeAmount(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros() : null;
+    }
+}
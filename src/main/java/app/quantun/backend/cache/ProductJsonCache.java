@@ -0,0 +1,113 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.config.AppCacheProperties;
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of the encoded JSON of single products, so the hottest products are written to the response
+ * without running Jackson on every request.
+ * <p>
+ * Each entry keeps the DTO it was encoded from. The product cache hands out the same DTO instance until
+ * the product is written or evicted, so an entry is reused only while its DTO is still the current one
+ * and never needs to be invalidated explicitly.
+ */
+@Component
+@Slf4j
+public class ProductJsonCache {
+
+    private static final String CACHE_NAME = "productJson";
+
+    private final AppCacheProperties.JsonCacheSpec spec;
+    private final ObjectWriter writer;
+    private final Cache<Long, EncodedProduct> cache;
+
+    public ProductJsonCache(AppCacheProperties cacheProperties, ObjectMapper objectMapper,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.spec = cacheProperties.getProductJson();
+        this.writer = objectMapper.writerFor(ProductResponseDTO.class);
+        this.cache = CacheConfig.newCaffeine(spec.getCache()).build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME));
+    }
+
+    /**
+     * @return whether product responses should be served from this cache
+     */
+    public boolean isEnabled() {
+        return spec.isEnabled();
+    }
+
+    /**
+     * @return the underlying Caffeine cache
+     */
+    public Cache<Long, EncodedProduct> getNativeCache() {
+        return cache;
+    }
+
+    /**
+     * Return the encoded JSON of a product, encoding it if it is not cached or was encoded from an older DTO.
+     *
+     * @param product the current DTO of the product
+     * @return the encoded product
+     */
+    public EncodedProduct encode(ProductResponseDTO product) {
+        EncodedProduct cached = cache.getIfPresent(product.getId());
+        if (cached != null && cached.source() == product) {
+            return cached;
+        }
+
+        EncodedProduct encoded = encodeProduct(product);
+        cache.put(product.getId(), encoded);
+        log.debug("Encoded JSON of product {} ({} bytes)", product.getId(), encoded.json().length);
+        return encoded;
+    }
+
+    private EncodedProduct encodeProduct(ProductResponseDTO product) {
+        byte[] json;
+        try {
+            json = writer.writeValueAsBytes(product);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize product " + product.getId(), ex);
+        }
+        byte[] gzip = spec.isGzip() && json.length >= spec.getGzipMinSize() ? gzip(json) : null;
+        // Weak, as the plain and gzip bodies are equivalent representations of the same content
+        String etag = "W/\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        return new EncodedProduct(product, json, gzip, etag);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The encoded JSON of a product.
+     *
+     * @param source the DTO the JSON was encoded from
+     * @param json   the UTF-8 JSON
+     * @param gzip   the gzip encoding of the JSON, or {@code null} if not kept
+     * @param etag   the entity tag of the JSON
+     */
+    public record EncodedProduct(ProductResponseDTO source, byte[] json, byte[] gzip, String etag) {
+    }
+}
@@ -0,0 +1,302 @@
+package app.quantun.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Configuration properties for the application caches.
+ * Each named cache has its own size, expiry and weigher settings, bound from {@code app.cache.<cache>.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.cache")
+public class AppCacheProperties {
+
+    /**
+     * Settings for the single product cache, keyed by product ID.
+     */
+    private CacheSpec products = new CacheSpec(10_000, 0, Duration.ofMinutes(30), null, Weigher.ENTRIES, 1.0)
+            .withNegativeCache(10_000, Duration.ofMinutes(1));
+
+    /**
+     * Time between two scheduled rebuilds of the in-memory category catalog.
+     */
+    private Duration categoryCatalogRefresh = Duration.ofMinutes(5);
+
+    /**
+     * Settings for the product page cache. Pages are weighed by the number of products they hold.
+     */
+    private CacheSpec productPages = new CacheSpec(0, 50_000, Duration.ofMinutes(5), null, Weigher.ELEMENTS);
+
+    /**
+     * Settings for the product filter result cache, keyed by the normalized filter criteria.
+     */
+    private CacheSpec productFilters = new CacheSpec(0, 20_000, Duration.ofMinutes(2), null, Weigher.ELEMENTS);
+
+    /**
+     * Settings for the totals of product pages and the memoized counts behind them.
+     */
+    private PageTotals pageTotals = new PageTotals();
+
+    /**
+     * Settings for the posting counts of trigrams, used to pick the most selective trigrams of a search.
+     * Counts are capped, and only need to be roughly right: they never change the results of a search.
+     */
+    private CacheSpec trigramFrequencies = new CacheSpec(50_000, 0, Duration.ofMinutes(10), null, Weigher.ENTRIES);
+
+    /**
+     * Settings for the pre-serialized JSON of single products served by the product detail endpoint.
+     */
+    private JsonCacheSpec productJson = new JsonCacheSpec();
+
+    /**
+     * Settings for the snapshot of hot keys used to warm the caches after a restart.
+     */
+    private Snapshot snapshot = new Snapshot();
+
+    /**
+     * Settings for the propagation of invalidations to the other instances.
+     */
+    private Invalidation invalidation = new Invalidation();
+
+    /**
+     * Settings for the Hibernate second-level cache regions, keyed by region name.
+     * Regions without an entry here use the defaults of {@link HibernateCacheConfig}.
+     */
+    private Map<String, CacheSpec> regions = new LinkedHashMap<>();
+
+    /**
+     * How the entries of a cache are weighed against its maximum weight.
+     */
+    public enum Weigher {
+        /**
+         * Every entry counts as one; the cache is bounded by {@code maximumSize}.
+         */
+        ENTRIES,
+        /**
+         * Entries are weighed by the number of elements they hold (pages, slices and collections);
+         * the cache is bounded by {@code maximumWeight}.
+         */
+        ELEMENTS
+    }
+
+    /**
+     * Settings of the hot key snapshot and of the warm start that replays it.
+     */
+    @Data
+    public static class Snapshot {
+        /**
+         * Whether hot keys are snapshot and replayed on startup; off unless a writable directory is configured.
+         */
+        private boolean enabled;
+
+        /**
+         * Directory holding one snapshot file per cache, private to the instance; relative paths resolve against
+         * the working directory.
+         */
+        private String directory = "cache-snapshot";
+
+        /**
+         * Caches whose hot keys are snapshot.
+         */
+        private List<String> caches = new ArrayList<>(List.of("products"));
+
+        /**
+         * Maximum number of keys snapshot, and replayed, per cache.
+         */
+        private int maxKeys = 1_000;
+
+        /**
+         * Time between two snapshots.
+         */
+        private Duration interval = Duration.ofMinutes(5);
+
+        /**
+         * Maximum time spent warming on startup; the instance reports ready once it elapses even if
+         * keys remain.
+         */
+        private Duration warmTimeout = Duration.ofMinutes(2);
+    }
+
+    /**
+     * Settings of the invalidation bus that keeps the caches of several instances consistent.
+     */
+    @Data
+    public static class Invalidation {
+        /**
+         * The transport of the bus: {@code database} for the change-log table, {@code none} for a single
+         * instance. Any other value disables both, for a custom {@code InvalidationBus} bean.
+         */
+        private String transport = "database";
+
+        /**
+         * The ID of this instance; random by default, so it is unique per application context.
+         */
+        private String nodeId = UUID.randomUUID().toString();
+
+        /**
+         * Time between two polls of the change-log.
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /**
+         * How far back each poll reads, to cover the delay between stamping an entry and committing it.
+         * Entries are stamped with the time of the database, so clock skew between instances does not count.
+         */
+        private Duration lookback = Duration.ofSeconds(30);
+
+        /**
+         * How long change-log entries are kept.
+         */
+        private Duration retention = Duration.ofHours(1);
+    }
+
+    /**
+     * How the total of a page is obtained.
+     */
+    public enum TotalMode {
+        /**
+         * Count the matching rows for every page whose total cannot be told from the page itself.
+         */
+        EXACT,
+        /**
+         * Use the memoized count of the query if there is one; otherwise report a lower bound and count
+         * in the background, so the next page of the same query gets the count.
+         */
+        ESTIMATED
+    }
+
+    /**
+     * Settings of the page totals.
+     */
+    @Data
+    public static class PageTotals {
+        /**
+         * How totals are obtained when the page does not tell them. Exact by default; a request may still ask
+         * for an estimate, see {@link app.quantun.backend.cache.PageTotalCache}.
+         */
+        private TotalMode mode = TotalMode.EXACT;
+
+        /**
+         * Size and expiry of the memoized counts, keyed by the query without its paging and sorting.
+         * Counts are also dropped whenever a product is written.
+         */
+        private CacheSpec counts = new CacheSpec(10_000, 0, Duration.ofMinutes(10), null, Weigher.ENTRIES);
+    }
+
+    /**
+     * Settings of a cache holding encoded JSON responses.
+     */
+    @Data
+    public static class JsonCacheSpec {
+        /**
+         * Whether responses are served from pre-serialized JSON. Off by default.
+         */
+        private boolean enabled;
+
+        /**
+         * Whether a gzip encoding is kept next to the plain JSON.
+         */
+        private boolean gzip = true;
+
+        /**
+         * Minimum size of the plain JSON, in bytes, for a gzip encoding to be kept.
+         */
+        private int gzipMinSize = 512;
+
+        /**
+         * Size and expiry of the cache; the cache is meant for the hottest entries only.
+         */
+        private CacheSpec cache = new CacheSpec(1_000, 0, null, Duration.ofMinutes(30), Weigher.ENTRIES);
+    }
+
+    /**
+     * Size, expiry and weigher settings of a single cache.
+     */
+    @Data
+    public static class CacheSpec {
+        /**
+         * Maximum number of entries, used with the {@link Weigher#ENTRIES} weigher.
+         */
+        private long maximumSize;
+
+        /**
+         * Maximum total weight, used with the {@link Weigher#ELEMENTS} weigher.
+         */
+        private long maximumWeight;
+
+        /**
+         * Time after which an entry expires once written, or {@code null} to disable.
+         */
+        private Duration expireAfterWrite;
+
+        /**
+         * Time after which an entry expires once last read, or {@code null} to disable.
+         */
+        private Duration expireAfterAccess;
+
+        /**
+         * The weigher used to bound the cache.
+         */
+        private Weigher weigher = Weigher.ENTRIES;
+
+        /**
+         * Whether hit/miss/eviction statistics are recorded.
+         */
+        private boolean recordStats = true;
+
+        /**
+         * Aggressiveness of the probabilistic early refresh of entries close to expiry.
+         * Values above 1.0 favour earlier refreshes, 0 disables early refresh.
+         */
+        private double earlyRefreshBeta;
+
+        /**
+         * Maximum number of keys remembered as absent, 0 to disable negative caching.
+         * Absent keys are kept apart from the cached values so they cannot evict them.
+         */
+        private long negativeMaximumSize;
+
+        /**
+         * Time after which a key remembered as absent is looked up again.
+         */
+        private Duration negativeExpireAfterWrite = Duration.ofMinutes(1);
+
+        public CacheSpec() {
+        }
+
+        public CacheSpec(long maximumSize, long maximumWeight, Duration expireAfterWrite,
+                         Duration expireAfterAccess, Weigher weigher) {
+            this(maximumSize, maximumWeight, expireAfterWrite, expireAfterAccess, weigher, 0);
+        }
+
+        public CacheSpec(long maximumSize, long maximumWeight, Duration expireAfterWrite,
+                         Duration expireAfterAccess, Weigher weigher, double earlyRefreshBeta) {
+            this.maximumSize = maximumSize;
+            this.maximumWeight = maximumWeight;
+            this.expireAfterWrite = expireAfterWrite;
+            this.expireAfterAccess = expireAfterAccess;
+            this.weigher = weigher;
+            this.earlyRefreshBeta = earlyRefreshBeta;
+        }
+
+        /**
+         * Enable negative caching of absent keys.
+         *
+         * @param maximumSize      the maximum number of absent keys remembered
+         * @param expireAfterWrite how long a key is remembered as absent
+         * @return this spec
+         */
+        public CacheSpec withNegativeCache(long maximumSize, Duration expireAfterWrite) {
+            this.negativeMaximumSize = maximumSize;
+            this.negativeExpireAfterWrite = expireAfterWrite;
+            return this;
+        }
+    }
+}
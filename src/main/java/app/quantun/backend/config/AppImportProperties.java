@@ -0,0 +1,23 @@
+package app.quantun.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the bulk product import, bound from {@code app.import.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.import")
+public class AppImportProperties {
+
+    /**
+     * Number of rows inserted and committed per transaction. A failed chunk is retried row by row,
+     * so the rows in error are told apart from the others.
+     */
+    private int chunkSize = 1_000;
+
+    /**
+     * Maximum number of row errors listed in the import report; further errors are only counted.
+     */
+    private int maxReportedErrors = 100;
+}
@@ -0,0 +1,47 @@
+package app.quantun.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Configuration properties for the in-memory stock of hot products, bound from {@code app.stock.hot.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.stock.hot")
+public class AppStockProperties {
+
+    /**
+     * Whether the hot products reserve stock from in-memory counters rather than with an update per reservation.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The IDs of the hot products.
+     */
+    private Set<Long> productIds = new HashSet<>();
+
+    /**
+     * Number of stripes of the counter of each hot product; zero for one per available processor.
+     */
+    private int stripes = 0;
+
+    /**
+     * Units of stock leased from the database when a counter runs out.
+     */
+    private int leaseSize = 500;
+
+    /**
+     * Time between two flushes of the reservations to the database.
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * Time after which a lease that was not renewed is taken back from the instance holding it.
+     * An instance stops reserving from a lease it could not renew for half this time.
+     */
+    private Duration leaseTimeout = Duration.ofSeconds(30);
+}
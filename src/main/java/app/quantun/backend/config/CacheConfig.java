@@ -1,4 +1,149 @@
 package app.quantun.backend.config;
 
+import app.quantun.backend.cache.CoalescingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Configuration class for the application caches.
+ * This class builds one Caffeine cache per name, each with its own size, expiry and weigher settings.
+ */
+@Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties(AppCacheProperties.class)
+@Slf4j
 public class CacheConfig {
+
+    /**
+     * Cache of single products, keyed by product ID.
+     */
+    public static final String PRODUCTS = "products";
+
+    /**
+     * Cache of product pages, keyed by query and pagination information.
+     */
+    public static final String PRODUCT_PAGES = "productPages";
+
+    private final AppCacheProperties cacheProperties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    /**
+     * Creates the application cache manager.
+     * Cache writes and evictions are deferred until the surrounding transaction commits,
+     * so a rolled back mutation never leaves its result in the cache.
+     * The product cache coalesces concurrent misses, refresh hot entries early and remember
+     * unknown IDs for a short while, so lookups of missing products do not reach the database.
+     * Categories are served by the {@link app.quantun.backend.cache.CategoryCatalog} instead.
+     *
+     * @return the cache manager
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                coalescing(buildCache(PRODUCTS, cacheProperties.getProducts()), cacheProperties.getProducts()),
+                buildCache(PRODUCT_PAGES, cacheProperties.getProductPages())
+        ));
+        cacheManager.afterPropertiesSet();
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    /**
+     * Binds the Caffeine statistics of coalescing caches, which the default binders do not recognize.
+     *
+     * @return the cache meter binder provider
+     */
+    @Bean
+    public CacheMeterBinderProvider<CoalescingCache> coalescingCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(
+                (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache(), cache.getName(), tags);
+    }
+
+    /**
+     * Wrap a cache so that concurrent misses for the same key share one load and absent keys are remembered.
+     *
+     * @param cache the cache to wrap
+     * @param spec  the settings of the cache
+     * @return the coalescing cache
+     */
+    private Cache coalescing(Cache cache, AppCacheProperties.CacheSpec spec) {
+        CoalescingCache coalescingCache = new CoalescingCache(
+                cache, spec.getMaximumSize(), spec.getExpireAfterWrite(), spec.getEarlyRefreshBeta(),
+                spec.getNegativeMaximumSize(), spec.getNegativeExpireAfterWrite());
+        meterRegistry.ifAvailable(coalescingCache::bindTo);
+        return coalescingCache;
+    }
+
+    /**
+     * Build a Caffeine cache from its settings.
+     *
+     * @param name the name of the cache
+     * @param spec the size, expiry and weigher settings
+     * @return the Spring cache wrapping the Caffeine cache
+     */
+    private CaffeineCache buildCache(String name, AppCacheProperties.CacheSpec spec) {
+        log.info("Configured cache '{}' with {}", name, spec);
+        return new CaffeineCache(name, newCaffeine(spec).build());
+    }
+
+    /**
+     * Create a Caffeine builder from cache settings.
+     * Also used by the caches that live outside the cache manager.
+     *
+     * @param spec the size, expiry and weigher settings
+     * @return the configured Caffeine builder
+     */
+    public static Caffeine<Object, Object> newCaffeine(AppCacheProperties.CacheSpec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+
+        if (spec.getWeigher() == AppCacheProperties.Weigher.ELEMENTS) {
+            builder.maximumWeight(spec.getMaximumWeight())
+                    .weigher((key, value) -> elementCount(value));
+        } else {
+            builder.maximumSize(spec.getMaximumSize());
+        }
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(spec.getExpireAfterAccess());
+        }
+        if (spec.isRecordStats()) {
+            builder.recordStats();
+        }
+        return builder;
+    }
+
+    /**
+     * Weigh a cached value by the number of elements it holds.
+     *
+     * @param value the cached value
+     * @return the weight of the value, at least one
+     */
+    private static int elementCount(Object value) {
+        if (value instanceof Slice<?> slice) {
+            return Math.max(1, slice.getNumberOfElements());
+        }
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        return 1;
+    }
 }
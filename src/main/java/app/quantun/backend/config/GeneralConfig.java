@@ -2,12 +2,14 @@ package app.quantun.backend.config;
 
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 
 @Configuration
+@EnableConfigurationProperties({AppImportProperties.class, AppStockProperties.class})
 @Slf4j
 
 public class GeneralConfig {
@@ -0,0 +1,108 @@
+package app.quantun.backend.config;
+
+import app.quantun.backend.models.entity.Category;
+import app.quantun.backend.models.entity.Product;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Configuration class for the Hibernate second-level cache.
+ * Entity and collection regions are Caffeine caches created through JCache, each bounded by
+ * its own settings. Region statistics are enabled so that they are published to Micrometer.
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class HibernateCacheConfig {
+
+    /**
+     * Default settings of the regions, overridable through {@code app.cache.regions.<region>.*}.
+     */
+    private static final Map<String, AppCacheProperties.CacheSpec> DEFAULT_REGIONS = Map.of(
+            Product.CACHE_REGION, regionSpec(50_000, Duration.ofMinutes(30)),
+            Category.CACHE_REGION, regionSpec(1_000, Duration.ofHours(1)),
+            Category.PRODUCTS_CACHE_REGION, regionSpec(1_000, Duration.ofMinutes(30))
+    );
+
+    private final AppCacheProperties cacheProperties;
+
+    /**
+     * Creates the JCache manager backing the second-level cache regions.
+     * Each application context gets its own manager so that regions are never shared between databases.
+     *
+     * @return the JCache cache manager
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        DEFAULT_REGIONS.forEach((region, defaults) -> {
+            AppCacheProperties.CacheSpec spec = cacheProperties.getRegions().getOrDefault(region, defaults);
+            cacheManager.createCache(region, toConfiguration(spec));
+            log.info("Configured second-level cache region '{}' with {}", region, spec);
+        });
+        return cacheManager;
+    }
+
+    /**
+     * Enables the second-level cache on the JPA entity manager factory.
+     *
+     * @param hibernateCacheManager the JCache manager holding the regions
+     * @return the Hibernate properties customizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create-warn");
+            // Category.products is the inverse side; evict it when Product.category changes
+            properties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+            // Required for the region hit/miss/put metrics
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    /**
+     * Convert cache settings into a Caffeine JCache configuration.
+     * Entries are stored by reference; Hibernate already stores disassembled state.
+     *
+     * @param spec the size and expiry settings
+     * @return the JCache configuration
+     */
+    private static CaffeineConfiguration<Object, Object> toConfiguration(AppCacheProperties.CacheSpec spec) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(spec.isRecordStats());
+        configuration.setMaximumSize(OptionalLong.of(spec.getMaximumSize()));
+        if (spec.getExpireAfterWrite() != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(spec.getExpireAfterWrite().toNanos()));
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            configuration.setExpireAfterAccess(OptionalLong.of(spec.getExpireAfterAccess().toNanos()));
+        }
+        return configuration;
+    }
+
+    private static AppCacheProperties.CacheSpec regionSpec(long maximumSize, Duration expireAfterWrite) {
+        return new AppCacheProperties.CacheSpec(maximumSize, 0, expireAfterWrite, null,
+                AppCacheProperties.Weigher.ENTRIES);
+    }
+}
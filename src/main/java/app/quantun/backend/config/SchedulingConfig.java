@@ -0,0 +1,12 @@
+package app.quantun.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling the scheduled maintenance tasks of the application.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
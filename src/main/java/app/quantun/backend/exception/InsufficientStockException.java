@@ -0,0 +1,16 @@
+package app.quantun.backend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a product has less stock than a reservation asks for, fewer reserved units than
+ * are released or committed, or more units leased to hot stock counters than a stock set.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,100 @@
+package app.quantun.backend.imports;
+
+import app.quantun.backend.exception.InvalidImportException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma-separated values as described by RFC 4180: quoted fields may hold commas, line breaks and
+ * doubled quotes. The first record is the header, see {@link ProductColumns}. Blank lines are skipped.
+ * Rows are numbered by record after the header.
+ */
+class CsvProductRowReader implements ProductRowReader {
+
+    private final Reader input;
+    private final ProductColumns columns;
+    private long rowNumber;
+    private boolean unterminated;
+
+    CsvProductRowReader(Reader input) throws IOException {
+        this.input = input;
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new InvalidImportException("The CSV body is empty");
+        }
+        columns = ProductColumns.of(header);
+    }
+
+    @Override
+    public ProductRow next() throws IOException {
+        List<String> fields;
+        do {
+            fields = readRecord();
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isBlank() && !unterminated);
+        rowNumber++;
+
+        if (unterminated) {
+            return ProductRow.invalid(rowNumber, "Quoted field is not terminated");
+        }
+        if (fields.size() != columns.size()) {
+            return ProductRow.invalid(rowNumber, "Expected " + columns.size() + " fields, found " + fields.size());
+        }
+        return columns.toRow(rowNumber, fields);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Read the fields of the next record.
+     *
+     * @return the fields, or {@code null} at the end of the input
+     */
+    private List<String> readRecord() throws IOException {
+        int c = input.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        unterminated = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    unterminated = true;
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (c == '"') {
+                    c = input.read();
+                    if (c != '"') {
+                        // Closing quote; the character after it is read as unquoted
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == -1 || c == '\n') {
+                fields.add(field.toString());
+                return fields;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = input.read();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package app.quantun.backend.imports;
+
+import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads newline-delimited JSON: one {@link ProductRequestDTO} object per line. Blank lines are skipped.
+ * Rows are numbered by line.
+ */
+class NdjsonProductRowReader implements ProductRowReader {
+
+    private final ObjectReader objectReader;
+    private final BufferedReader lines;
+    private long lineNumber;
+
+    NdjsonProductRowReader(ObjectReader objectReader, BufferedReader lines) {
+        this.objectReader = objectReader.forType(ProductRequestDTO.class);
+        this.lines = lines;
+    }
+
+    @Override
+    public ProductRow next() throws IOException {
+        String line;
+        do {
+            line = lines.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        try {
+            return ProductRow.of(lineNumber, objectReader.readValue(line));
+        } catch (JsonProcessingException e) {
+            return ProductRow.invalid(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+}
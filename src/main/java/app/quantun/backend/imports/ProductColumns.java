@@ -0,0 +1,97 @@
+package app.quantun.backend.imports;
+
+import app.quantun.backend.exception.InvalidImportException;
+import app.quantun.backend.models.contract.request.ProductRequestDTO;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The columns of a tabular import body, named by its header row.
+ * The columns {@code name}, {@code description}, {@code price}, {@code inStock} and {@code stock} may come
+ * in any order and case, with or without underscores; {@code name} and {@code description} are required,
+ * other columns are ignored.
+ */
+final class ProductColumns {
+
+    private static final String NAME = "name";
+    private static final String DESCRIPTION = "description";
+    private static final String PRICE = "price";
+    private static final String IN_STOCK = "instock";
+    private static final String STOCK = "stock";
+
+    private final List<String> columns;
+
+    private ProductColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Read the columns of a header row.
+     *
+     * @param header the values of the header row
+     * @return the columns
+     * @throws InvalidImportException if a required column is missing
+     */
+    static ProductColumns of(List<String> header) {
+        List<String> columns = new ArrayList<>(header.size());
+        for (String column : header) {
+            // A byte order mark may precede the first column
+            columns.add(column.replace("\uFEFF", "").replace("_", "").trim().toLowerCase(Locale.ROOT));
+        }
+        if (!columns.contains(NAME) || !columns.contains(DESCRIPTION)) {
+            throw new InvalidImportException("The header must name the columns 'name' and 'description', found "
+                    + header);
+        }
+        return new ProductColumns(columns);
+    }
+
+    /**
+     * @return the number of columns
+     */
+    int size() {
+        return columns.size();
+    }
+
+    /**
+     * Convert the values of a row to a product.
+     *
+     * @param number the number of the row
+     * @param values the values of the row, by column; missing trailing values are empty
+     * @return the row, invalid if a value cannot be converted
+     */
+    ProductRow toRow(long number, List<String> values) {
+        ProductRequestDTO product = new ProductRequestDTO();
+        for (int i = 0; i < columns.size(); i++) {
+            String value = i < values.size() ? values.get(i).trim() : "";
+            try {
+                switch (columns.get(i)) {
+                    case NAME -> product.setName(value.isEmpty() ? null : value);
+                    case DESCRIPTION -> product.setDescription(value.isEmpty() ? null : value);
+                    case PRICE -> product.setPrice(value.isEmpty() ? null : new BigDecimal(value));
+                    case IN_STOCK -> product.setInStock(parseBoolean(value));
+                    // Spreadsheets may store whole numbers with a fraction, such as 4.0
+                    case STOCK -> product.setStock(value.isEmpty() ? 0 : new BigDecimal(value).intValueExact());
+                    default -> {
+                        // Not a product field
+                    }
+                }
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                return ProductRow.invalid(number, "Invalid " + columns.get(i) + " '" + value + "'");
+            }
+        }
+        return ProductRow.of(number, product);
+    }
+
+    private static boolean parseBoolean(String value) {
+        if (value.isEmpty() || value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        throw new IllegalArgumentException(value);
+    }
+}
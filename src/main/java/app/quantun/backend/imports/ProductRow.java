@@ -0,0 +1,25 @@
+package app.quantun.backend.imports;
+
+import app.quantun.backend.models.contract.request.ProductRequestDTO;
+
+/**
+ * A row of an import body: the product it describes, or why it could not be read.
+ *
+ * @param number  the number of the row, from one
+ * @param product the product of the row, {@code null} when the row could not be read
+ * @param error   why the row could not be read, {@code null} when it was
+ */
+public record ProductRow(long number, ProductRequestDTO product, String error) {
+
+    public static ProductRow of(long number, ProductRequestDTO product) {
+        return new ProductRow(number, product, null);
+    }
+
+    public static ProductRow invalid(long number, String error) {
+        return new ProductRow(number, null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
@@ -0,0 +1,19 @@
+package app.quantun.backend.imports;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the rows of an import body one at a time, so a body of any size is imported in constant memory.
+ * A row that cannot be read is handed out with its error, and reading goes on with the next row.
+ */
+public interface ProductRowReader extends Closeable {
+
+    /**
+     * Read the next row.
+     *
+     * @return the next row, or {@code null} at the end of the body
+     * @throws IOException if the body cannot be read
+     */
+    ProductRow next() throws IOException;
+}
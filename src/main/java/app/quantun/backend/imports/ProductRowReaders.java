@@ -0,0 +1,68 @@
+package app.quantun.backend.imports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Opens the row reader matching the content type of an import body.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductRowReaders {
+
+    /**
+     * The content type of CSV bodies.
+     */
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    /**
+     * The content type of Office Open XML workbook bodies.
+     */
+    public static final String XLSX_VALUE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Open a reader over an import body.
+     * Text is decoded with the charset of the content type, UTF-8 by default. Workbooks are copied to a
+     * temporary file first, deleted when the reader is closed.
+     *
+     * @param contentType the content type of the body, NDJSON, CSV or XLSX
+     * @param body        the body
+     * @return the row reader
+     * @throws IOException if the body cannot be read
+     */
+    public ProductRowReader open(MediaType contentType, InputStream body) throws IOException {
+        if (contentType.isCompatibleWith(MediaType.parseMediaType(XLSX_VALUE))) {
+            Path file = Files.createTempFile("product-import", ".xlsx");
+            try {
+                Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return new XlsxProductRowReader(file);
+        }
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        BufferedReader text = new BufferedReader(new InputStreamReader(body, charset));
+        if (contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+            return new NdjsonProductRowReader(objectMapper.reader(), text);
+        }
+        if (contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))) {
+            return new CsvProductRowReader(text);
+        }
+        throw new IllegalArgumentException("Unsupported import content type " + contentType);
+    }
+}
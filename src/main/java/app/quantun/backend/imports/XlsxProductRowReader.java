@@ -0,0 +1,175 @@
+package app.quantun.backend.imports;
+
+import app.quantun.backend.exception.InvalidImportException;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the first sheet of an Office Open XML workbook. The first row that is not blank is the header,
+ * see {@link ProductColumns}; blank rows are skipped. Rows are numbered as in the sheet.
+ * <p>
+ * The sheet is pulled from the package one XML event at a time, so only the current row is held in memory,
+ * with the shared strings table of the workbook. The package is opened from a file, which it reads by random
+ * access, rather than from a stream, which it would inflate into memory whole.
+ */
+class XlsxProductRowReader implements ProductRowReader {
+
+    private final Path file;
+    private final OPCPackage workbook;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final InputStream sheet;
+    private final XMLStreamReader xml;
+    private final ProductColumns columns;
+    private long rowNumber;
+
+    /**
+     * Open a reader over a workbook file, which is deleted when the reader is closed.
+     */
+    XlsxProductRowReader(Path file) throws IOException {
+        this.file = file;
+        try {
+            workbook = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (InvalidFormatException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw new InvalidImportException("The XLSX body is not a workbook: " + e.getMessage());
+        }
+        try {
+            XSSFReader reader = new XSSFReader(workbook);
+            sharedStrings = new ReadOnlySharedStringsTable(workbook);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new InvalidImportException("The XLSX body has no sheet");
+            }
+            sheet = sheets.next();
+            xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(sheet);
+            List<String> header;
+            do {
+                header = readRow();
+                if (header == null) {
+                    throw new InvalidImportException("The XLSX body is empty");
+                }
+            } while (isBlank(header));
+            columns = ProductColumns.of(header);
+        } catch (OpenXML4JException | SAXException | XMLStreamException e) {
+            close();
+            throw new InvalidImportException("The XLSX body cannot be read: " + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public ProductRow next() throws IOException {
+        try {
+            List<String> values;
+            do {
+                values = readRow();
+                if (values == null) {
+                    return null;
+                }
+            } while (isBlank(values));
+            return columns.toRow(rowNumber, values);
+        } catch (XMLStreamException e) {
+            throw new IOException("The XLSX body cannot be read at row " + rowNumber, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (xml != null) {
+                xml.close();
+            }
+            if (sheet != null) {
+                sheet.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            if (workbook != null) {
+                // Read-only packages are closed without saving
+                workbook.revert();
+            }
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Read the values of the next row, by column; missing cells are empty.
+     *
+     * @return the values, or {@code null} after the last row
+     */
+    private List<String> readRow() throws XMLStreamException {
+        while (!isStart("row")) {
+            if (!xml.hasNext()) {
+                return null;
+            }
+            xml.next();
+        }
+        String reference = xml.getAttributeValue(null, "r");
+        rowNumber = reference != null ? Long.parseLong(reference) : rowNumber + 1;
+
+        List<String> values = new ArrayList<>();
+        while (xml.next() != XMLStreamConstants.END_ELEMENT || !xml.getLocalName().equals("row")) {
+            if (isStart("c")) {
+                String cell = xml.getAttributeValue(null, "r");
+                int column = cell != null ? new CellReference(cell).getCol() : values.size();
+                String value = readCell();
+                while (values.size() <= column) {
+                    values.add("");
+                }
+                values.set(column, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Read the value of the current cell as text, leaving the reader on its end.
+     */
+    private String readCell() throws XMLStreamException {
+        String type = xml.getAttributeValue(null, "t");
+        StringBuilder text = new StringBuilder();
+        while (xml.next() != XMLStreamConstants.END_ELEMENT || !xml.getLocalName().equals("c")) {
+            // The value of the cell, or the runs of its inline string
+            if (isStart("v") || isStart("t")) {
+                text.append(xml.getElementText());
+            }
+        }
+        if (type == null) {
+            return text.toString();
+        }
+        return switch (type) {
+            case "s" -> text.isEmpty() ? "" : sharedStrings.getItemAt(Integer.parseInt(text.toString())).getString();
+            case "b" -> String.valueOf("1".contentEquals(text));
+            default -> text.toString();
+        };
+    }
+
+    private boolean isStart(String localName) {
+        return xml.getEventType() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals(localName);
+    }
+
+    private static boolean isBlank(List<String> values) {
+        return values.stream().allMatch(String::isBlank);
+    }
+}
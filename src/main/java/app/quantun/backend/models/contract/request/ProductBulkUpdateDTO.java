@@ -0,0 +1,73 @@
+package app.quantun.backend.models.contract.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Data Transfer Object for bulk product updates.
+ * Selects the products of a category or a list of product IDs, and sets or scales their price and sets their stock.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdateDTO {
+
+    /**
+     * The maximum number of product IDs of an update.
+     */
+    public static final int MAX_IDS = 10_000;
+
+    /**
+     * The ID of the category whose products are updated.
+     */
+    @Positive(message = "Category ID must be positive")
+    private Long categoryId;
+
+    /**
+     * The IDs of the products updated.
+     */
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " product IDs can be updated at once")
+    private List<@NotNull(message = "Product IDs cannot be null") Long> ids;
+
+    /**
+     * The factor the price of each product is multiplied by, rounded to cents.
+     */
+    @Positive(message = "Price factor must be positive")
+    private BigDecimal priceFactor;
+
+    /**
+     * The new price of the products.
+     */
+    @Positive(message = "{product.price.positive}")
+    private BigDecimal price;
+
+    /**
+     * The new stock of the products; they are in stock when it is positive.
+     */
+    @PositiveOrZero(message = "{product.stock.positive}")
+    private Integer stock;
+
+    @JsonIgnore
+    @AssertTrue(message = "Exactly one of categoryId and ids must be provided")
+    public boolean isSelectionValid() {
+        return (categoryId != null) != (ids != null && !ids.isEmpty());
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "One of priceFactor, price and stock must be provided, and not both priceFactor and price")
+    public boolean isChangeValid() {
+        return (priceFactor != null || price != null || stock != null) && (priceFactor == null || price == null);
+    }
+}
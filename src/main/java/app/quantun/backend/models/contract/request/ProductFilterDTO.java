@@ -57,6 +57,10 @@ public class ProductFilterDTO {
 
     private Sort.Direction sortDirection = Sort.Direction.ASC;
 
+    // Cursor of the page to fetch, for keyset pagination
+    @Size(max = 512, message = "Cursor must be less than 512 characters")
+    private String cursor;
+
 
 
 
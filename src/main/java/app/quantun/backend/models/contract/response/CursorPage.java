@@ -0,0 +1,39 @@
+package app.quantun.backend.models.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for a page of results fetched by keyset (cursor) pagination.
+ * The next page is requested by passing {@link #nextCursor} back; the cursor is opaque to clients.
+ *
+ * @param <T> the type of the elements
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    /**
+     * The elements of the page.
+     */
+    private List<T> content;
+
+    /**
+     * The number of elements in the page.
+     */
+    private int size;
+
+    /**
+     * Whether more elements follow this page.
+     */
+    private boolean hasNext;
+
+    /**
+     * The cursor of the next page, or {@code null} if this is the last page.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,29 @@
+package app.quantun.backend.models.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the products fetched by a list of IDs.
+ * The products come in the order of the requested IDs; the IDs that match no product are listed apart.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchResponseDTO {
+
+    /**
+     * The products found, in the order of the requested IDs.
+     */
+    private List<ProductResponseDTO> products;
+
+    /**
+     * The requested IDs that match no product, in the order they were requested.
+     */
+    private List<Long> missingIds;
+}
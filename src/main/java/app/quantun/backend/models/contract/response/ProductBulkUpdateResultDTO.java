@@ -0,0 +1,28 @@
+package app.quantun.backend.models.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the outcome of a bulk product update.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdateResultDTO {
+
+    /**
+     * The number of products updated.
+     */
+    private long updated;
+
+    /**
+     * The requested IDs that matched no product, empty when a category was updated.
+     */
+    private List<Long> missingIds;
+}
@@ -0,0 +1,59 @@
+package app.quantun.backend.models.contract.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the outcome of a bulk product import.
+ * Rows are numbered from one: by line in NDJSON bodies, by record after the header in CSV bodies,
+ * as in the sheet in XLSX workbooks.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDTO {
+
+    /**
+     * The number of products imported.
+     */
+    private long imported;
+
+    /**
+     * The number of rows that could not be imported.
+     */
+    private long failed;
+
+    /**
+     * The first row errors, in row order.
+     */
+    private List<RowError> errors;
+
+    /**
+     * Whether more rows failed than {@link #errors} lists.
+     */
+    private boolean errorsTruncated;
+
+    /**
+     * The error of a row that could not be imported.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+
+        /**
+         * The number of the row.
+         */
+        private long row;
+
+        /**
+         * Why the row could not be imported.
+         */
+        private String message;
+    }
+}
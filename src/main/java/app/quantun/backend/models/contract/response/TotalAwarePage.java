@@ -0,0 +1,63 @@
+package app.quantun.backend.models.contract.response;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page that tells how its total was obtained.
+ * A {@link Total#CACHED} total is the memoized count of the query, dropped whenever a product is
+ * written. An {@link Total#ESTIMATED} total is a bound told by the page: one element past a full page
+ * (a lower bound), or the offset of an empty page past the end (an upper bound). The total pages derived
+ * from it are estimates as well.
+ *
+ * @param <T> the type of the elements
+ */
+public class TotalAwarePage<T> extends PageImpl<T> {
+
+    /**
+     * How the total of a page was obtained.
+     */
+    public enum Total {
+        /**
+         * Counted for the page, or told by the page itself.
+         */
+        EXACT,
+        /**
+         * Taken from the memoized count of the query.
+         */
+        CACHED,
+        /**
+         * A bound told by the page; the count was not available.
+         */
+        ESTIMATED
+    }
+
+    private final Total total;
+
+    public TotalAwarePage(List<T> content, Pageable pageable, long totalElements, Total total) {
+        super(content, pageable, totalElements);
+        this.total = total;
+    }
+
+    /**
+     * @return how the total was obtained
+     */
+    public Total getTotal() {
+        return total;
+    }
+
+    /**
+     * @return whether the total is only a bound
+     */
+    public boolean isTotalEstimated() {
+        return total == Total.ESTIMATED;
+    }
+
+    @Override
+    public <U> TotalAwarePage<U> map(Function<? super T, ? extends U> converter) {
+        return new TotalAwarePage<>(getConvertedContent(converter), getPageable(), getTotalElements(), total);
+    }
+}
@@ -20,6 +20,7 @@ public class CategoryExistsValidator implements ConstraintValidator<ValidCategor
             return true; // Skip validation if no category ID
         }
 
+        // Answered from the in-memory category catalog
         if (!categoryService.existsById(filter.getCategoryId())) {
             context.disableDefaultConstraintViolation();
             context.buildConstraintViolationWithTemplate("Category with ID " + filter.getCategoryId() + " does not exist")
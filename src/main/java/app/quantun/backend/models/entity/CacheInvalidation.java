@@ -0,0 +1,54 @@
+package app.quantun.backend.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Entity class representing an entry of the cache invalidation change-log.
+ * Each committed product or category mutation writes one row per changed entity, in the same transaction,
+ * so the other instances can evict their local copies. Rows are deleted once older than the retention.
+ */
+@Entity
+@Table(name = "cache_invalidation", indexes = @Index(name = "idx_cache_invalidation_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidation {
+
+    /**
+     * The unique identifier of the entry.
+     * Allocated in blocks so the entries of a transaction are inserted as one JDBC batch.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cache_invalidation_seq")
+    @SequenceGenerator(name = "cache_invalidation_seq", sequenceName = "cache_invalidation_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * The kind of entity that changed, see {@link app.quantun.backend.cache.InvalidationBus}.
+     */
+    @Column(name = "entity_type", nullable = false, length = 32)
+    private String entityType;
+
+    /**
+     * The ID of the entity that changed.
+     */
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    /**
+     * The instance that made the change, which has already invalidated its own caches.
+     */
+    @Column(name = "origin_node", nullable = false, length = 64)
+    private String originNode;
+
+    /**
+     * The time the entry was written.
+     */
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
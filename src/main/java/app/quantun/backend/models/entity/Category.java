@@ -1,9 +1,12 @@
 package app.quantun.backend.models.entity;
 
+import app.quantun.backend.search.SearchText;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -13,17 +16,37 @@ import java.util.List;
 
 /**
  * Entity representing a product category.
+ * Categories change rarely, so they are held in the second-level cache with a non-strict read-write strategy.
  */
 @Entity
-@Table(name = "categories")
+@Table(name = "categories", indexes = {
+        @Index(name = "idx_categories_created_at", columnList = "created_at"),
+        @Index(name = "idx_categories_updated_at", columnList = "updated_at")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = Category.CACHE_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Category {
 
+    /**
+     * The second-level cache region of the entity.
+     */
+    public static final String CACHE_REGION = "entity.category";
+
+    /**
+     * The second-level cache region of the products collection.
+     */
+    public static final String PRODUCTS_CACHE_REGION = "entity.category.products";
+
+    /**
+     * Allocated in blocks by a pooled sequence, so inserts are sent as JDBC batches.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "categories_seq")
+    @SequenceGenerator(name = "categories_seq", sequenceName = "categories_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Category name is required")
@@ -31,7 +54,22 @@ public class Category {
 
     private String description;
 
+    /**
+     * The lower-cased name, searched instead of the name.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "name_search")
+    private String nameSearch;
+
+    /**
+     * The lower-cased description, searched instead of the description.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "description_search")
+    private String descriptionSearch;
+
     @OneToMany(mappedBy = "category")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Category.PRODUCTS_CACHE_REGION)
     @JsonIgnore
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
@@ -50,4 +88,14 @@ public class Category {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    /**
+     * Write the shadow columns of the searchable text.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateSearchText() {
+        nameSearch = SearchText.normalize(name);
+        descriptionSearch = SearchText.normalize(description);
+    }
 }
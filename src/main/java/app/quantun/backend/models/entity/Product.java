@@ -3,9 +3,14 @@ package app.quantun.backend.models.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import app.quantun.backend.search.SearchText;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -15,18 +20,38 @@ import java.time.LocalDateTime;
 /**
  * Entity class representing a Product.
  * This class is mapped to the "Product" table in the database.
+ * Products are held in the second-level cache with a read-write strategy, since prices and stock change often.
+ * The indexes match the query shapes of {@link app.quantun.backend.repository.ProductRepository} and of the
+ * product filter; {@code RepositoryQueryPlanTest} checks that every repository query uses one.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_product_category_price", columnList = "category_id, price"),
+        @Index(name = "idx_product_in_stock_price", columnList = "in_stock, price"),
+        @Index(name = "idx_product_price", columnList = "price"),
+        @Index(name = "idx_product_stock", columnList = "stock"),
+        @Index(name = "idx_product_created_at", columnList = "created_at"),
+        @Index(name = "idx_product_updated_at", columnList = "updated_at")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Product.CACHE_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
 
+    /**
+     * The second-level cache region of the entity.
+     */
+    public static final String CACHE_REGION = "entity.product";
+
     /**
      * The unique identifier for the product.
+     * Allocated in blocks by a pooled sequence, so inserts are sent as JDBC batches.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -41,6 +66,20 @@ public class Product {
      */
     private String description;
 
+    /**
+     * The lower-cased name, searched instead of the name.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "name_search")
+    private String nameSearch;
+
+    /**
+     * The lower-cased description, searched instead of the description.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "description_search")
+    private String descriptionSearch;
+
     /**
      * The price of the product.
      * It must be a positive value.
@@ -54,10 +93,35 @@ public class Product {
     private boolean inStock;
 
     /**
-     * The quantity of the product in stock.
+     * The quantity of the product in stock and available to order.
      */
     private int stock;
 
+    /**
+     * The quantity held by reservations not yet committed or released, no longer part of the stock.
+     */
+    private int reserved;
+
+    /**
+     * The part of the stock leased to the in-memory counters of hot products, not available to other
+     * reservations; see {@link app.quantun.backend.stock.HotStockCounters}.
+     */
+    private int leased;
+
+    /**
+     * The units of stock leases taken back from instances that stopped renewing them. Which of them were sold is
+     * unknown, since the instance never flushed them, so they are neither stock nor reserved units, and are
+     * reconciled against the orders.
+     */
+    private int recovered;
+
+    /**
+     * The version of the row, incremented by every write, including the set-based stock and price statements,
+     * so a read-modify-write update fails rather than overwrite a change made since the product was read.
+     */
+    @Version
+    private long version;
+
 
     @ManyToOne
     @JoinColumn(name = "category_id")
@@ -76,4 +140,14 @@ public class Product {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    /**
+     * Write the shadow columns of the searchable text.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateSearchText() {
+        nameSearch = SearchText.normalize(name);
+        descriptionSearch = SearchText.normalize(description);
+    }
 }
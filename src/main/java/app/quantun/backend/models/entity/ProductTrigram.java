@@ -0,0 +1,69 @@
+package app.quantun.backend.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Entity class representing a posting of the product trigram index.
+ * Each row tells that a searchable field of a product contains a trigram; see
+ * {@link app.quantun.backend.search.SearchText}. Rows are written by
+ * {@link app.quantun.backend.search.ProductSearchIndex} whenever a product is written, and looked up by
+ * trigram to find the candidates of a substring search.
+ */
+@Entity
+@Table(name = "product_trigram", indexes = {
+        @Index(name = "idx_product_trigram_lookup", columnList = "trigram, field, product_id"),
+        @Index(name = "idx_product_trigram_product", columnList = "product_id")
+})
+@IdClass(ProductTrigram.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductTrigram {
+
+    /**
+     * The ID of the product.
+     */
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    /**
+     * The searchable field of the product.
+     */
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "field", nullable = false, length = 16)
+    private Field field;
+
+    /**
+     * The trigram, lower-cased. Sized for multibyte characters.
+     */
+    @Id
+    @Column(name = "trigram", nullable = false, length = 12)
+    private String trigram;
+
+    /**
+     * The searchable fields of a product.
+     */
+    public enum Field {
+        NAME,
+        DESCRIPTION
+    }
+
+    /**
+     * The primary key of a posting.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long productId;
+        private Field field;
+        private String trigram;
+    }
+}
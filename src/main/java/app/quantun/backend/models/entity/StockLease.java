@@ -0,0 +1,62 @@
+package app.quantun.backend.models.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Entity class representing the stock of a hot product leased to the in-memory counter of an instance.
+ * Rows are written by {@link app.quantun.backend.stock.HotStockCounters}; the quantity is also counted in
+ * {@link Product#getLeased()}. A lease that is no longer renewed is taken back by any instance.
+ */
+@Entity
+@Table(name = "stock_lease", indexes = {
+        @Index(name = "idx_stock_lease_renewed_at", columnList = "renewed_at")
+})
+@IdClass(StockLease.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLease {
+
+    /**
+     * The ID of the product.
+     */
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    /**
+     * The ID of the instance holding the lease.
+     */
+    @Id
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+
+    /**
+     * The units leased and not yet flushed as reserved.
+     */
+    @Column(nullable = false)
+    private int quantity;
+
+    /**
+     * The time the lease was last renewed, by the clock of the database.
+     */
+    @Column(name = "renewed_at", nullable = false)
+    private Instant renewedAt;
+
+    /**
+     * The primary key of a lease.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long productId;
+        private String nodeId;
+    }
+}
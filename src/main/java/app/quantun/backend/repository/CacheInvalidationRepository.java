@@ -0,0 +1,39 @@
+package app.quantun.backend.repository;
+
+import app.quantun.backend.models.entity.CacheInvalidation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository interface for the cache invalidation change-log.
+ */
+@Repository
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+
+    /**
+     * Find the entries written by other instances since the given time.
+     *
+     * @param since      the time from which entries are returned
+     * @param originNode the ID of the polling instance, whose own entries are skipped
+     * @return the entries, oldest first
+     */
+    List<CacheInvalidation> findByCreatedAtGreaterThanEqualAndOriginNodeNotOrderByIdAsc(Instant since, String originNode);
+
+    /**
+     * Delete the entries written before the given time.
+     *
+     * @param before the time before which entries are deleted
+     * @return the number of entries deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CacheInvalidation i WHERE i.createdAt < :before")
+    int deleteByCreatedAtBefore(@Param("before") Instant before);
+}
@@ -1,30 +1,48 @@
 package app.quantun.backend.repository;
 
+import app.quantun.backend.models.contract.response.CategoryResponseDTO;
 import app.quantun.backend.models.entity.Category;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 /**
  * Repository interface for managing Category entities.
  * This interface provides methods for CRUD operations and custom queries on Category entities.
+ * Query methods run in read-only transactions unless they join a running one.
  */
 @Repository
+@Transactional(readOnly = true)
 public interface CategoryRepository extends PagingAndSortingRepository<Category, Long>, JpaRepository<Category, Long>, JpaSpecificationExecutor<Category> {
 
+    /**
+     * Select clause of the projection queries: only the columns of {@link CategoryResponseDTO}.
+     */
+    String SELECT_RESPONSE = "SELECT new app.quantun.backend.models.contract.response.CategoryResponseDTO("
+            + "c.id, c.name, c.description) FROM Category c ";
+
+    /**
+     * Query of the categories whose name contains a text, ignoring case.
+     */
+    String SELECT_NAME_CONTAINING = "SELECT c FROM Category c WHERE c.nameSearch LIKE LOWER(CONCAT('%', :name, '%'))";
+
     /**
      * Find categories containing the given name.
      *
      * @param name the name to search for
      * @return a list of categories containing the given name
      */
-    List<Category> findByNameContaining(String name);
+    @Query(SELECT_NAME_CONTAINING)
+    List<Category> findByNameContaining(@Param("name") String name);
 
     /**
      * Find categories containing the given name with pagination.
@@ -33,7 +51,8 @@ public interface CategoryRepository extends PagingAndSortingRepository<Category,
      * @param pageable pagination information
      * @return a page of categories containing the given name
      */
-    Page<Category> findByNameContaining(String name, Pageable pageable);
+    @Query(SELECT_NAME_CONTAINING)
+    Page<Category> findByNameContaining(@Param("name") String name, Pageable pageable);
 
     /**
      * Find categories containing the given name with slice-based pagination.
@@ -42,5 +61,26 @@ public interface CategoryRepository extends PagingAndSortingRepository<Category,
      * @param pageable pagination information
      * @return a slice of categories containing the given name
      */
-    Slice<Category> findSliceByNameContaining(String name, Pageable pageable);
+    @Query(SELECT_NAME_CONTAINING)
+    Slice<Category> findSliceByNameContaining(@Param("name") String name, Pageable pageable);
+
+    /**
+     * Project all categories to response DTOs with pagination.
+     *
+     * @param pageable pagination information
+     * @return a page of response DTOs
+     */
+    @Query(value = SELECT_RESPONSE, countQuery = "SELECT COUNT(c) FROM Category c")
+    Page<CategoryResponseDTO> findResponsesBy(Pageable pageable);
+
+    /**
+     * Project categories containing the given name to response DTOs with pagination.
+     *
+     * @param name     the name to search for
+     * @param pageable pagination information
+     * @return a page of response DTOs of the categories containing the given name
+     */
+    @Query(value = SELECT_RESPONSE + "WHERE c.nameSearch LIKE LOWER(CONCAT('%', :name, '%'))",
+            countQuery = "SELECT COUNT(c) FROM Category c WHERE c.nameSearch LIKE LOWER(CONCAT('%', :name, '%'))")
+    Page<CategoryResponseDTO> findResponsesByNameContaining(@Param("name") String name, Pageable pageable);
 }
@@ -0,0 +1,72 @@
+package app.quantun.backend.repository;
+
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Set-based updates of the price and stock of many products.
+ * <p>
+ * The updates are plain SQL run over the connection of the current transaction: a single {@code UPDATE}
+ * for the products of a category, and one JDBC batch of single-row {@code UPDATE}s for a list of IDs, so
+ * no product is loaded. Hibernate is not told about them, so the caller evicts the updated products from its
+ * second-level cache: the products updated by ID, whose IDs are returned, or every product after a category
+ * update, whose IDs are not read back.
+ * <p>
+ * A stock set never goes below the units leased to the in-memory counters of hot products: products with more
+ * units leased are left unchanged, and found with {@code findIdsLeasedAbove}, so the caller can reject the update.
+ */
+@Transactional(propagation = Propagation.MANDATORY)
+public interface ProductBulkUpdateRepository {
+
+    /**
+     * Update the products of a category.
+     *
+     * @param categoryId the ID of the category
+     * @param change     the change of the products
+     * @return the number of products updated
+     */
+    int updateByCategoryId(Long categoryId, PriceStockChange change);
+
+    /**
+     * Update products by ID.
+     *
+     * @param ids    the IDs of the products
+     * @param change the change of the products
+     * @return the IDs of the products updated, in the order requested; IDs matching no product are left out
+     */
+    List<Long> updateByIds(List<Long> ids, PriceStockChange change);
+
+    /**
+     * Find the products of a category with more units leased than a stock.
+     *
+     * @param categoryId the ID of the category
+     * @param stock      the stock
+     * @return the IDs of the products
+     */
+    List<Long> findIdsLeasedAbove(Long categoryId, int stock);
+
+    /**
+     * Find the products, among the given ones, with more units leased than a stock.
+     *
+     * @param ids   the IDs of the products
+     * @param stock the stock
+     * @return the IDs of the products
+     */
+    List<Long> findIdsLeasedAbove(List<Long> ids, int stock);
+
+    /**
+     * A change of the price and stock of products. The products are in stock when the stock set is positive,
+     * their update timestamp is set and their version incremented.
+     *
+     * @param priceFactor the factor the price is multiplied by, rounded to cents, or {@code null}
+     * @param price       the price set, or {@code null}
+     * @param stock       the stock set, or {@code null}
+     * @param updatedAt   the update timestamp set
+     */
+    record PriceStockChange(BigDecimal priceFactor, BigDecimal price, Integer stock, LocalDateTime updatedAt) {
+    }
+}
@@ -0,0 +1,105 @@
+package app.quantun.backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link ProductBulkUpdateRepository}.
+ */
+@RequiredArgsConstructor
+class ProductBulkUpdateRepositoryImpl implements ProductBulkUpdateRepository {
+
+    /**
+     * The most values of an {@code IN} list, the limit of Oracle.
+     */
+    private static final int IN_LIMIT = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int updateByCategoryId(Long categoryId, PriceStockChange change) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = update(change, parameters) + " WHERE category_id = ?" + leaseGuard(change);
+        parameters.add(categoryId);
+        if (change.stock() != null) {
+            parameters.add(change.stock());
+        }
+        return jdbcTemplate.update(sql, parameters.toArray());
+    }
+
+    @Override
+    public List<Long> updateByIds(List<Long> ids, PriceStockChange change) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = update(change, parameters) + " WHERE id = ?" + leaseGuard(change);
+        List<Object[]> batch = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            List<Object> row = new ArrayList<>(parameters);
+            row.add(id);
+            if (change.stock() != null) {
+                row.add(change.stock());
+            }
+            batch.add(row.toArray());
+        }
+        int[] counts = jdbcTemplate.batchUpdate(sql, batch);
+        List<Long> updated = new ArrayList<>(ids.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                updated.add(ids.get(i));
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Long> findIdsLeasedAbove(Long categoryId, int stock) {
+        return jdbcTemplate.queryForList("SELECT id FROM product WHERE category_id = ? AND leased > ?", Long.class,
+                categoryId, stock);
+    }
+
+    @Override
+    public List<Long> findIdsLeasedAbove(List<Long> ids, int stock) {
+        List<Long> leased = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += IN_LIMIT) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_LIMIT, ids.size()));
+            String sql = "SELECT id FROM product WHERE leased > ? AND id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            List<Object> parameters = new ArrayList<>(chunk.size() + 1);
+            parameters.add(stock);
+            parameters.addAll(chunk);
+            leased.addAll(jdbcTemplate.queryForList(sql, Long.class, parameters.toArray()));
+        }
+        return leased;
+    }
+
+    /**
+     * The condition keeping a stock set from going below the units leased, whose parameter is the stock.
+     */
+    private static String leaseGuard(PriceStockChange change) {
+        return change.stock() != null ? " AND leased <= ?" : "";
+    }
+
+    /**
+     * The {@code UPDATE} statement of a change without its condition, adding its parameters.
+     */
+    private static String update(PriceStockChange change, List<Object> parameters) {
+        StringBuilder sql = new StringBuilder("UPDATE product SET updated_at = ?, version = version + 1");
+        parameters.add(change.updatedAt());
+        if (change.priceFactor() != null) {
+            sql.append(", price = ROUND(price * ?, 2)");
+            parameters.add(change.priceFactor());
+        } else if (change.price() != null) {
+            sql.append(", price = ?");
+            parameters.add(change.price());
+        }
+        if (change.stock() != null) {
+            sql.append(", stock = ?, in_stock = ?");
+            parameters.add(change.stock());
+            parameters.add(change.stock() > 0);
+        }
+        return sql.toString();
+    }
+}
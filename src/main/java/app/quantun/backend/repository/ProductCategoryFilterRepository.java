@@ -0,0 +1,72 @@
+package app.quantun.backend.repository;
+
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.models.entity.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+/**
+ * Queries on the products of a category with optional filters.
+ * <p>
+ * Each query holds only the predicates of the filters supplied, instead of an
+ * {@code (:x IS NULL OR ...)} predicate per filter, so every combination of filters is planned by the
+ * database on its own, with the predicates it can use an index for.
+ */
+@Transactional(readOnly = true)
+public interface ProductCategoryFilterRepository {
+
+    /**
+     * Find all products by category ID with additional filtering options.
+     *
+     * @param categoryId The ID of the category to filter by
+     * @param name       Optional name filter (case insensitive, partial match)
+     * @param minPrice   Optional minimum price filter
+     * @param maxPrice   Optional maximum price filter
+     * @param inStock    Optional in-stock status filter
+     * @param pageable   Pagination parameters
+     * @return A slice of products matching all criteria
+     */
+    Slice<Product> findProductsByCategoryWithFilters(Long categoryId, String name, BigDecimal minPrice,
+                                                     BigDecimal maxPrice, Boolean inStock, Pageable pageable);
+
+    /**
+     * Find all products by category ID with optional text search across name and description.
+     *
+     * @param categoryId The ID of the category to filter by
+     * @param searchTerm Optional search term to look for in name or description (case insensitive)
+     * @param pageable   Pagination parameters
+     * @return A slice of products matching the search criteria
+     */
+    Slice<Product> findProductsByCategoryIdWithTextSearch(Long categoryId, String searchTerm, Pageable pageable);
+
+    /**
+     * Project the products of a category to response DTOs, with the optional filters of
+     * {@link #findProductsByCategoryWithFilters}.
+     *
+     * @param categoryId the ID of the category
+     * @param name       optional name filter (case insensitive, partial match)
+     * @param minPrice   optional minimum price filter
+     * @param maxPrice   optional maximum price filter
+     * @param inStock    optional in-stock status filter
+     * @param pageable   pagination information
+     * @return a slice of response DTOs of the products matching all criteria
+     */
+    Slice<ProductResponseDTO> findResponseSliceByCategoryWithFilters(Long categoryId, String name,
+                                                                     BigDecimal minPrice, BigDecimal maxPrice,
+                                                                     Boolean inStock, Pageable pageable);
+
+    /**
+     * Project the products of a category to response DTOs, with the optional text search of
+     * {@link #findProductsByCategoryIdWithTextSearch}.
+     *
+     * @param categoryId the ID of the category
+     * @param searchTerm optional search term to look for in name or description
+     * @param pageable   pagination information
+     * @return a slice of response DTOs of the products matching the search criteria
+     */
+    Slice<ProductResponseDTO> findResponseSliceByCategoryIdWithTextSearch(Long categoryId, String searchTerm,
+                                                                          Pageable pageable);
+}
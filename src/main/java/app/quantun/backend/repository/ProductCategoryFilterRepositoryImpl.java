@@ -0,0 +1,156 @@
+package app.quantun.backend.repository;
+
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.search.SearchText;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JPQL implementation of {@link ProductCategoryFilterRepository}.
+ * <p>
+ * The JPQL of a query is written from its shape, the select clause and the set of filters supplied, once
+ * per shape. Hibernate compiles each distinct JPQL string once into its query plan cache, and the
+ * database caches one statement per shape, so both stay bounded by the number of shapes: 24 filter
+ * combinations and two text search ones, for each select clause.
+ */
+class ProductCategoryFilterRepositoryImpl implements ProductCategoryFilterRepository {
+
+    private static final String SELECT_PRODUCT = "SELECT p FROM Product p ";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Shape, String> queries = new ConcurrentHashMap<>();
+
+    @Override
+    public Slice<Product> findProductsByCategoryWithFilters(Long categoryId, String name, BigDecimal minPrice,
+                                                            BigDecimal maxPrice, Boolean inStock, Pageable pageable) {
+        return findSlice(Product.class, SELECT_PRODUCT, categoryId,
+                filters(name, minPrice, maxPrice, inStock), pageable);
+    }
+
+    @Override
+    public Slice<Product> findProductsByCategoryIdWithTextSearch(Long categoryId, String searchTerm, Pageable pageable) {
+        return findSlice(Product.class, SELECT_PRODUCT, categoryId, textSearch(searchTerm), pageable);
+    }
+
+    @Override
+    public Slice<ProductResponseDTO> findResponseSliceByCategoryWithFilters(Long categoryId, String name,
+                                                                            BigDecimal minPrice, BigDecimal maxPrice,
+                                                                            Boolean inStock, Pageable pageable) {
+        return findSlice(ProductResponseDTO.class, ProductRepository.SELECT_RESPONSE, categoryId,
+                filters(name, minPrice, maxPrice, inStock), pageable);
+    }
+
+    @Override
+    public Slice<ProductResponseDTO> findResponseSliceByCategoryIdWithTextSearch(Long categoryId, String searchTerm,
+                                                                                 Pageable pageable) {
+        return findSlice(ProductResponseDTO.class, ProductRepository.SELECT_RESPONSE, categoryId,
+                textSearch(searchTerm), pageable);
+    }
+
+    private static Map<Filter, Object> filters(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock) {
+        Map<Filter, Object> filters = new EnumMap<>(Filter.class);
+        if (StringUtils.hasText(name)) {
+            filters.put(Filter.NAME, SearchText.containsPattern(SearchText.normalize(name)));
+        }
+        if (minPrice != null) {
+            filters.put(Filter.MIN_PRICE, minPrice);
+        }
+        if (maxPrice != null) {
+            filters.put(Filter.MAX_PRICE, maxPrice);
+        }
+        if (inStock != null) {
+            filters.put(inStock ? Filter.IN_STOCK : Filter.OUT_OF_STOCK, null);
+        }
+        return filters;
+    }
+
+    private static Map<Filter, Object> textSearch(String searchTerm) {
+        Map<Filter, Object> filters = new EnumMap<>(Filter.class);
+        if (StringUtils.hasText(searchTerm)) {
+            filters.put(Filter.TEXT, SearchText.containsPattern(SearchText.normalize(searchTerm)));
+        }
+        return filters;
+    }
+
+    private <T> Slice<T> findSlice(Class<T> resultType, String select, Long categoryId, Map<Filter, Object> filters,
+                                   Pageable pageable) {
+        String jpql = queries.computeIfAbsent(new Shape(select, Set.copyOf(filters.keySet())), Shape::toJpql);
+        if (pageable.getSort().isSorted()) {
+            jpql = QueryUtils.applySorting(jpql, pageable.getSort(), "p");
+        }
+
+        TypedQuery<T> query = entityManager.createQuery(jpql, resultType)
+                .setParameter("categoryId", categoryId);
+        filters.forEach((filter, value) -> {
+            if (filter.parameter != null) {
+                query.setParameter(filter.parameter, value);
+            }
+        });
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(query.getResultList());
+        }
+        // One row past the page tells whether another page follows
+        List<T> rows = query
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    /**
+     * The optional filters, with their predicate and the parameter it binds, if any.
+     * The stock status is written as a literal, a shape of its own for each value: a bound boolean is
+     * compared to the numeric column as a boolean by H2 once the query holds a {@code LIKE}.
+     */
+    private enum Filter {
+        NAME("name", "p.nameSearch LIKE :name ESCAPE '" + SearchText.ESCAPE + "'"),
+        MIN_PRICE("minPrice", "p.price >= :minPrice"),
+        MAX_PRICE("maxPrice", "p.price <= :maxPrice"),
+        IN_STOCK(null, "p.inStock = true"),
+        OUT_OF_STOCK(null, "p.inStock = false"),
+        TEXT("searchTerm", "(p.nameSearch LIKE :searchTerm ESCAPE '" + SearchText.ESCAPE + "' "
+                + "OR p.descriptionSearch LIKE :searchTerm ESCAPE '" + SearchText.ESCAPE + "')");
+
+        private final String parameter;
+        private final String predicate;
+
+        Filter(String parameter, String predicate) {
+            this.parameter = parameter;
+            this.predicate = predicate;
+        }
+    }
+
+    /**
+     * The shape of a query: its select clause and the filters supplied.
+     */
+    private record Shape(String select, Set<Filter> filters) {
+
+        String toJpql() {
+            StringBuilder jpql = new StringBuilder(select).append("WHERE p.category.id = :categoryId");
+            // In declaration order, so the same filters always give the same JPQL
+            for (Filter filter : Filter.values()) {
+                if (filters.contains(filter)) {
+                    jpql.append(" AND ").append(filter.predicate);
+                }
+            }
+            return jpql.toString();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package app.quantun.backend.repository;
+
+import app.quantun.backend.models.entity.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Two-phase paging of products matching a specification.
+ * <p>
+ * Paging a query that fetches associations limits the joined rows rather than the products, which
+ * Hibernate can only correct by paging in memory once a collection is fetched. Instead, the page of
+ * product IDs is selected first, with the filters and sort but without any fetch, and the products of
+ * the page are then loaded with their category in a single {@code IN} query, in the order of the IDs.
+ * The count query selects no product and fetches nothing either.
+ */
+@Transactional(readOnly = true)
+public interface ProductPagingRepository {
+
+    /**
+     * Find a page of the products matching a specification, in two phases.
+     * Takes precedence over the single-query implementation of {@code JpaSpecificationExecutor}.
+     *
+     * @param specification the filter of the products; it must fetch associations only when products are selected
+     * @param pageable      pagination information
+     * @return a page of products with their category loaded
+     */
+    Page<Product> findAll(Specification<Product> specification, Pageable pageable);
+
+    /**
+     * Find a slice of the products matching a specification, in two phases, without counting them.
+     *
+     * @param specification the filter of the products; it must fetch associations only when products are selected
+     * @param pageable      pagination information
+     * @return a slice of products with their category loaded
+     */
+    Slice<Product> findSlice(Specification<Product> specification, Pageable pageable);
+}
@@ -0,0 +1,113 @@
+package app.quantun.backend.repository;
+
+import app.quantun.backend.models.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Criteria implementation of {@link ProductPagingRepository}.
+ */
+class ProductPagingRepositoryImpl implements ProductPagingRepository {
+
+    private static final String ID = "id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Product> findAll(Specification<Product> specification, Pageable pageable) {
+        List<Long> ids = findIds(specification, pageable, 0);
+        List<Product> products = ids.isEmpty() ? List.of() : fetchInOrder(ids);
+        return PageableExecutionUtils.getPage(products, pageable, () -> count(specification));
+    }
+
+    @Override
+    public Slice<Product> findSlice(Specification<Product> specification, Pageable pageable) {
+        // One ID past the page tells whether another page follows
+        List<Long> ids = findIds(specification, pageable, 1);
+        boolean hasNext = pageable.isPaged() && ids.size() > pageable.getPageSize();
+        if (hasNext) {
+            ids = ids.subList(0, pageable.getPageSize());
+        }
+        List<Product> products = ids.isEmpty() ? List.of() : fetchInOrder(ids);
+        return new SliceImpl<>(products, pageable, hasNext);
+    }
+
+    /**
+     * Phase one: the IDs of the page, filtered and sorted, without fetching anything.
+     */
+    private List<Long> findIds(Specification<Product> specification, Pageable pageable, int lookahead) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(root.get(ID));
+        applySpecification(specification, root, query, criteriaBuilder);
+
+        // The ID breaks ties, so a product never appears on two pages
+        Sort sort = pageable.getSort();
+        List<Order> orders = new ArrayList<>(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        if (sort.getOrderFor(ID) == null) {
+            orders.add(criteriaBuilder.asc(root.get(ID)));
+        }
+        query.orderBy(orders);
+
+        TypedQuery<Long> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize() + lookahead);
+        }
+        return typedQuery.getResultList();
+    }
+
+    /**
+     * Phase two: the products of the page with their category, in the order of the IDs.
+     */
+    private List<Product> fetchInOrder(List<Long> ids) {
+        Map<Long, Product> byId = entityManager.createQuery(
+                        "SELECT p FROM Product p LEFT JOIN FETCH p.category WHERE p.id IN :ids", Product.class)
+                .setParameter("ids", ids)
+                .getResultList().stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private long count(Specification<Product> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(criteriaBuilder.count(root));
+        applySpecification(specification, root, query, criteriaBuilder);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void applySpecification(Specification<Product> specification, Root<Product> root,
+                                           CriteriaQuery<Long> query, CriteriaBuilder criteriaBuilder) {
+        Predicate predicate = specification != null ? specification.toPredicate(root, query, criteriaBuilder) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
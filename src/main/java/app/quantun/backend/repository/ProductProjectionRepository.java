@@ -0,0 +1,35 @@
+package app.quantun.backend.repository;
+
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.models.entity.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Projection queries on products that take a specification, which derived and annotated queries cannot.
+ */
+@Transactional(readOnly = true)
+public interface ProductProjectionRepository {
+
+    /**
+     * Project the products matching a specification to response DTOs.
+     *
+     * @param specification the filter of the products
+     * @return the response DTOs of the matching products
+     */
+    List<ProductResponseDTO> findResponses(Specification<Product> specification);
+
+    /**
+     * Project the products matching a specification to response DTOs with slice-based pagination.
+     * Only the DTO columns are selected, and no count query runs.
+     *
+     * @param specification the filter of the products
+     * @param pageable      pagination information
+     * @return a slice of response DTOs of the matching products
+     */
+    Slice<ProductResponseDTO> findResponseSlice(Specification<Product> specification, Pageable pageable);
+}
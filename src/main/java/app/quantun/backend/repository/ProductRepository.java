@@ -1,6 +1,10 @@
 package app.quantun.backend.repository;
 
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
 import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.specification.ProductSpecification;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
@@ -8,19 +12,42 @@ import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Product entities.
  * This interface provides methods for CRUD operations and custom queries on Product entities.
+ * Name searches ignore case and are answered through the trigram index, see
+ * {@link ProductSpecification#nameContains(String)}.
+ * Query methods run in read-only transactions unless they join a running one.
  */
 @Repository
-public interface ProductRepository extends PagingAndSortingRepository<Product, Long>, JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+@Transactional(readOnly = true)
+public interface ProductRepository extends PagingAndSortingRepository<Product, Long>, JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductProjectionRepository, ProductPagingRepository, ProductCategoryFilterRepository,
+        ProductBulkUpdateRepository, ProductStockRepository {
+
+    /**
+     * Select clause of the projection queries: only the columns of {@link ProductResponseDTO}, built
+     * directly by the query, so no entity is loaded into the persistence context.
+     */
+    String SELECT_RESPONSE = "SELECT new app.quantun.backend.models.contract.response.ProductResponseDTO("
+            + "p.id, p.name, p.description, p.price, p.inStock, p.stock) FROM Product p ";
+
+    /**
+     * JDBC fetch size of the streaming queries: rows are pulled from the driver in chunks of this size,
+     * so a stream never holds more than one chunk of the result.
+     */
+    String STREAM_FETCH_SIZE = "500";
 
     /**
      * Find products containing the given name.
@@ -28,7 +55,9 @@ public interface ProductRepository extends PagingAndSortingRepository<Product, L
      * @param name the name to search for
      * @return a list of products containing the given name
      */
-    List<Product> findByNameContaining(String name);
+    default List<Product> findByNameContaining(String name) {
+        return findAll(ProductSpecification.nameContains(name));
+    }
 
     /**
      * Find products containing the given name with pagination.
@@ -37,7 +66,9 @@ public interface ProductRepository extends PagingAndSortingRepository<Product, L
      * @param pageable pagination information
      * @return a page of products containing the given name
      */
-    Page<Product> findByNameContaining(String name, Pageable pageable);
+    default Page<Product> findByNameContaining(String name, Pageable pageable) {
+        return findAll(ProductSpecification.nameContains(name), pageable);
+    }
 
     /**
      * Find products priced below a given value.
@@ -81,7 +112,9 @@ public interface ProductRepository extends PagingAndSortingRepository<Product, L
      * @param pageable pagination information
      * @return a slice of products containing the given name
      */
-    Slice<Product> findSliceByNameContaining(String name, Pageable pageable);
+    default Slice<Product> findSliceByNameContaining(String name, Pageable pageable) {
+        return findSlice(ProductSpecification.nameContains(name), pageable);
+    }
 
     /**
      * Find products priced below a given value with slice-based pagination.
@@ -99,8 +132,55 @@ public interface ProductRepository extends PagingAndSortingRepository<Product, L
      * @param pageable pagination information
      * @return a slice of products that are in stock
      */
+    @EntityGraph(attributePaths = {"category"})
     Slice<Product> findSliceByInStock(boolean inStock, Pageable pageable);
 
+    /**
+     * Find all products with slice-based pagination, without counting them.
+     *
+     * @param pageable pagination information
+     * @return a slice of products
+     */
+    Slice<Product> findSliceBy(Pageable pageable);
+
+    /**
+     * Find the products that are missing from the trigram index, or whose search text has not been
+     * written yet, in ID order.
+     *
+     * @param afterId  the ID after which products are returned
+     * @param pageable pagination information
+     * @return a slice of unindexed products
+     */
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId AND (p.nameSearch IS NULL "
+            + "OR NOT EXISTS (SELECT t FROM ProductTrigram t WHERE t.productId = p.id)) ORDER BY p.id")
+    Slice<Product> findUnindexed(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Count products containing the given name.
+     *
+     * @param name the name to search for
+     * @return the number of products containing the given name
+     */
+    default long countByNameContaining(String name) {
+        return count(ProductSpecification.nameContains(name));
+    }
+
+    /**
+     * Count products priced below a given value.
+     *
+     * @param price the maximum price
+     * @return the number of products priced below the given value
+     */
+    long countByPriceLessThan(BigDecimal price);
+
+    /**
+     * Count products by stock status.
+     *
+     * @param inStock indicates whether the product is in stock
+     * @return the number of products with the given stock status
+     */
+    long countByInStock(boolean inStock);
+
     /**
      * Find all products by category ID with Slice pagination.
      * This method uses JPQL to query the database directly.
@@ -112,31 +192,6 @@ public interface ProductRepository extends PagingAndSortingRepository<Product, L
     @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId")
     Slice<Product> findProductsByCategoryIdSliced(@Param("categoryId") Long categoryId, Pageable pageable);
 
-    /**
-     * Find all products by category ID with additional filtering options.
-     * This method uses JPQL with multiple optional filter parameters.
-     *
-     * @param categoryId The ID of the category to filter by
-     * @param name       Optional name filter (case insensitive, partial match)
-     * @param minPrice   Optional minimum price filter
-     * @param maxPrice   Optional maximum price filter
-     * @param inStock    Optional in-stock status filter
-     * @param pageable   Pagination parameters
-     * @return A slice of products matching all criteria
-     */
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId " +
-            "AND (:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) " +
-            "AND (:minPrice IS NULL OR p.price >= :minPrice) " +
-            "AND (:maxPrice IS NULL OR p.price <= :maxPrice) " +
-            "AND (:inStock IS NULL OR p.inStock = :inStock)")
-    Slice<Product> findProductsByCategoryWithFilters(
-            @Param("categoryId") Long categoryId,
-            @Param("name") String name,
-            @Param("minPrice") BigDecimal minPrice,
-            @Param("maxPrice") BigDecimal maxPrice,
-            @Param("inStock") Boolean inStock,
-            Pageable pageable);
-
     /**
      * Find all products by category ID with eager loading of the category.
      * This query uses JOIN FETCH to reduce the N+1 query problem.
@@ -159,24 +214,138 @@ public interface ProductRepository extends PagingAndSortingRepository<Product, L
     @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId ORDER BY p.inStock DESC")
     Slice<Product> findProductsByCategoryIdOrderByStockStatus(@Param("categoryId") Long categoryId, Pageable pageable);
 
+    //@EntityGraph(attributePaths = {"category"})
+    //@Query("SELECT p FROM Product p") // Adding a base query
+    //Slice<Product> findAllWithCategory(Specification<Product> specification, Pageable pageable);
+
     /**
-     * Find all products by category ID with optional text search across name and description.
-     * This demonstrates using OR conditions in JPQL.
+     * Project all products to response DTOs.
      *
-     * @param categoryId The ID of the category to filter by
-     * @param searchTerm Optional search term to look for in name or description
-     * @param pageable   Pagination parameters
-     * @return A slice of products matching the search criteria
+     * @return the response DTOs of all products
      */
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId " +
-            "AND (:searchTerm IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-            "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Slice<Product> findProductsByCategoryIdWithTextSearch(
-            @Param("categoryId") Long categoryId,
-            @Param("searchTerm") String searchTerm,
-            Pageable pageable);
+    @Query(SELECT_RESPONSE)
+    List<ProductResponseDTO> findAllResponses();
 
-    //@EntityGraph(attributePaths = {"category"})
-    //@Query("SELECT p FROM Product p") // Adding a base query
-    //Slice<Product> findAllWithCategory(Specification<Product> specification, Pageable pageable);
+    /**
+     * Project the products with the given IDs to response DTOs, in no particular order.
+     * The IN list is padded to the next power of two, see {@code hibernate.query.in_clause_parameter_padding},
+     * so batches of different sizes share a few statements.
+     *
+     * @param ids the IDs of the products, at most 1000
+     * @return the response DTOs of the products found
+     */
+    @Query(SELECT_RESPONSE + "WHERE p.id IN :ids")
+    List<ProductResponseDTO> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Project products containing the given name to response DTOs.
+     *
+     * @param name the name to search for
+     * @return the response DTOs of the products containing the given name
+     */
+    default List<ProductResponseDTO> findResponsesByNameContaining(String name) {
+        return findResponses(ProductSpecification.nameContains(name));
+    }
+
+    /**
+     * Stream all products as response DTOs.
+     * The stream must be consumed and closed within a transaction.
+     *
+     * @return a stream of the response DTOs of all products
+     */
+    @Query(SELECT_RESPONSE)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<ProductResponseDTO> streamAllResponses();
+
+    /**
+     * Stream products priced below a given value as response DTOs.
+     * The stream must be consumed and closed within a transaction.
+     *
+     * @param price the maximum price
+     * @return a stream of the response DTOs of the products priced below the given value
+     */
+    @Query(SELECT_RESPONSE + "WHERE p.price < :price")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<ProductResponseDTO> streamResponsesByPriceLessThan(@Param("price") BigDecimal price);
+
+    /**
+     * Stream products by stock status as response DTOs.
+     * The stream must be consumed and closed within a transaction.
+     *
+     * @param inStock indicates whether the product is in stock
+     * @return a stream of the response DTOs of the products with the given stock status
+     */
+    @Query(SELECT_RESPONSE + "WHERE p.inStock = :inStock")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<ProductResponseDTO> streamResponsesByInStock(@Param("inStock") boolean inStock);
+
+    /**
+     * Project all products to response DTOs with slice-based pagination.
+     *
+     * @param pageable pagination information
+     * @return a slice of response DTOs
+     */
+    @Query(SELECT_RESPONSE)
+    Slice<ProductResponseDTO> findResponseSliceBy(Pageable pageable);
+
+    /**
+     * Project products containing the given name to response DTOs with slice-based pagination.
+     *
+     * @param name     the name to search for
+     * @param pageable pagination information
+     * @return a slice of response DTOs of the products containing the given name
+     */
+    default Slice<ProductResponseDTO> findResponseSliceByNameContaining(String name, Pageable pageable) {
+        return findResponseSlice(ProductSpecification.nameContains(name), pageable);
+    }
+
+    /**
+     * Project products priced below a given value to response DTOs with slice-based pagination.
+     *
+     * @param price    the maximum price
+     * @param pageable pagination information
+     * @return a slice of response DTOs of the products priced below the given value
+     */
+    @Query(SELECT_RESPONSE + "WHERE p.price < :price")
+    Slice<ProductResponseDTO> findResponseSliceByPriceLessThan(@Param("price") BigDecimal price, Pageable pageable);
+
+    /**
+     * Project products by stock status to response DTOs with slice-based pagination.
+     *
+     * @param inStock  indicates whether the product is in stock
+     * @param pageable pagination information
+     * @return a slice of response DTOs of the products with the given stock status
+     */
+    @Query(SELECT_RESPONSE + "WHERE p.inStock = :inStock")
+    Slice<ProductResponseDTO> findResponseSliceByInStock(@Param("inStock") boolean inStock, Pageable pageable);
+
+    /**
+     * Project the products of a category to response DTOs.
+     *
+     * @param categoryId the ID of the category
+     * @return the response DTOs of the products in the category
+     */
+    @Query(SELECT_RESPONSE + "WHERE p.category.id = :categoryId")
+    List<ProductResponseDTO> findResponsesByCategoryId(@Param("categoryId") Long categoryId);
+
+    /**
+     * Stream the products of a category as response DTOs.
+     * The stream must be consumed and closed within a transaction.
+     *
+     * @param categoryId the ID of the category
+     * @return a stream of the response DTOs of the products in the category
+     */
+    @Query(SELECT_RESPONSE + "WHERE p.category.id = :categoryId")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<ProductResponseDTO> streamResponsesByCategoryId(@Param("categoryId") Long categoryId);
+
+    /**
+     * Project the products of a category to response DTOs with slice-based pagination.
+     *
+     * @param categoryId the ID of the category
+     * @param pageable   pagination information
+     * @return a slice of response DTOs of the products in the category
+     */
+    @Query(SELECT_RESPONSE + "WHERE p.category.id = :categoryId")
+    Slice<ProductResponseDTO> findResponseSliceByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
 }
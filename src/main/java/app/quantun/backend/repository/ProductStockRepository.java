@@ -0,0 +1,55 @@
+package app.quantun.backend.repository;
+
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Conditional updates of the stock of a single product.
+ * <p>
+ * Each update is one {@code UPDATE} statement whose condition checks the quantity it takes, so concurrent
+ * reservations neither oversell nor lose updates, and the row is locked only while the statement runs and its
+ * transaction commits. Each comes in two forms, which together cover every product that can be updated, split
+ * on whether the product goes in or out of stock, so the caller knows it without reading the product.
+ * The version of the product is incremented and, when the stock changes, its update timestamp set.
+ * Hibernate is not told about the updates, so the caller evicts the product from its second-level cache.
+ * <p>
+ * Stock leased to the in-memory counters of hot products is not available to reservations, but keeps the
+ * product in stock.
+ */
+@Transactional(propagation = Propagation.MANDATORY)
+public interface ProductStockRepository {
+
+    /**
+     * Move a quantity from the stock of a product to its reserved units.
+     *
+     * @param id        the ID of the product
+     * @param quantity  the quantity to reserve
+     * @param exhaust   whether to update the product only if the quantity is all of its stock not leased, rather
+     *                  than only if it is less
+     * @param updatedAt the update timestamp set
+     * @return the number of products updated, zero or one
+     */
+    int reserveStock(Long id, int quantity, boolean exhaust, LocalDateTime updatedAt);
+
+    /**
+     * Move a quantity from the reserved units of a product back to its stock.
+     *
+     * @param id        the ID of the product
+     * @param quantity  the quantity to release, at most the reserved units
+     * @param restock   whether to update the product only if it is out of stock, rather than only if it is not
+     * @param updatedAt the update timestamp set
+     * @return the number of products updated, zero or one
+     */
+    int releaseStock(Long id, int quantity, boolean restock, LocalDateTime updatedAt);
+
+    /**
+     * Remove a quantity from the reserved units of a product, once the order holding it is completed.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to commit, at most the reserved units
+     * @return the number of products updated, zero or one
+     */
+    int commitStock(Long id, int quantity);
+}
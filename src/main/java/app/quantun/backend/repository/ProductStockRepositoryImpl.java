@@ -0,0 +1,42 @@
+package app.quantun.backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * JDBC implementation of {@link ProductStockRepository}.
+ */
+@RequiredArgsConstructor
+class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final String RESERVE = "UPDATE product SET stock = stock - ?, reserved = reserved + ?, "
+            + "in_stock = CASE WHEN leased > 0 THEN TRUE ELSE ? END, updated_at = ?, version = version + 1 "
+            + "WHERE id = ? AND stock - leased ";
+
+    private static final String RELEASE = "UPDATE product SET stock = stock + ?, reserved = reserved - ?, "
+            + "in_stock = ?, updated_at = ?, version = version + 1 WHERE id = ? AND reserved >= ? AND stock ";
+
+    private static final String COMMIT = "UPDATE product SET reserved = reserved - ?, version = version + 1 "
+            + "WHERE id = ? AND reserved >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int reserveStock(Long id, int quantity, boolean exhaust, LocalDateTime updatedAt) {
+        return jdbcTemplate.update(RESERVE + (exhaust ? "= ?" : "> ?"),
+                quantity, quantity, !exhaust, updatedAt, id, quantity);
+    }
+
+    @Override
+    public int releaseStock(Long id, int quantity, boolean restock, LocalDateTime updatedAt) {
+        return jdbcTemplate.update(RELEASE + (restock ? "= 0" : "> 0"),
+                quantity, quantity, true, updatedAt, id, quantity);
+    }
+
+    @Override
+    public int commitStock(Long id, int quantity) {
+        return jdbcTemplate.update(COMMIT, quantity, id, quantity);
+    }
+}
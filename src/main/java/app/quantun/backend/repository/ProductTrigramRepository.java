@@ -0,0 +1,27 @@
+package app.quantun.backend.repository;
+
+import app.quantun.backend.models.entity.ProductTrigram;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * Repository interface for the product trigram index.
+ */
+@Repository
+public interface ProductTrigramRepository extends JpaRepository<ProductTrigram, ProductTrigram.Key> {
+
+    /**
+     * Delete the postings of the given products.
+     *
+     * @param productIds the IDs of the products
+     * @return the number of postings deleted
+     */
+    @Modifying
+    @Query("DELETE FROM ProductTrigram t WHERE t.productId IN :productIds")
+    int deleteByProductIdIn(@Param("productIds") Collection<Long> productIds);
+}
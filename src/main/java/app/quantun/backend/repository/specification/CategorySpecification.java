@@ -2,6 +2,7 @@ package app.quantun.backend.repository.specification;
 
 import app.quantun.backend.models.contract.request.CategoryFilterDTO;
 import app.quantun.backend.models.entity.Category;
+import app.quantun.backend.search.SearchText;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Predicate;
@@ -31,16 +32,18 @@ public class CategorySpecification {
             // Filter by name
             if (StringUtils.hasText(filter.getName())) {
                 predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("name")),
-                        "%" + filter.getName().toLowerCase() + "%"
+                        root.get("nameSearch"),
+                        SearchText.containsPattern(SearchText.normalize(filter.getName())),
+                        SearchText.ESCAPE
                 ));
             }
 
             // Filter by description
             if (StringUtils.hasText(filter.getDescription())) {
                 predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("description")),
-                        "%" + filter.getDescription().toLowerCase() + "%"
+                        root.get("descriptionSearch"),
+                        SearchText.containsPattern(SearchText.normalize(filter.getDescription())),
+                        SearchText.ESCAPE
                 ));
             }
 
@@ -2,12 +2,16 @@ package app.quantun.backend.repository.specification;
 
 import app.quantun.backend.models.contract.request.ProductFilterDTO;
 import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.models.entity.ProductTrigram;
+import app.quantun.backend.search.ProductSearchIndex;
+import app.quantun.backend.search.SearchText;
 import jakarta.persistence.criteria.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Specification class for Product entities.
@@ -17,32 +21,34 @@ public class ProductSpecification {
 
     /**
      * Creates a specification for filtering products based on the provided filter criteria.
+     * Name and description filters are looked up in the trigram index of the given search index.
      *
-     * @param filter the filter criteria
+     * @param filter      the filter criteria
+     * @param searchIndex the product search index
      * @return a specification for filtering products
      */
-    public static Specification<Product> getProductSpecification(ProductFilterDTO filter) {
+    public static Specification<Product> getProductSpecification(ProductFilterDTO filter, ProductSearchIndex searchIndex) {
+        Specification<Product> nameContains = StringUtils.hasText(filter.getName())
+                ? searchIndex.nameContains(filter.getName()) : null;
+        Specification<Product> descriptionContains = StringUtils.hasText(filter.getDescription())
+                ? searchIndex.descriptionContains(filter.getDescription()) : null;
         return (Root<Product> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) -> {
             // THIS IS MANDATORY TO AVOID N+1 QUERIES
-
-            root.fetch("category", JoinType.LEFT);
+            // (but only when products are selected; counts, ID pages and projections have nothing to fetch into)
+            if (Product.class.equals(query.getResultType())) {
+                root.fetch("category", JoinType.LEFT);
+            }
 
             List<Predicate> predicates = new ArrayList<>();
 
             // Filter by name
-            if (StringUtils.hasText(filter.getName())) {
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("name")),
-                        "%" + filter.getName().toLowerCase() + "%"
-                ));
+            if (nameContains != null) {
+                predicates.add(nameContains.toPredicate(root, query, criteriaBuilder));
             }
 
             // Filter by description
-            if (StringUtils.hasText(filter.getDescription())) {
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("description")),
-                        "%" + filter.getDescription().toLowerCase() + "%"
-                ));
+            if (descriptionContains != null) {
+                predicates.add(descriptionContains.toPredicate(root, query, criteriaBuilder));
             }
 
             // Filter by category
@@ -117,4 +123,48 @@ public class ProductSpecification {
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a specification for products whose name contains the given text, ignoring case.
+     * Every trigram of the text is looked up; {@link ProductSearchIndex#nameContains(String)} looks up
+     * only the most selective ones.
+     *
+     * @param name the text to search for
+     * @return a specification for searching products by name
+     */
+    public static Specification<Product> nameContains(String name) {
+        return textContains(ProductTrigram.Field.NAME, name, SearchText.trigrams(SearchText.normalize(name)));
+    }
+
+    /**
+     * Creates a specification for products whose field contains the given text, ignoring case.
+     * <p>
+     * The products holding the given trigrams are looked up in the trigram index first, and the
+     * lower-cased shadow column of the field is then matched with {@code LIKE}, which rules out the
+     * products where the trigrams are not adjacent. Any trigrams of the text will do, since every match
+     * holds all of them; with no trigram, as for texts shorter than three characters, the shadow column
+     * is matched alone.
+     *
+     * @param field          the field to search
+     * @param text           the text to search for
+     * @param lookupTrigrams the trigrams of the text to look up in the index
+     * @return a specification for searching products by the field
+     */
+    public static Specification<Product> textContains(ProductTrigram.Field field, String text, Set<String> lookupTrigrams) {
+        String pattern = SearchText.containsPattern(SearchText.normalize(text));
+        String column = field == ProductTrigram.Field.NAME ? "nameSearch" : "descriptionSearch";
+        return (root, query, criteriaBuilder) -> {
+            Predicate like = criteriaBuilder.like(root.get(column), pattern, SearchText.ESCAPE);
+            if (lookupTrigrams.isEmpty()) {
+                return like;
+            }
+            Subquery<Long> candidates = query.subquery(Long.class);
+            Root<ProductTrigram> posting = candidates.from(ProductTrigram.class);
+            candidates.select(posting.get("productId"))
+                    .where(posting.get("trigram").in(lookupTrigrams), criteriaBuilder.equal(posting.get("field"), field))
+                    .groupBy(posting.get("productId"))
+                    .having(criteriaBuilder.equal(criteriaBuilder.count(posting), (long) lookupTrigrams.size()));
+            return criteriaBuilder.and(root.get("id").in(candidates), like);
+        };
+    }
+}
@@ -3,6 +3,7 @@ package app.quantun.backend.rest;
 import app.quantun.backend.models.contract.request.CategoryFilterDTO;
 import app.quantun.backend.models.contract.request.CategoryRequestDTO;
 import app.quantun.backend.models.contract.response.CategoryResponseDTO;
+import app.quantun.backend.models.contract.response.CursorPage;
 import app.quantun.backend.models.contract.response.ProductResponseDTO;
 import app.quantun.backend.service.CategoryService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +13,8 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
@@ -19,6 +22,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -34,6 +38,7 @@ import java.util.List;
 
 public class CategoryRestController {
     private final CategoryService categoryService;
+    private final JsonArrayWriter jsonArrayWriter;
 
     /**
      * Retrieve a list of all categories.
@@ -233,7 +238,7 @@ public class CategoryRestController {
      * Get all products in a specific category.
      *
      * @param id the ID of the category
-     * @return a list of ProductResponseDTO
+     * @return a streamed JSON array of ProductResponseDTO
      */
     @GetMapping("/{id}/products")
     @Operation(summary = "Get products by category",
@@ -244,10 +249,14 @@ public class CategoryRestController {
                                     schema = @Schema(implementation = ProductResponseDTO.class))),
                     @ApiResponse(responseCode = "404", description = "Category not found")
             })
-    public ResponseEntity<List<ProductResponseDTO>> getProductsByCategory(
+    public ResponseEntity<StreamingResponseBody> getProductsByCategory(
             @Parameter(description = "Category ID", example = "1")
             @PathVariable Long id) {
-        return ResponseEntity.ok(categoryService.getProductsByCategory(id));
+        // Checked up front: once the body streams, the status can no longer change
+        if (categoryService.getCategoryById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return jsonArrayWriter.write(consumer -> categoryService.streamProductsByCategory(id, consumer));
     }
 
     /**
@@ -287,6 +296,43 @@ public class CategoryRestController {
         return ResponseEntity.ok(categoryService.getProductsByCategoryPaged(id, pageable));
     }
 
+    /**
+     * Get the products in a specific category by keyset (cursor) pagination.
+     * Unlike offset pagination, every page costs the same however deep it is.
+     *
+     * @param id        the ID of the category
+     * @param cursor    the cursor returned with the previous page, omitted for the first page
+     * @param size      the page size
+     * @param sort      the field to sort by
+     * @param direction the sort direction
+     * @return a page of ProductResponseDTO with the cursor of the next page
+     */
+    @GetMapping("/{id}/products/cursor")
+    @Operation(summary = "Get products by category with cursor pagination",
+            description = "Retrieve the products in a specific category page by page, following the cursor of the previous page",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = CursorPage.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor or sort field"),
+                    @ApiResponse(responseCode = "404", description = "Category not found")
+            })
+    public ResponseEntity<CursorPage<ProductResponseDTO>> getProductsByCategoryCursor(
+            @Parameter(description = "Category ID", example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Cursor of the page, as returned with the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size", example = "10")
+            @RequestParam(defaultValue = "10") @Min(1) @Max(100) int size,
+            @Parameter(description = "Sort field (id, name, price, stock or createdAt)", example = "name")
+            @RequestParam(defaultValue = "id") String sort,
+            @Parameter(description = "Sort direction (ASC or DESC)", example = "ASC")
+            @RequestParam(defaultValue = "ASC") String direction) {
+
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return ResponseEntity.ok(categoryService.getProductsByCategoryCursor(id, cursor, size, sort, sortDirection));
+    }
+
     /**
      * Filter categories using criteria with pagination.
      *
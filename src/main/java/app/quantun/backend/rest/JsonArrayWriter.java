@@ -0,0 +1,53 @@
+package app.quantun.backend.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes the values handed out by a source as a JSON array, straight to the response body.
+ * <p>
+ * Each value is serialized as soon as the source hands it out, so a list endpoint takes the same memory
+ * whatever the size of its result. The body is written after the handler returns, on the MVC async
+ * executor, so the source must run its own transaction, as the streaming service methods do.
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonArrayWriter {
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Create a response streaming the values of a source as a JSON array.
+     *
+     * @param source hands every value to the consumer it is given
+     * @param <T>    the type of the values
+     * @return the response, whose body runs the source
+     */
+    public <T> ResponseEntity<StreamingResponseBody> write(Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                // The container closes the response stream
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                source.accept(value -> {
+                    try {
+                        generator.writeObject(value);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
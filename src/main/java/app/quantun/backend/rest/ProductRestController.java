@@ -1,8 +1,17 @@
 package app.quantun.backend.rest;
 
+import app.quantun.backend.cache.ProductJsonCache;
+import app.quantun.backend.imports.ProductRowReader;
+import app.quantun.backend.imports.ProductRowReaders;
+import app.quantun.backend.models.contract.request.ProductBulkUpdateDTO;
 import app.quantun.backend.models.contract.request.ProductFilterDTO;
 import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.CursorPage;
+import app.quantun.backend.models.contract.response.ProductBatchResponseDTO;
+import app.quantun.backend.models.contract.response.ProductBulkUpdateResultDTO;
+import app.quantun.backend.models.contract.response.ProductImportResultDTO;
 import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.service.ProductImportService;
 import app.quantun.backend.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,16 +20,26 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.*;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 /**
  * Controller class for managing products.
@@ -34,11 +53,15 @@ import java.util.List;
 
 public class ProductRestController {
     private final ProductService productService;
+    private final ProductJsonCache productJsonCache;
+    private final JsonArrayWriter jsonArrayWriter;
+    private final ProductImportService productImportService;
+    private final ProductRowReaders productRowReaders;
 
     /**
-     * Retrieve a list of all products.
+     * Retrieve a list of all products, streamed as it is read.
      *
-     * @return a list of ProductResponseDTO
+     * @return a streamed JSON array of ProductResponseDTO
      */
     @GetMapping
     @Operation(summary = "Get all products",
@@ -49,8 +72,8 @@ public class ProductRestController {
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = ProductResponseDTO.class)))
             })
-    public ResponseEntity<List<ProductResponseDTO>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<StreamingResponseBody> getAllProducts() {
+        return jsonArrayWriter.write(productService::streamAllProducts);
     }
 
     /**
@@ -87,11 +110,72 @@ public class ProductRestController {
         return ResponseEntity.ok(productService.getAllProductsPaged(pageable));
     }
 
+    /**
+     * Retrieve products by keyset (cursor) pagination.
+     * Unlike offset pagination, every page costs the same however deep it is.
+     *
+     * @param cursor    the cursor returned with the previous page, omitted for the first page
+     * @param size      the page size
+     * @param sort      the field to sort by
+     * @param direction the sort direction
+     * @return a page of ProductResponseDTO with the cursor of the next page
+     */
+    @GetMapping("/cursor")
+    @Operation(summary = "Get all products with cursor pagination",
+            description = "Retrieve products page by page, following the cursor of the previous page",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Successfully retrieved products",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = CursorPage.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor or sort field")
+            })
+    public ResponseEntity<CursorPage<ProductResponseDTO>> getAllProductsByCursor(
+            @Parameter(description = "Cursor of the page, as returned with the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size", example = "10")
+            @RequestParam(defaultValue = "10") @Min(1) @Max(100) int size,
+            @Parameter(description = "Sort field (id, name, price, stock or createdAt)", example = "name")
+            @RequestParam(defaultValue = "id") String sort,
+            @Parameter(description = "Sort direction (ASC or DESC)", example = "ASC")
+            @RequestParam(defaultValue = "ASC") String direction) {
+
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return ResponseEntity.ok(productService.getAllProductsByCursor(cursor, size, sort, sortDirection));
+    }
+
+    /**
+     * Retrieve products by a list of IDs in one call.
+     * The products come in the order of the IDs; the IDs that match no product are listed apart.
+     *
+     * @param ids the IDs of the products
+     * @return the products found and the missing IDs
+     */
+    @GetMapping("/batch")
+    @Operation(summary = "Get products by IDs",
+            description = "Retrieve up to " + ProductService.MAX_BATCH_SIZE + " products by ID in one call, "
+                    + "in the order of the IDs, with the IDs that match no product",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = ProductBatchResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "No IDs, or too many IDs")
+            })
+    public ResponseEntity<ProductBatchResponseDTO> getProductsByIds(
+            @Parameter(description = "Comma-separated product IDs", example = "1,2,3")
+            @RequestParam @NotEmpty @Size(max = ProductService.MAX_BATCH_SIZE) List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
     /**
      * Retrieve a specific product by its ID.
+     * When the product JSON cache is enabled, the product is written from its pre-serialized JSON
+     * (gzip-encoded if the client accepts it) with an ETag, so unchanged products answer
+     * {@code If-None-Match} with 304.
      *
-     * @param id the ID of the product
-     * @return the ProductResponseDTO
+     * @param id             the ID of the product
+     * @param acceptEncoding the Accept-Encoding header of the request
+     * @return the ProductResponseDTO, or its encoded JSON
      */
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID",
@@ -102,12 +186,66 @@ public class ProductRestController {
                                     schema = @Schema(implementation = ProductResponseDTO.class))),
                     @ApiResponse(responseCode = "404", description = "Product not found")
             })
-    public ResponseEntity<ProductResponseDTO> getProductById(
+    public ResponseEntity<?> getProductById(
             @Parameter(description = "Product ID", example = "1")
-            @PathVariable Long id) {
-        return productService.getProductById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+            @PathVariable Long id,
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        Optional<ProductResponseDTO> product = productService.getProductById(id);
+        if (product.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!productJsonCache.isEnabled()) {
+            return ResponseEntity.ok(product.get());
+        }
+
+        ProductJsonCache.EncodedProduct encoded = productJsonCache.encode(product.get());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(encoded.etag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoded.gzip() != null && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(encoded.gzip());
+        }
+        return response.body(encoded.json());
+    }
+
+    /**
+     * Whether an Accept-Encoding header accepts gzip: {@code gzip} or {@code x-gzip} is listed with a non-zero
+     * weight, or neither is listed and {@code *} is, with a non-zero weight. A weight of zero, or one that cannot
+     * be read, refuses the coding.
+     *
+     * @param acceptEncoding the Accept-Encoding header, or {@code null} if the request has none
+     * @return whether the response may be gzip-encoded
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        boolean any = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double weight = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        weight = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException ex) {
+                        weight = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                // Listed twice, a refusal wins
+                gzip = (gzip == null || gzip) && weight > 0;
+            } else if (coding.equals("*")) {
+                any = weight > 0;
+            }
+        }
+        return gzip != null ? gzip : any;
     }
 
     /**
@@ -131,6 +269,37 @@ public class ProductRestController {
                 .body(productService.createProduct(productRequestDTO));
     }
 
+    /**
+     * Import products in bulk from a streamed NDJSON or CSV body, or from an XLSX workbook.
+     * Rows are inserted in chunks, each committed on its own; rows that cannot be imported are reported
+     * with their row number and skipped.
+     *
+     * @param contentType the content type of the body
+     * @param body        the body, read row by row
+     * @return the number of products imported and the row errors
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ProductRowReaders.TEXT_CSV_VALUE,
+            ProductRowReaders.XLSX_VALUE})
+    @Operation(summary = "Import products",
+            description = "Import products from newline-delimited JSON, one product per line, or from CSV or the "
+                    + "first sheet of an XLSX workbook with a header naming the columns name, description, price, "
+                    + "inStock and stock",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Import completed, possibly with row errors",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = ProductImportResultDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "The body cannot be read, such as a CSV body or workbook without a usable header")
+            })
+    public ResponseEntity<ProductImportResultDTO> importProducts(
+            @Parameter(hidden = true)
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(hidden = true) InputStream body) throws IOException {
+        try (ProductRowReader rows = productRowReaders.open(MediaType.parseMediaType(contentType), body)) {
+            return ResponseEntity.ok(productImportService.importProducts(rows));
+        }
+    }
+
     /**
      * Update details of an existing product.
      *
@@ -154,6 +323,100 @@ public class ProductRestController {
         return ResponseEntity.ok(productService.updateProduct(id, productRequestDTO));
     }
 
+    /**
+     * Update the price and stock of the products of a category or of a list of IDs at once.
+     *
+     * @param request the products to update and their change
+     * @return the number of products updated and the requested IDs that match no product
+     */
+    @PatchMapping("/bulk")
+    @Operation(summary = "Update products in bulk",
+            description = "Scale or set the price and set the stock of the products of a category, or of up to "
+                    + ProductBulkUpdateDTO.MAX_IDS + " products by ID; products are in stock when their stock is positive",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Products updated",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = ProductBulkUpdateResultDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid selection or change")
+            })
+    public ResponseEntity<ProductBulkUpdateResultDTO> bulkUpdateProducts(
+            @Parameter(description = "Products to update and their change", required = true)
+            @Valid @RequestBody ProductBulkUpdateDTO request) {
+        return ResponseEntity.ok(productService.bulkUpdateProducts(request));
+    }
+
+    /**
+     * Reserve stock of a product for a checkout.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to reserve
+     * @return a ResponseEntity with no content
+     */
+    @PostMapping("/{id}/stock/reserve")
+    @Operation(summary = "Reserve stock",
+            description = "Take a quantity out of the stock available to order, failing rather than overselling",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Stock reserved"),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "409", description = "Not enough stock")
+            })
+    public ResponseEntity<Void> reserveStock(
+            @Parameter(description = "Product ID", example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Quantity to reserve", example = "1")
+            @RequestParam @Min(1) int quantity) {
+        productService.reserveStock(id, quantity);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Return reserved stock of a product, such as when a checkout is abandoned.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to release
+     * @return a ResponseEntity with no content
+     */
+    @PostMapping("/{id}/stock/release")
+    @Operation(summary = "Release reserved stock",
+            description = "Return a reserved quantity to the stock available to order",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Stock released"),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "409", description = "Not enough reserved units")
+            })
+    public ResponseEntity<Void> releaseStock(
+            @Parameter(description = "Product ID", example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Quantity to release", example = "1")
+            @RequestParam @Min(1) int quantity) {
+        productService.releaseStock(id, quantity);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Remove reserved stock of a product for good, once its order is completed.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to commit
+     * @return a ResponseEntity with no content
+     */
+    @PostMapping("/{id}/stock/commit")
+    @Operation(summary = "Commit reserved stock",
+            description = "Remove a reserved quantity for good once its order is completed",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Stock committed"),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "409", description = "Not enough reserved units")
+            })
+    public ResponseEntity<Void> commitStock(
+            @Parameter(description = "Product ID", example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Quantity to commit", example = "1")
+            @RequestParam @Min(1) int quantity) {
+        productService.commitStock(id, quantity);
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Remove a product from the system.
      *
@@ -233,7 +496,7 @@ public class ProductRestController {
      * Retrieve products priced below a given value.
      *
      * @param price the maximum price
-     * @return a list of ProductResponseDTO
+     * @return a streamed JSON array of ProductResponseDTO
      */
     @GetMapping("/under-price")
     @Operation(summary = "Get products under a specific price",
@@ -243,10 +506,10 @@ public class ProductRestController {
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = ProductResponseDTO.class)))
             })
-    public ResponseEntity<List<ProductResponseDTO>> getProductsUnderPrice(
+    public ResponseEntity<StreamingResponseBody> getProductsUnderPrice(
             @Parameter(description = "Maximum price", example = "100.00")
             @RequestParam BigDecimal price) {
-        return ResponseEntity.ok(productService.getProductsUnderPrice(price));
+        return jsonArrayWriter.write(consumer -> productService.streamProductsUnderPrice(price, consumer));
     }
 
     /**
@@ -288,7 +551,7 @@ public class ProductRestController {
     /**
      * Retrieve all products that are currently in stock.
      *
-     * @return a list of ProductResponseDTO
+     * @return a streamed JSON array of ProductResponseDTO
      */
     @GetMapping("/in-stock")
     @Operation(summary = "Get products in stock",
@@ -298,8 +561,8 @@ public class ProductRestController {
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                                     schema = @Schema(implementation = ProductResponseDTO.class)))
             })
-    public ResponseEntity<List<ProductResponseDTO>> getInStockProducts() {
-        return ResponseEntity.ok(productService.getInStockProducts());
+    public ResponseEntity<StreamingResponseBody> getInStockProducts() {
+        return jsonArrayWriter.write(productService::streamInStockProducts);
     }
 
     /**
@@ -376,4 +639,26 @@ public class ProductRestController {
 
         return ResponseEntity.ok(productService.filterProductsWithSlice(filter));
     }
+
+    /**
+     * Filter products using criteria with keyset (cursor) pagination.
+     *
+     * @param filter the filter criteria, with the cursor returned with the previous page
+     * @return a page of products matching the filter criteria with the cursor of the next page
+     */
+    @PostMapping("/filter/cursor")
+    @Operation(summary = "Filter products with criteria using a cursor",
+            description = "Filter products using various criteria, page by page following the cursor of the previous page",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully filtered products",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = CursorPage.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor or sort field")
+            })
+    public ResponseEntity<CursorPage<ProductResponseDTO>> filterProductsByCursor(
+            @Parameter(description = "Filter criteria", required = true)
+            @Valid @RequestBody ProductFilterDTO filter) {
+
+        return ResponseEntity.ok(productService.filterProductsByCursor(filter));
+    }
 }
@@ -0,0 +1,214 @@
+package app.quantun.backend.search;
+
+import app.quantun.backend.config.AppCacheProperties;
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.models.entity.ProductTrigram;
+import app.quantun.backend.repository.ProductRepository;
+import app.quantun.backend.repository.ProductTrigramRepository;
+import app.quantun.backend.repository.specification.ProductSpecification;
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains and searches the product trigram index.
+ * <p>
+ * The services index a product in the transaction that writes it: the postings of the product are
+ * deleted and the trigrams of its name and description inserted again, as one JDBC batch. Products
+ * written without the services, such as the sample data or rows written before the index existed, are
+ * indexed once the application is ready.
+ * <p>
+ * A search looks up only the rarest trigrams of its text, since the cost of a lookup grows with the
+ * postings of every trigram looked up. The posting counts of trigrams are probed with a cap and cached;
+ * when every trigram of a text is common, a scan of the shadow column is cheaper than the index and the
+ * search falls back to it.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final String INSERT = "INSERT INTO product_trigram (product_id, field, trigram) VALUES (?, ?, ?)";
+    private static final String COUNT_POSTINGS = "SELECT COUNT(*) FROM (SELECT 1 FROM product_trigram "
+            + "WHERE trigram = ? AND field = ? FETCH FIRST ? ROWS ONLY) postings";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    /**
+     * The number of trigrams a search looks up. Two rare trigrams narrow the candidates down enough for the
+     * {@code LIKE} on the shadow column to check them.
+     */
+    private static final int LOOKUP_TRIGRAMS = 2;
+
+    /**
+     * The number of postings from which a trigram is too common to be worth looking up.
+     */
+    private static final int MAX_LOOKUP_POSTINGS = 10_000;
+
+    private final ProductTrigramRepository trigramRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<Posting, Integer> frequencies;
+
+    public ProductSearchIndex(ProductTrigramRepository trigramRepository, ProductRepository productRepository,
+                              JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              AppCacheProperties cacheProperties) {
+        this.trigramRepository = trigramRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.frequencies = CacheConfig.newCaffeine(cacheProperties.getTrigramFrequencies()).build();
+    }
+
+    /**
+     * Creates a specification for products whose name contains the given text, ignoring case.
+     *
+     * @param name the text to search for
+     * @return a specification looking up the most selective trigrams of the text
+     */
+    public Specification<Product> nameContains(String name) {
+        return ProductSpecification.textContains(ProductTrigram.Field.NAME, name,
+                lookupTrigrams(ProductTrigram.Field.NAME, name));
+    }
+
+    /**
+     * Creates a specification for products whose description contains the given text, ignoring case.
+     *
+     * @param description the text to search for
+     * @return a specification looking up the most selective trigrams of the text
+     */
+    public Specification<Product> descriptionContains(String description) {
+        return ProductSpecification.textContains(ProductTrigram.Field.DESCRIPTION, description,
+                lookupTrigrams(ProductTrigram.Field.DESCRIPTION, description));
+    }
+
+    /**
+     * The trigrams of a text worth looking up: the rarest ones, leaving out the common ones.
+     *
+     * @param field the searched field
+     * @param text  the text to search for
+     * @return up to {@link #LOOKUP_TRIGRAMS} trigrams; empty when the index would not help
+     */
+    Set<String> lookupTrigrams(ProductTrigram.Field field, String text) {
+        return SearchText.trigrams(SearchText.normalize(text)).stream()
+                .map(trigram -> new Posting(field, trigram))
+                .filter(posting -> frequency(posting) < MAX_LOOKUP_POSTINGS)
+                .sorted(Comparator.comparingInt(this::frequency))
+                .limit(LOOKUP_TRIGRAMS)
+                .map(Posting::trigram)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Index a saved product, replacing its previous postings.
+     *
+     * @param product the product, with its ID assigned
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void index(Product product) {
+        index(List.of(product));
+    }
+
+    /**
+     * Index saved products, replacing their previous postings.
+     *
+     * @param products the products, with their IDs assigned
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void index(Collection<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        trigramRepository.deleteByProductIdIn(products.stream().map(Product::getId).toList());
+
+        List<Object[]> postings = new ArrayList<>();
+        for (Product product : products) {
+            addPostings(postings, product.getId(), ProductTrigram.Field.NAME, product.getName());
+            addPostings(postings, product.getId(), ProductTrigram.Field.DESCRIPTION, product.getDescription());
+        }
+        jdbcTemplate.batchUpdate(INSERT, postings);
+    }
+
+    /**
+     * Remove the postings of a deleted product.
+     *
+     * @param productId the ID of the product
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void remove(Long productId) {
+        trigramRepository.deleteByProductIdIn(List.of(productId));
+    }
+
+    /**
+     * Fill the shadow columns and index the products that have not been indexed yet, in batches.
+     * Products whose text is too short for any trigram are indexed again on every call.
+     *
+     * @return the number of products indexed
+     */
+    public int indexMissing() {
+        int indexed = 0;
+        long afterId = 0;
+        Slice<Product> batch;
+        do {
+            long from = afterId;
+            batch = transactionTemplate.execute(status -> {
+                Slice<Product> products = productRepository.findUnindexed(from, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+                products.forEach(Product::updateSearchText);
+                index(products.getContent());
+                return products;
+            });
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            indexed += batch.getNumberOfElements();
+            afterId = batch.getContent().get(batch.getNumberOfElements() - 1).getId();
+        } while (batch.hasNext());
+        return indexed;
+    }
+
+    /**
+     * Index the products left unindexed once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexMissingOnStartup() {
+        int indexed = indexMissing();
+        if (indexed > 0) {
+            log.info("Indexed {} products for substring search", indexed);
+        }
+    }
+
+    private int frequency(Posting posting) {
+        return frequencies.get(posting, key -> jdbcTemplate.queryForObject(COUNT_POSTINGS, Integer.class,
+                key.trigram(), key.field().name(), MAX_LOOKUP_POSTINGS));
+    }
+
+    private static void addPostings(List<Object[]> postings, Long productId, ProductTrigram.Field field, String text) {
+        Set<String> trigrams = SearchText.trigrams(SearchText.normalize(text));
+        for (String trigram : trigrams) {
+            postings.add(new Object[]{productId, field.name(), trigram});
+        }
+    }
+
+    /**
+     * The postings of a trigram in a field.
+     */
+    private record Posting(ProductTrigram.Field field, String trigram) {
+    }
+}
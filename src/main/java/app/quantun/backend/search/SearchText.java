@@ -0,0 +1,73 @@
+package app.quantun.backend.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Normalization of searchable text.
+ * <p>
+ * Names and descriptions are searched case-insensitively through lower-cased shadow columns, written
+ * along with the text, so a search compares stored values instead of lower-casing every row. Product
+ * text is also split into trigrams, the distinct three-character substrings, which are indexed in the
+ * {@code product_trigram} table: a text can only contain a search term if it holds every trigram of the term.
+ */
+public final class SearchText {
+
+    /**
+     * The length of the indexed substrings. Shorter terms cannot be looked up in the trigram index.
+     */
+    public static final int GRAM_LENGTH = 3;
+
+    /**
+     * The escape character of the patterns built by {@link #containsPattern(String)}.
+     */
+    public static final char ESCAPE = '\\';
+
+    private SearchText() {
+    }
+
+    /**
+     * Normalize a text for searching.
+     *
+     * @param text the text, possibly {@code null}
+     * @return the lower-cased text, or {@code null} for a {@code null} text
+     */
+    public static String normalize(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * The distinct trigrams of a normalized text, in order of first occurrence.
+     *
+     * @param normalized the normalized text, possibly {@code null}
+     * @return the trigrams; empty for a text shorter than {@link #GRAM_LENGTH}
+     */
+    public static Set<String> trigrams(String normalized) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        if (normalized != null) {
+            for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+                trigrams.add(normalized.substring(i, i + GRAM_LENGTH));
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * The {@code LIKE} pattern matching the normalized texts that contain a term.
+     * Wildcards in the term are escaped with {@link #ESCAPE}, so they match literally.
+     *
+     * @param normalized the normalized term
+     * @return the pattern
+     */
+    public static String containsPattern(String normalized) {
+        StringBuilder pattern = new StringBuilder(normalized.length() + 2).append('%');
+        for (char c : normalized.toCharArray()) {
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                pattern.append(ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -3,17 +3,20 @@ package app.quantun.backend.service;
 import app.quantun.backend.models.contract.request.CategoryFilterDTO;
 import app.quantun.backend.models.contract.request.CategoryRequestDTO;
 import app.quantun.backend.models.contract.response.CategoryResponseDTO;
+import app.quantun.backend.models.contract.response.CursorPage;
 import app.quantun.backend.models.contract.response.ProductResponseDTO;
 import app.quantun.backend.models.entity.Category;
 import jakarta.validation.constraints.Positive;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CategoryService {
     List<CategoryResponseDTO> getAllCategories();
@@ -45,6 +48,14 @@ public interface CategoryService {
      */
     List<ProductResponseDTO> getProductsByCategory(Long categoryId);
 
+    /**
+     * Stream all products in a specific category to a consumer, in one read-only transaction.
+     *
+     * @param categoryId the ID of the category
+     * @param consumer   receives each product in turn
+     */
+    void streamProductsByCategory(Long categoryId, Consumer<? super ProductResponseDTO> consumer);
+
     /**
      * Get all products in a specific category with pagination.
      *
@@ -54,6 +65,19 @@ public interface CategoryService {
      */
     Slice<ProductResponseDTO> getProductsByCategoryPaged(Long categoryId, Pageable pageable);
 
+    /**
+     * Get the products in a specific category by keyset (cursor) pagination.
+     *
+     * @param categoryId the ID of the category
+     * @param cursor     the cursor returned with the previous page, or {@code null} for the first page
+     * @param size       the page size
+     * @param sortBy     the property to sort by
+     * @param direction  the sort direction
+     * @return the page of products with the cursor of the next page
+     */
+    CursorPage<ProductResponseDTO> getProductsByCategoryCursor(Long categoryId, String cursor, int size,
+                                                               String sortBy, Sort.Direction direction);
+
     /**
      * Filter categories using criteria with pagination.
      *
@@ -0,0 +1,20 @@
+package app.quantun.backend.service;
+
+import app.quantun.backend.imports.ProductRowReader;
+import app.quantun.backend.models.contract.response.ProductImportResultDTO;
+
+import java.io.IOException;
+
+public interface ProductImportService {
+
+    /**
+     * Import the products of an import body, committing them in chunks.
+     * Rows that cannot be read, fail validation or cannot be inserted are reported and skipped;
+     * the chunks committed before a failure stay imported.
+     *
+     * @param rows the rows of the body
+     * @return the number of products imported and the row errors
+     * @throws IOException if the body cannot be read
+     */
+    ProductImportResultDTO importProducts(ProductRowReader rows) throws IOException;
+}
@@ -1,33 +1,97 @@
 package app.quantun.backend.service;
 
+import app.quantun.backend.exception.InsufficientStockException;
+import app.quantun.backend.models.contract.request.ProductBulkUpdateDTO;
 import app.quantun.backend.models.contract.request.ProductFilterDTO;
 import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.CursorPage;
+import app.quantun.backend.models.contract.response.ProductBatchResponseDTO;
+import app.quantun.backend.models.contract.response.ProductBulkUpdateResultDTO;
 import app.quantun.backend.models.contract.response.ProductResponseDTO;
 import app.quantun.backend.models.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ProductService {
-    List<ProductResponseDTO> getAllProducts();
+
+    /**
+     * The maximum number of IDs of a multi-get.
+     */
+    int MAX_BATCH_SIZE = 500;
+
+    /**
+     * Stream all products to a consumer, in one read-only transaction.
+     *
+     * @param consumer receives each product in turn
+     */
+    void streamAllProducts(Consumer<? super ProductResponseDTO> consumer);
 
     Page<ProductResponseDTO> getAllProductsPaged(Pageable pageable);
 
     Optional<ProductResponseDTO> getProductById(Long id);
 
+    /**
+     * Retrieve products by a list of IDs, in the order of the IDs.
+     *
+     * @param ids the IDs of the products, at most {@link #MAX_BATCH_SIZE}
+     * @return the products found and the IDs that match no product
+     */
+    ProductBatchResponseDTO getProductsByIds(List<Long> ids);
+
     @Transactional
     ProductResponseDTO createProduct(ProductRequestDTO productRequestDTO);
 
     @Transactional
     ProductResponseDTO updateProduct(Long id, ProductRequestDTO productRequestDTO);
 
+    /**
+     * Update the price and stock of the products of a category or of a list of IDs, without loading them.
+     *
+     * @param request the products to update and their change
+     * @return the number of products updated and the requested IDs that match no product
+     * @throws InsufficientStockException if the stock set is below the units leased to hot stock counters of any
+     *                                    product, in which case no product is updated
+     */
+    @Transactional
+    ProductBulkUpdateResultDTO bulkUpdateProducts(ProductBulkUpdateDTO request);
+
     void updateProductFields(Product existingProduct, ProductRequestDTO productRequestDTO);
 
+    /**
+     * Reserve stock of a product, taking it out of the stock available to order.
+     * Not transactional: the reservations of hot products are written behind, in transactions of their own.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to reserve, positive
+     */
+    void reserveStock(Long id, int quantity);
+
+    /**
+     * Return reserved stock of a product to the stock available to order.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to release, positive
+     */
+    @Transactional
+    void releaseStock(Long id, int quantity);
+
+    /**
+     * Remove reserved stock of a product for good, once the order holding it is completed.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to commit, positive
+     */
+    @Transactional
+    void commitStock(Long id, int quantity);
+
     @Transactional
     void deleteProduct(Long id);
 
@@ -35,11 +99,22 @@ public interface ProductService {
 
     Page<ProductResponseDTO> searchProductsByNamePaged(String name, Pageable pageable);
 
-    List<ProductResponseDTO> getProductsUnderPrice(BigDecimal price);
+    /**
+     * Stream the products priced below a given value to a consumer, in one read-only transaction.
+     *
+     * @param price    the maximum price
+     * @param consumer receives each product in turn
+     */
+    void streamProductsUnderPrice(BigDecimal price, Consumer<? super ProductResponseDTO> consumer);
 
     Page<ProductResponseDTO> getProductsUnderPricePaged(BigDecimal price, Pageable pageable);
 
-    List<ProductResponseDTO> getInStockProducts();
+    /**
+     * Stream the products in stock to a consumer, in one read-only transaction.
+     *
+     * @param consumer receives each product in turn
+     */
+    void streamInStockProducts(Consumer<? super ProductResponseDTO> consumer);
 
     Page<ProductResponseDTO> getInStockProductsPaged(Pageable pageable);
 
@@ -58,4 +133,23 @@ public interface ProductService {
      * @return a slice of products matching the filter criteria
      */
     Slice<ProductResponseDTO> filterProductsWithSlice(ProductFilterDTO filter);
-}
+
+    /**
+     * Retrieve products by keyset (cursor) pagination.
+     *
+     * @param cursor    the cursor returned with the previous page, or {@code null} for the first page
+     * @param size      the page size
+     * @param sortBy    the property to sort by
+     * @param direction the sort direction
+     * @return the page of products with the cursor of the next page
+     */
+    CursorPage<ProductResponseDTO> getAllProductsByCursor(String cursor, int size, String sortBy, Sort.Direction direction);
+
+    /**
+     * Filter products using criteria with keyset (cursor) pagination.
+     *
+     * @param filter the filter criteria, with the cursor of the page to fetch
+     * @return the page of products with the cursor of the next page
+     */
+    CursorPage<ProductResponseDTO> filterProductsByCursor(ProductFilterDTO filter);
+}
\ No newline at end of file
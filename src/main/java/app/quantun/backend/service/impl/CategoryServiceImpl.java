@@ -1,31 +1,41 @@
 package app.quantun.backend.service.impl;
 
+import app.quantun.backend.cache.AfterCommit;
+import app.quantun.backend.cache.CategoryCatalog;
+import app.quantun.backend.cache.InvalidationBus;
 import app.quantun.backend.exception.CategoryNotFoundException;
 import app.quantun.backend.models.contract.request.CategoryFilterDTO;
 import app.quantun.backend.models.contract.request.CategoryRequestDTO;
 import app.quantun.backend.models.contract.response.CategoryResponseDTO;
+import app.quantun.backend.models.contract.response.CursorPage;
 import app.quantun.backend.models.contract.response.ProductResponseDTO;
 import app.quantun.backend.models.entity.Category;
 import app.quantun.backend.models.entity.Product;
 import app.quantun.backend.repository.CategoryRepository;
 import app.quantun.backend.repository.ProductRepository;
 import app.quantun.backend.repository.specification.CategorySpecification;
+import app.quantun.backend.search.SearchText;
 import app.quantun.backend.service.CategoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing categories.
  * This class provides methods for CRUD operations on categories.
+ * Methods querying the database run in read-only transactions; those answered by the category catalog
+ * run in none.
  */
 @Service
 @RequiredArgsConstructor
@@ -34,24 +44,24 @@ public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final ModelMapper modelMapper;
     private final ProductRepository productRepository;
+    private final InvalidationBus invalidationBus;
+    private final CategoryCatalog categoryCatalog;
 
     /**
-     * Retrieve a list of all categories.
+     * Retrieve a list of all categories, from the category catalog.
      *
      * @return a list of CategoryResponseDTO
      */
     @Override
     public List<CategoryResponseDTO> getAllCategories() {
         log.info("Retrieving all categories");
-        List<CategoryResponseDTO> categories = categoryRepository.findAll().stream()
-                .map(category -> modelMapper.map(category, CategoryResponseDTO.class))
-                .collect(Collectors.toList());
+        List<CategoryResponseDTO> categories = categoryCatalog.getAll();
         log.info("Retrieved {} categories", categories.size());
         return categories;
     }
 
     /**
-     * Retrieve a specific category by its ID.
+     * Retrieve a specific category by its ID, from the category catalog.
      *
      * @param id the ID of the category
      * @return an Optional containing the CategoryResponseDTO if found, otherwise empty
@@ -59,11 +69,7 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     public Optional<CategoryResponseDTO> getCategoryById(Long id) {
         log.info("Retrieving category with id: {}", id);
-        Optional<CategoryResponseDTO> category = categoryRepository.findById(id)
-                .map(c -> {
-                    log.debug("Found category: {}", c.getName());
-                    return modelMapper.map(c, CategoryResponseDTO.class);
-                });
+        Optional<CategoryResponseDTO> category = categoryCatalog.findById(id);
 
         if (category.isEmpty()) {
             log.warn("Category with id {} not found", id);
@@ -84,6 +90,8 @@ public class CategoryServiceImpl implements CategoryService {
         log.info("Creating new category: {}", categoryRequestDTO.getName());
         Category category = modelMapper.map(categoryRequestDTO, Category.class);
         Category savedCategory = categoryRepository.save(category);
+        invalidationBus.publish(InvalidationBus.CATEGORY, savedCategory.getId());
+        AfterCommit.run(categoryCatalog::refresh);
         log.info("Category created with id: {}", savedCategory.getId());
         return modelMapper.map(savedCategory, CategoryResponseDTO.class);
     }
@@ -104,6 +112,8 @@ public class CategoryServiceImpl implements CategoryService {
                     log.debug("Found category to update: {}", existingCategory.getName());
                     updateCategoryFields(existingCategory, categoryRequestDTO);
                     Category updatedCategory = categoryRepository.save(existingCategory);
+                    invalidationBus.publish(InvalidationBus.CATEGORY, id);
+                    AfterCommit.run(categoryCatalog::refresh);
                     log.info("Category updated successfully: {}", updatedCategory.getId());
                     return modelMapper.map(updatedCategory, CategoryResponseDTO.class);
                 })
@@ -147,11 +157,13 @@ public class CategoryServiceImpl implements CategoryService {
                     return new CategoryNotFoundException("Category not found with id " + id);
                 });
         categoryRepository.delete(category);
+        invalidationBus.publish(InvalidationBus.CATEGORY, id);
+        AfterCommit.run(categoryCatalog::refresh);
         log.info("Category deleted successfully: {}", id);
     }
 
     /**
-     * Find categories containing the given name.
+     * Find categories containing the given name, from the category catalog.
      *
      * @param name the name to search for
      * @return a list of CategoryResponseDTO
@@ -159,8 +171,9 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     public List<CategoryResponseDTO> searchCategoriesByName(String name) {
         log.info("Searching categories by name: {}", name);
-        List<CategoryResponseDTO> categories = categoryRepository.findByNameContaining(name).stream()
-                .map(category -> modelMapper.map(category, CategoryResponseDTO.class))
+        String normalized = SearchText.normalize(name);
+        List<CategoryResponseDTO> categories = categoryCatalog.getAll().stream()
+                .filter(category -> category.getName() != null && SearchText.normalize(category.getName()).contains(normalized))
                 .collect(Collectors.toList());
         log.info("Found {} categories matching name: {}", categories.size(), name);
         return categories;
@@ -173,20 +186,39 @@ public class CategoryServiceImpl implements CategoryService {
      * @return a list of ProductResponseDTO
      */
     @Override
+    @Transactional(readOnly = true)
     public List<ProductResponseDTO> getProductsByCategory(Long categoryId) {
         log.info("Retrieving products for category with id: {}", categoryId);
-        return categoryRepository.findById(categoryId)
-                .map(category -> {
-                    List<ProductResponseDTO> products = category.getProducts().stream()
-                            .map(product -> modelMapper.map(product, ProductResponseDTO.class))
-                            .collect(Collectors.toList());
-                    log.info("Found {} products in category: {}", products.size(), category.getName());
-                    return products;
-                })
-                .orElseThrow(() -> {
-                    log.error("Failed to retrieve products - category not found with id: {}", categoryId);
-                    return new CategoryNotFoundException("Category not found with id " + categoryId);
-                });
+        // Check if category exists (served from the category catalog)
+        if (!categoryCatalog.contains(categoryId)) {
+            log.error("Failed to retrieve products - category not found with id: {}", categoryId);
+            throw new CategoryNotFoundException("Category not found with id " + categoryId);
+        }
+
+        List<ProductResponseDTO> products = productRepository.findResponsesByCategoryId(categoryId);
+        log.info("Found {} products in category with id: {}", products.size(), categoryId);
+        return products;
+    }
+
+    /**
+     * Stream all products in a specific category to a consumer.
+     * The products are read through a database cursor, so they are never all held in memory.
+     *
+     * @param categoryId the ID of the category
+     * @param consumer   receives each product in turn
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamProductsByCategory(Long categoryId, Consumer<? super ProductResponseDTO> consumer) {
+        log.info("Streaming products for category with id: {}", categoryId);
+        if (!categoryCatalog.contains(categoryId)) {
+            log.error("Failed to stream products - category not found with id: {}", categoryId);
+            throw new CategoryNotFoundException("Category not found with id " + categoryId);
+        }
+
+        try (Stream<ProductResponseDTO> products = productRepository.streamResponsesByCategoryId(categoryId)) {
+            products.forEach(consumer);
+        }
     }
 
     /**
@@ -196,10 +228,10 @@ public class CategoryServiceImpl implements CategoryService {
      * @return a page of CategoryResponseDTO
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<CategoryResponseDTO> getAllCategoriesPaged(Pageable pageable) {
         log.info("Retrieving paged categories with page: {}, size: {}", pageable.getPageNumber(), pageable.getPageSize());
-        Page<CategoryResponseDTO> categoryPage = categoryRepository.findAll(pageable)
-                .map(category -> modelMapper.map(category, CategoryResponseDTO.class));
+        Page<CategoryResponseDTO> categoryPage = categoryRepository.findResponsesBy(pageable);
         log.info("Retrieved page {} of {} with {} categories",
                 categoryPage.getNumber(), categoryPage.getTotalPages(), categoryPage.getNumberOfElements());
         return categoryPage;
@@ -213,12 +245,11 @@ public class CategoryServiceImpl implements CategoryService {
      * @return a page of CategoryResponseDTO
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<CategoryResponseDTO> searchCategoriesByNamePaged(String name, Pageable pageable) {
         log.info("Searching paged categories by name: {} with page: {}, size: {}",
                 name, pageable.getPageNumber(), pageable.getPageSize());
-        Page<Category> categoryPage = categoryRepository.findByNameContaining(name, pageable);
-        Page<CategoryResponseDTO> result = categoryPage
-                .map(category -> modelMapper.map(category, CategoryResponseDTO.class));
+        Page<CategoryResponseDTO> result = categoryRepository.findResponsesByNameContaining(name, pageable);
         log.info("Found page {} of {} with {} categories matching name: {}",
                 result.getNumber(), result.getTotalPages(), result.getNumberOfElements(), name);
         return result;
@@ -232,21 +263,46 @@ public class CategoryServiceImpl implements CategoryService {
      * @return a page of ProductResponseDTO
      */
     @Override
+    @Transactional(readOnly = true)
     public Slice<ProductResponseDTO> getProductsByCategoryPaged(Long categoryId, Pageable pageable) {
         log.info("Retrieving paged products for category with id: {} with page: {}, size: {}",
                 categoryId, pageable.getPageNumber(), pageable.getPageSize());
 
-        // Check if category exists
-        if (!categoryRepository.existsById(categoryId)) {
+        // Check if category exists (served from the category catalog)
+        if (!categoryCatalog.contains(categoryId)) {
             log.error("Failed to retrieve paged products - category not found with id: {}", categoryId);
             throw new CategoryNotFoundException("Category not found with id " + categoryId);
         }
 
-        // Use the JPQL query to get paginated results directly from the database
-        Slice<Product> productSlice = productRepository.findProductsByCategoryIdSliced(categoryId, pageable);
+        // Use the JPQL projection to get paginated DTOs directly from the database
+        return productRepository.findResponseSliceByCategoryId(categoryId, pageable);
+    }
 
-        // Map to DTOs
-        return productSlice.map(product -> modelMapper.map(product, ProductResponseDTO.class));
+    /**
+     * Get the products in a specific category by keyset (cursor) pagination.
+     *
+     * @param categoryId the ID of the category
+     * @param cursor     the cursor returned with the previous page, or {@code null} for the first page
+     * @param size       the page size
+     * @param sortBy     the property to sort by
+     * @param direction  the sort direction
+     * @return the page of products with the cursor of the next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponseDTO> getProductsByCategoryCursor(Long categoryId, String cursor, int size,
+                                                                      String sortBy, Sort.Direction direction) {
+        log.info("Retrieving products for category with id: {} after cursor with size: {}", categoryId, size);
+
+        // Check if category exists (served from the category catalog)
+        if (!categoryCatalog.contains(categoryId)) {
+            log.error("Failed to retrieve products - category not found with id: {}", categoryId);
+            throw new CategoryNotFoundException("Category not found with id " + categoryId);
+        }
+
+        Specification<Product> inCategory = (root, query, cb) -> cb.equal(root.get("category").get("id"), categoryId);
+        return ProductCursors.scroll(productRepository, inCategory, cursor, size, sortBy, direction,
+                product -> modelMapper.map(product, ProductResponseDTO.class));
     }
 
     /**
@@ -256,6 +312,7 @@ public class CategoryServiceImpl implements CategoryService {
      * @return a page of categories matching the filter criteria
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<CategoryResponseDTO> filterCategories(CategoryFilterDTO filter) {
         log.info("Filtering categories with criteria: {}", filter);
 
@@ -292,6 +349,7 @@ public class CategoryServiceImpl implements CategoryService {
      * @return a slice of categories matching the filter criteria
      */
     @Override
+    @Transactional(readOnly = true)
     public Slice<CategoryResponseDTO> filterCategoriesWithSlice(CategoryFilterDTO filter) {
         log.info("Filtering categories with criteria using slice: {}", filter);
 
@@ -321,40 +379,34 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Slice<ProductResponseDTO> getProductsByCategoryWithFilters(
             Long categoryId, String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock, Pageable pageable) {
 
         log.info("Retrieving filtered products for category with id: {}", categoryId);
 
-        // Check if category exists
-        if (!categoryRepository.existsById(categoryId)) {
+        // Check if category exists (served from the category catalog)
+        if (!categoryCatalog.contains(categoryId)) {
             log.error("Failed to retrieve paged products - category not found with id: {}", categoryId);
             throw new CategoryNotFoundException("Category not found with id " + categoryId);
         }
 
-        // Use the JPQL query with filters
-        Slice<Product> productSlice = productRepository.findProductsByCategoryWithFilters(
+        // Use the JPQL projection with filters
+        return productRepository.findResponseSliceByCategoryWithFilters(
                 categoryId, name, minPrice, maxPrice, inStock, pageable);
-
-        // Map to DTOs
-        return productSlice.map(product -> modelMapper.map(product, ProductResponseDTO.class));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Slice<ProductResponseDTO> searchProductsByCategory(Long categoryId, String searchTerm, Pageable pageable) {
         log.info("Searching products in category with id: {} using search term: {}", categoryId, searchTerm);
 
-        // Use the text search JPQL query
-        Slice<Product> productSlice = productRepository.findProductsByCategoryIdWithTextSearch(
-                categoryId, searchTerm, pageable);
-
-        // Map to DTOs
-        return productSlice.map(product -> modelMapper.map(product, ProductResponseDTO.class));
+        // Use the text search JPQL projection
+        return productRepository.findResponseSliceByCategoryIdWithTextSearch(categoryId, searchTerm, pageable);
     }
 
     @Override
     public boolean existsById(Long categoryId) {
-
-        return this.categoryRepository.existsById(categoryId);
+        return categoryCatalog.contains(categoryId);
     }
 }
@@ -0,0 +1,139 @@
+package app.quantun.backend.service.impl;
+
+import app.quantun.backend.exception.InvalidCursorException;
+import app.quantun.backend.models.contract.response.CursorPage;
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.ProductRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keyset (cursor) pagination of products.
+ * <p>
+ * A page is fetched with a {@code WHERE (sortKey, id) > (:lastSortKey, :lastId)} condition instead of an
+ * offset, so every page costs the same however deep it is. The cursor handed to clients is the
+ * Base64 encoding of the sort and of the sort key and ID of the last product of the page. Sorting is
+ * limited to non-null properties, as keyset conditions do not order nulls, and the ID is always added
+ * as the final sort key so the order is total.
+ */
+final class ProductCursors {
+
+    private static final String ID = "id";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The sortable properties and how to parse their cursor values.
+     */
+    private static final Map<String, Function<String, Object>> SORT_KEYS = Map.of(
+            ID, Long::valueOf,
+            "name", value -> value,
+            "price", BigDecimal::new,
+            "stock", Integer::valueOf,
+            "createdAt", LocalDateTime::parse);
+
+    private ProductCursors() {
+    }
+
+    /**
+     * Fetch a page of products after the given cursor.
+     *
+     * @param productRepository the product repository
+     * @param specification     the filter of the products
+     * @param cursor            the cursor returned with the previous page, or {@code null} for the first page
+     * @param size              the page size
+     * @param sortBy            the property to sort by
+     * @param direction         the sort direction
+     * @param mapper            the mapper of products to the returned elements
+     * @param <T>               the type of the returned elements
+     * @return the page with the cursor of the next page
+     */
+    static <T> CursorPage<T> scroll(ProductRepository productRepository, Specification<Product> specification,
+                                    String cursor, int size, String sortBy, Sort.Direction direction,
+                                    Function<Product, T> mapper) {
+        String sortProperty = StringUtils.hasText(sortBy) ? sortBy.trim() : ID;
+        Sort.Direction sortDirection = direction != null ? direction : Sort.Direction.ASC;
+        if (!SORT_KEYS.containsKey(sortProperty)) {
+            throw new InvalidCursorException("Cannot paginate by cursor when sorting by '" + sortProperty
+                    + "', sortable properties are " + SORT_KEYS.keySet());
+        }
+
+        Sort sort = ID.equals(sortProperty)
+                ? Sort.by(sortDirection, ID)
+                : Sort.by(sortDirection, sortProperty).and(Sort.by(sortDirection, ID));
+        ScrollPosition position = StringUtils.hasText(cursor)
+                ? decode(cursor, sortProperty, sortDirection)
+                : ScrollPosition.keyset();
+
+        Window<Product> window = productRepository.findBy(specification,
+                query -> query.sortBy(sort).limit(size).scroll(position));
+
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? encode((KeysetScrollPosition) window.positionAt(window.size() - 1), sortProperty, sortDirection)
+                : null;
+        return new CursorPage<>(window.map(mapper).getContent(), window.size(), window.hasNext(), nextCursor);
+    }
+
+    private static String encode(KeysetScrollPosition position, String sortProperty, Sort.Direction direction) {
+        Map<String, String> keys = new LinkedHashMap<>();
+        position.getKeys().forEach((key, value) -> keys.put(key, String.valueOf(value)));
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(new Cursor(sortProperty, direction, keys));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not encode cursor", ex);
+        }
+    }
+
+    private static ScrollPosition decode(String token, String sortProperty, Sort.Direction direction) {
+        Cursor cursor;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII));
+            cursor = MAPPER.readValue(json, new TypeReference<>() {
+            });
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new InvalidCursorException("Malformed cursor", ex);
+        }
+        if (!sortProperty.equals(cursor.sortBy()) || direction != cursor.direction()) {
+            throw new InvalidCursorException("Cursor was issued for a different sort, restart from the first page");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            for (String property : sortProperty.equals(ID) ? new String[]{ID} : new String[]{sortProperty, ID}) {
+                String value = cursor.keys().get(property);
+                if (value == null) {
+                    throw new InvalidCursorException("Cursor has no value for '" + property + "'");
+                }
+                keys.put(property, SORT_KEYS.get(property).apply(value));
+            }
+        } catch (RuntimeException ex) {
+            throw ex instanceof InvalidCursorException invalid ? invalid : new InvalidCursorException("Malformed cursor", ex);
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * The content of a cursor token.
+     *
+     * @param sortBy    the property the page was sorted by
+     * @param direction the sort direction
+     * @param keys      the sort key values of the last element of the page
+     */
+    private record Cursor(String sortBy, Sort.Direction direction, Map<String, String> keys) {
+    }
+}
@@ -0,0 +1,213 @@
+package app.quantun.backend.service.impl;
+
+import app.quantun.backend.cache.InvalidationBus;
+import app.quantun.backend.cache.PageTotalCache;
+import app.quantun.backend.cache.ProductFilterCache;
+import app.quantun.backend.config.AppImportProperties;
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.imports.ProductRow;
+import app.quantun.backend.imports.ProductRowReader;
+import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.ProductImportResultDTO;
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.ProductRepository;
+import app.quantun.backend.search.ProductSearchIndex;
+import app.quantun.backend.service.ProductImportService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.modelmapper.ModelMapper;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for importing products in bulk.
+ * <p>
+ * Rows are read one at a time and inserted in chunks, each in its own transaction. Product IDs come from
+ * a pooled sequence, so the inserts of a chunk, like its trigram postings, go to the database as JDBC
+ * batches. The persistence context is cleared after each chunk and the second-level cache is bypassed,
+ * so memory stays flat whatever the size of the body. A chunk that fails is rolled back and its rows are
+ * inserted again one by one, to report the failing rows alone.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ModelMapper modelMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final InvalidationBus invalidationBus;
+    private final ProductFilterCache productFilterCache;
+    private final PageTotalCache pageTotalCache;
+    private final CacheManager cacheManager;
+    private final AppImportProperties importProperties;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Import the products of an import body, committing them in chunks.
+     *
+     * @param rows the rows of the body
+     * @return the number of products imported and the row errors
+     * @throws IOException if the body cannot be read
+     */
+    @Override
+    public ProductImportResultDTO importProducts(ProductRowReader rows) throws IOException {
+        log.info("Importing products in chunks of {}", importProperties.getChunkSize());
+        long start = System.nanoTime();
+        Report report = new Report(importProperties.getMaxReportedErrors());
+        List<ProductRow> chunk = new ArrayList<>(importProperties.getChunkSize());
+
+        for (ProductRow row = rows.next(); row != null; row = rows.next()) {
+            String error = row.isValid() ? validate(row) : row.error();
+            if (error != null) {
+                report.fail(row.number(), error);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() >= importProperties.getChunkSize()) {
+                importChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        importChunk(chunk, report);
+
+        log.info("Imported {} products with {} failed rows in {} ms", report.imported, report.failed,
+                (System.nanoTime() - start) / 1_000_000);
+        return report.toResult();
+    }
+
+    /**
+     * Validate the product of a row.
+     *
+     * @return the violations of the row, or {@code null} when it is valid
+     */
+    private String validate(ProductRow row) {
+        Set<ConstraintViolation<ProductRequestDTO>> violations = validator.validate(row.product());
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Insert the products of a chunk in one transaction; if it fails, insert them again one by one.
+     */
+    private void importChunk(List<ProductRow> chunk, Report report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<Long> ids = transactionTemplate.execute(status -> insert(chunk));
+            report.imported += chunk.size();
+            afterCommit(ids);
+        } catch (RuntimeException ex) {
+            String message = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+            if (chunk.size() == 1) {
+                report.fail(chunk.get(0).number(), message);
+                return;
+            }
+            log.warn("Chunk of rows {} to {} failed, importing its rows one by one: {}",
+                    chunk.get(0).number(), chunk.get(chunk.size() - 1).number(), message);
+            for (ProductRow row : chunk) {
+                importChunk(List.of(row), report);
+            }
+        }
+    }
+
+    /**
+     * Insert and index the products of a chunk within the current transaction.
+     *
+     * @return the IDs of the products
+     */
+    private List<Long> insert(List<ProductRow> chunk) {
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        // Imported products would only push the hot entries out of the second-level cache
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            List<Product> products = new ArrayList<>(chunk.size());
+            for (ProductRow row : chunk) {
+                products.add(modelMapper.map(row.product(), Product.class));
+            }
+            productRepository.saveAll(products);
+            entityManager.flush();
+            productSearchIndex.index(products);
+            List<Long> ids = products.stream().map(Product::getId).toList();
+            // The other instances drop their pages and filter results, and forget the IDs they remember as
+            // absent; the changes of the chunk are written with its products, in JDBC batches
+            ids.forEach(id -> invalidationBus.publish(InvalidationBus.PRODUCT, id));
+            entityManager.clear();
+            return ids;
+        } finally {
+            session.setCacheMode(cacheMode);
+        }
+    }
+
+    /**
+     * Drop the cached results the products of a committed chunk could appear in.
+     */
+    private void afterCommit(List<Long> ids) {
+        productFilterCache.invalidateAll();
+        pageTotalCache.invalidateAll();
+        Cache pages = cacheManager.getCache(CacheConfig.PRODUCT_PAGES);
+        if (pages != null) {
+            pages.clear();
+        }
+        // Forget the IDs remembered as absent
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS);
+        if (products != null) {
+            ids.forEach(products::evict);
+        }
+    }
+
+    /**
+     * The counts and the first errors of an import.
+     */
+    private static final class Report {
+
+        private final int maxErrors;
+        private final List<ProductImportResultDTO.RowError> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        private Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private void fail(long row, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ProductImportResultDTO.RowError(row, message));
+            }
+        }
+
+        private ProductImportResultDTO toResult() {
+            // Rows of a failed chunk are reported after the rows that failed validation meanwhile
+            errors.sort(Comparator.comparingLong(ProductImportResultDTO.RowError::getRow));
+            return new ProductImportResultDTO(imported, failed, errors, failed > errors.size());
+        }
+    }
+}
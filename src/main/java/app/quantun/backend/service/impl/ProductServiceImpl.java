@@ -1,31 +1,66 @@
 package app.quantun.backend.service.impl;
 
+import app.quantun.backend.cache.AfterCommit;
+import app.quantun.backend.cache.CoalescingCache;
+import app.quantun.backend.cache.InvalidationBus;
+import app.quantun.backend.cache.PageTotalCache;
+import app.quantun.backend.cache.ProductCacheEvictor;
+import app.quantun.backend.cache.ProductFilterCache;
+import app.quantun.backend.cache.ProductFilterKey;
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.exception.InsufficientStockException;
 import app.quantun.backend.exception.ProductNotFoundException;
+import app.quantun.backend.models.contract.request.ProductBulkUpdateDTO;
 import app.quantun.backend.models.contract.request.ProductFilterDTO;
 import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.CursorPage;
+import app.quantun.backend.models.contract.response.ProductBatchResponseDTO;
+import app.quantun.backend.models.contract.response.ProductBulkUpdateResultDTO;
 import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.models.contract.response.TotalAwarePage;
 import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.ProductBulkUpdateRepository;
 import app.quantun.backend.repository.ProductRepository;
 import app.quantun.backend.repository.specification.ProductSpecification;
+import app.quantun.backend.search.ProductSearchIndex;
 import app.quantun.backend.service.ProductService;
+import app.quantun.backend.stock.HotStockCounters;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing products.
  * This class provides methods for CRUD operations on products.
+ * Reads from the database run in read-only transactions: the session keeps no snapshots of the entities it
+ * loads, is never flushed, and the JDBC connection is marked read-only. The filter and multi-get methods
+ * open none, so a cache hit does not take a connection; their queries are read-only through the repository.
  */
 @Service
 @RequiredArgsConstructor
@@ -33,20 +68,27 @@ import java.util.stream.Collectors;
 public class ProductServiceImpl implements ProductService {
     private final ProductRepository productRepository;
     private final ModelMapper modelMapper;
+    private final ProductFilterCache productFilterCache;
+    private final InvalidationBus invalidationBus;
+    private final PageTotalCache pageTotalCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final CacheManager cacheManager;
+    private final ProductCacheEvictor productCacheEvictor;
+    private final HotStockCounters hotStockCounters;
+    private final TransactionTemplate transactionTemplate;
 
     /**
-     * Retrieve a list of all products.
+     * Stream all products to a consumer.
+     * The products are read through a database cursor, so they are never all held in memory.
      *
-     * @return a list of ProductResponseDTO
+     * @param consumer receives each product in turn
      */
     @Override
-    public List<ProductResponseDTO> getAllProducts() {
-        log.info("Retrieving all products");
-        List<ProductResponseDTO> products = productRepository.findAll().stream()
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
-                .collect(Collectors.toList());
-        log.info("Retrieved {} products", products.size());
-        return products;
+    @Transactional(readOnly = true)
+    public void streamAllProducts(Consumer<? super ProductResponseDTO> consumer) {
+        log.info("Streaming all products");
+        long count = drain(productRepository.streamAllResponses(), consumer);
+        log.info("Streamed {} products", count);
     }
 
     /**
@@ -56,7 +98,8 @@ public class ProductServiceImpl implements ProductService {
      * @return an Optional containing the ProductResponseDTO if found, otherwise empty
      */
     @Override
-    @Cacheable(value = "products", key = "#id")
+    @Cacheable(value = CacheConfig.PRODUCTS, key = "#id", sync = true)
+    @Transactional(readOnly = true)
     public Optional<ProductResponseDTO> getProductById(Long id) {
         log.info("Retrieving product with id: {}", id);
         Optional<ProductResponseDTO> product = productRepository.findById(id)
@@ -72,6 +115,87 @@ public class ProductServiceImpl implements ProductService {
         return product;
     }
 
+    /**
+     * Retrieve products by a list of IDs.
+     * Products in the product cache are served from it, and IDs it remembers as absent are reported missing
+     * without a lookup; the rest are loaded with one query and cached, along with the IDs it did not find,
+     * unless they were written or evicted while the query ran. Repeated IDs are answered once.
+     *
+     * @param ids the IDs of the products
+     * @return the products found, in the order of the IDs, and the IDs that match no product
+     */
+    @Override
+    public ProductBatchResponseDTO getProductsByIds(List<Long> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " products can be retrieved at once");
+        }
+        log.info("Retrieving {} products by id", ids.size());
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTS);
+        CoalescingCache coalescingCache = coalescing(cache);
+
+        Map<Long, ProductResponseDTO> found = new HashMap<>();
+        List<Long> uncached = new ArrayList<>();
+        int knownAbsent = 0;
+        for (Long id : requested) {
+            Cache.ValueWrapper cached = cache != null ? cache.get(id) : null;
+            if (cached != null) {
+                // Without negative caching, a product not found is cached as a null entry
+                if (cached.get() instanceof ProductResponseDTO product) {
+                    found.put(id, product);
+                }
+            } else if (coalescingCache != null && coalescingCache.isKnownAbsent(id)) {
+                knownAbsent++;
+            } else {
+                uncached.add(id);
+            }
+        }
+        int cacheHits = found.size();
+
+        if (!uncached.isEmpty()) {
+            // Taken before the query, so a product written or evicted while it runs is not cached from it
+            Map<Long, Long> generations = new HashMap<>();
+            if (coalescingCache != null) {
+                uncached.forEach(id -> generations.put(id, coalescingCache.generation(id)));
+            }
+            for (ProductResponseDTO product : productRepository.findResponsesByIdIn(uncached)) {
+                found.put(product.getId(), product);
+                if (coalescingCache != null) {
+                    coalescingCache.putLoaded(product.getId(), product, generations.get(product.getId()));
+                } else if (cache != null) {
+                    cache.putIfAbsent(product.getId(), product);
+                }
+            }
+            if (coalescingCache != null) {
+                uncached.stream()
+                        .filter(id -> !found.containsKey(id))
+                        .forEach(id -> coalescingCache.putLoaded(id, null, generations.get(id)));
+            }
+        }
+
+        List<ProductResponseDTO> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            ProductResponseDTO product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        log.info("Found {} of {} products ({} from cache, {} known absent)", products.size(), requested.size(),
+                cacheHits, knownAbsent);
+        return new ProductBatchResponseDTO(products, missingIds);
+    }
+
+    /**
+     * @return the coalescing cache behind a cache of the cache manager, or {@code null} if it is not one
+     */
+    private static CoalescingCache coalescing(Cache cache) {
+        Cache target = cache instanceof TransactionAwareCacheDecorator decorator ? decorator.getTargetCache() : cache;
+        return target instanceof CoalescingCache coalescingCache ? coalescingCache : null;
+    }
+
     /**
      * Add a new product to the system.
      *
@@ -80,10 +204,17 @@ public class ProductServiceImpl implements ProductService {
      */
     @Transactional
     @Override
+    @Caching(
+            put = @CachePut(value = CacheConfig.PRODUCTS, key = "#result.id"),
+            evict = @CacheEvict(value = CacheConfig.PRODUCT_PAGES, allEntries = true)
+    )
     public ProductResponseDTO createProduct(ProductRequestDTO productRequestDTO) {
         log.info("Creating new product: {}", productRequestDTO.getName());
         Product product = modelMapper.map(productRequestDTO, Product.class);
         Product savedProduct = productRepository.save(product);
+        productSearchIndex.index(savedProduct);
+        invalidateFilterResults(savedProduct);
+        invalidationBus.publish(InvalidationBus.PRODUCT, savedProduct.getId());
         log.info("Product created with id: {}", savedProduct.getId());
         return modelMapper.map(savedProduct, ProductResponseDTO.class);
     }
@@ -97,13 +228,21 @@ public class ProductServiceImpl implements ProductService {
      */
     @Transactional
     @Override
+    @Caching(
+            put = @CachePut(value = CacheConfig.PRODUCTS, key = "#id"),
+            evict = @CacheEvict(value = CacheConfig.PRODUCT_PAGES, allEntries = true)
+    )
     public ProductResponseDTO updateProduct(Long id, ProductRequestDTO productRequestDTO) {
         log.info("Updating product with id: {}", id);
         return productRepository.findById(id)
                 .map(existingProduct -> {
                     log.debug("Found product to update: {}", existingProduct.getName());
+                    invalidateFilterResults(existingProduct);
                     updateProductFields(existingProduct, productRequestDTO);
                     Product updatedProduct = productRepository.save(existingProduct);
+                    productSearchIndex.index(updatedProduct);
+                    invalidateFilterResults(updatedProduct);
+                    invalidationBus.publish(InvalidationBus.PRODUCT, id);
                     log.info("Product updated successfully: {}", updatedProduct.getId());
                     return modelMapper.map(updatedProduct, ProductResponseDTO.class);
                 })
@@ -113,6 +252,160 @@ public class ProductServiceImpl implements ProductService {
                 });
     }
 
+    /**
+     * Update the price and stock of many products with set-based statements.
+     * Products updated by ID are evicted from the product cache and the second-level cache one by one, while
+     * the products of a category, whose IDs are not read back, are all evicted with a single change published;
+     * the pages, filter results and totals they could appear in are dropped as for a single update.
+     *
+     * @param request the products to update and their change
+     * @return the number of products updated and the requested IDs that match no product
+     * @throws InsufficientStockException if the stock set is below the units leased to hot stock counters of any
+     *                                    product, in which case no product is updated
+     */
+    @Transactional
+    @Override
+    public ProductBulkUpdateResultDTO bulkUpdateProducts(ProductBulkUpdateDTO request) {
+        ProductBulkUpdateRepository.PriceStockChange change = new ProductBulkUpdateRepository.PriceStockChange(
+                request.getPriceFactor(), request.getPrice(), request.getStock(), LocalDateTime.now());
+        long updated;
+        List<Long> missingIds = List.of();
+        if (request.getCategoryId() != null) {
+            log.info("Bulk updating the products of category {}", request.getCategoryId());
+            updated = productRepository.updateByCategoryId(request.getCategoryId(), change);
+            if (request.getStock() != null) {
+                rejectLeased(productRepository.findIdsLeasedAbove(request.getCategoryId(), request.getStock()),
+                        request.getStock());
+            }
+            productFilterCache.invalidate(request.getCategoryId(), null);
+            pageTotalCache.invalidate();
+            productCacheEvictor.evictCategoryProducts(request.getCategoryId());
+        } else {
+            List<Long> ids = request.getIds().stream().distinct().toList();
+            log.info("Bulk updating {} products by ID", ids.size());
+            List<Long> updatedIds = productRepository.updateByIds(ids, change);
+            updated = updatedIds.size();
+            Set<Long> found = new HashSet<>(updatedIds);
+            missingIds = ids.stream().filter(id -> !found.contains(id)).toList();
+            if (request.getStock() != null && !missingIds.isEmpty()) {
+                rejectLeased(productRepository.findIdsLeasedAbove(missingIds, request.getStock()),
+                        request.getStock());
+            }
+            // The categories and prices of the products are not read, so any filter result may have changed
+            AfterCommit.run(productFilterCache::invalidateAll);
+            pageTotalCache.invalidate();
+            productCacheEvictor.evict(updatedIds, true);
+        }
+        log.info("Bulk updated {} products, {} requested IDs not found", updated, missingIds.size());
+        return new ProductBulkUpdateResultDTO(updated, missingIds);
+    }
+
+    /**
+     * Reserve stock of a product with a conditional update, so concurrent reservations never oversell.
+     * Hot products reserve from their in-memory counter instead, which writes the reservations behind;
+     * the database is then only written when the counter leases more stock.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to reserve
+     * @throws InsufficientStockException if the product has less stock than the quantity
+     */
+    @Override
+    public void reserveStock(Long id, int quantity) {
+        requirePositive(quantity);
+        if (hotStockCounters.isHot(id)) {
+            if (!hotStockCounters.tryReserve(id, quantity)) {
+                throw stockConflict(id, "less stock than " + quantity);
+            }
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (productRepository.reserveStock(id, quantity, false, now) == 1) {
+                productCacheEvictor.evictStockChange(List.of(id), false);
+            } else if (productRepository.reserveStock(id, quantity, true, now) == 1) {
+                log.info("Product {} is out of stock", id);
+                productCacheEvictor.evictStockChange(List.of(id), true);
+            } else {
+                throw stockConflict(id, "less stock than " + quantity);
+            }
+        });
+    }
+
+    /**
+     * Return reserved stock of a product to its stock, such as when a checkout is abandoned.
+     * The reservations of a hot product are flushed first, in a transaction of their own, so that its reserved
+     * units include them.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to release
+     * @throws InsufficientStockException if the product has fewer reserved units than the quantity
+     */
+    @Override
+    public void releaseStock(Long id, int quantity) {
+        requirePositive(quantity);
+        hotStockCounters.flush(id);
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (productRepository.releaseStock(id, quantity, false, now) == 1) {
+                productCacheEvictor.evictStockChange(List.of(id), false);
+            } else if (productRepository.releaseStock(id, quantity, true, now) == 1) {
+                log.info("Product {} is back in stock", id);
+                productCacheEvictor.evictStockChange(List.of(id), true);
+            } else {
+                throw stockConflict(id, "fewer reserved units than " + quantity);
+            }
+        });
+    }
+
+    /**
+     * Remove reserved stock of a product for good, once the order holding it is completed.
+     * The reservations of a hot product are flushed first, as for {@link #releaseStock(Long, int)}.
+     *
+     * @param id       the ID of the product
+     * @param quantity the quantity to commit
+     * @throws InsufficientStockException if the product has fewer reserved units than the quantity
+     */
+    @Override
+    public void commitStock(Long id, int quantity) {
+        requirePositive(quantity);
+        hotStockCounters.flush(id);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (productRepository.commitStock(id, quantity) == 0) {
+                throw stockConflict(id, "fewer reserved units than " + quantity);
+            }
+            // The stock is unchanged, only the reserved units and version held by the second-level cache are stale
+            productCacheEvictor.evictVersion(id);
+        });
+    }
+
+    /**
+     * Reject a bulk update that left products unchanged because the stock set is below their units leased to
+     * the counters of hot products, rolling back the products it updated.
+     */
+    private static void rejectLeased(List<Long> leasedIds, int stock) {
+        if (!leasedIds.isEmpty()) {
+            throw new InsufficientStockException("Products " + leasedIds + " have more units leased to hot stock "
+                    + "counters than a stock of " + stock);
+        }
+    }
+
+    private static void requirePositive(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive, was " + quantity);
+        }
+    }
+
+    /**
+     * The exception of a stock update that matched no product, telling a missing product from a lack of stock.
+     */
+    private RuntimeException stockConflict(Long id, String shortage) {
+        if (!productRepository.existsById(id)) {
+            return new ProductNotFoundException("Product not found with id " + id);
+        }
+        return new InsufficientStockException("Product " + id + " has " + shortage);
+    }
+
+
     /**
      * Update the fields of an existing product with the provided details.
      *
@@ -138,6 +431,12 @@ public class ProductServiceImpl implements ProductService {
         existingProduct.setInStock(productRequestDTO.isInStock());
 
         if (productRequestDTO.getStock() > 0) {
+            // The leased units are read with the version of the product, so a lease since then fails the save
+            if (productRequestDTO.getStock() < existingProduct.getLeased()) {
+                throw new InsufficientStockException("Product " + existingProduct.getId() + " has "
+                        + existingProduct.getLeased() + " units leased to hot stock counters, more than a stock of "
+                        + productRequestDTO.getStock());
+            }
             log.debug("Updating stock quantity to: {}", productRequestDTO.getStock());
             existingProduct.setStock(productRequestDTO.getStock());
         }
@@ -145,12 +444,17 @@ public class ProductServiceImpl implements ProductService {
 
     /**
      * Remove a product from the system.
+     * The counter and the stock leases of a hot product are dropped along with it, so its leased units are no
+     * longer reserved.
      *
      * @param id the ID of the product to be deleted
      */
     @Transactional
     @Override
-    @CacheEvict(value = "products", key = "#id")
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.PRODUCTS, key = "#id"),
+            @CacheEvict(value = CacheConfig.PRODUCT_PAGES, allEntries = true)
+    })
     public void deleteProduct(Long id) {
         log.info("Deleting product with id: {}", id);
         Product product = productRepository.findById(id)
@@ -158,10 +462,26 @@ public class ProductServiceImpl implements ProductService {
                     log.error("Failed to delete - product not found with id: {}", id);
                     return new ProductNotFoundException("Product not found with id " + id);
                 });
+        hotStockCounters.remove(id);
         productRepository.delete(product);
+        productSearchIndex.remove(id);
+        invalidateFilterResults(product);
+        invalidationBus.publish(InvalidationBus.PRODUCT, id);
         log.info("Product deleted successfully: {}", id);
     }
 
+    /**
+     * Invalidate the cached filter results a product could appear in, and the memoized page totals.
+     * Called with the state of the product before and after a change.
+     *
+     * @param product the product
+     */
+    private void invalidateFilterResults(Product product) {
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        productFilterCache.invalidate(categoryId, product.getPrice());
+        pageTotalCache.invalidate();
+    }
+
     /**
      * Find products containing the given name.
      *
@@ -169,44 +489,39 @@ public class ProductServiceImpl implements ProductService {
      * @return a list of ProductResponseDTO
      */
     @Override
+    @Transactional(readOnly = true)
     public List<ProductResponseDTO> searchProductsByName(String name) {
         log.info("Searching products by name: {}", name);
-        List<ProductResponseDTO> products = productRepository.findByNameContaining(name).stream()
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
-                .collect(Collectors.toList());
+        List<ProductResponseDTO> products = productRepository.findResponses(productSearchIndex.nameContains(name));
         log.info("Found {} products matching name: {}", products.size(), name);
         return products;
     }
 
     /**
-     * Retrieve products priced below a given value.
+     * Stream the products priced below a given value to a consumer.
      *
-     * @param price the maximum price
-     * @return a list of ProductResponseDTO
+     * @param price    the maximum price
+     * @param consumer receives each product in turn
      */
     @Override
-    public List<ProductResponseDTO> getProductsUnderPrice(BigDecimal price) {
-        log.info("Retrieving products under price: {}", price);
-        List<ProductResponseDTO> products = productRepository.findByPriceLessThan(price).stream()
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
-                .collect(Collectors.toList());
-        log.info("Found {} products under price: {}", products.size(), price);
-        return products;
+    @Transactional(readOnly = true)
+    public void streamProductsUnderPrice(BigDecimal price, Consumer<? super ProductResponseDTO> consumer) {
+        log.info("Streaming products under price: {}", price);
+        long count = drain(productRepository.streamResponsesByPriceLessThan(price), consumer);
+        log.info("Streamed {} products under price: {}", count, price);
     }
 
     /**
-     * Retrieve all products that are currently in stock.
+     * Stream the products that are currently in stock to a consumer.
      *
-     * @return a list of ProductResponseDTO
+     * @param consumer receives each product in turn
      */
     @Override
-    public List<ProductResponseDTO> getInStockProducts() {
-        log.info("Retrieving in-stock products");
-        List<ProductResponseDTO> products = productRepository.findByInStock(true).stream()
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
-                .collect(Collectors.toList());
-        log.info("Found {} in-stock products", products.size());
-        return products;
+    @Transactional(readOnly = true)
+    public void streamInStockProducts(Consumer<? super ProductResponseDTO> consumer) {
+        log.info("Streaming in-stock products");
+        long count = drain(productRepository.streamResponsesByInStock(true), consumer);
+        log.info("Streamed {} in-stock products", count);
     }
 
     /**
@@ -216,12 +531,15 @@ public class ProductServiceImpl implements ProductService {
      * @return a page of ProductResponseDTO
      */
     @Override
+    @Cacheable(value = CacheConfig.PRODUCT_PAGES, key = "{'all', #pageable}", unless = "#result.totalEstimated")
+    @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getAllProductsPaged(Pageable pageable) {
         log.info("Retrieving paged products with page: {}, size: {}", pageable.getPageNumber(), pageable.getPageSize());
-        Page<ProductResponseDTO> productPage = productRepository.findAll(pageable)
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class));
-        log.info("Retrieved page {} of {} with {} products",
-                productPage.getNumber(), productPage.getTotalPages(), productPage.getNumberOfElements());
+        TotalAwarePage<ProductResponseDTO> productPage = pageTotalCache.page(
+                List.of("all"), productRepository.findResponseSliceBy(pageable), productRepository::count);
+        log.info("Retrieved page {} of {} ({} total) with {} products",
+                productPage.getNumber(), productPage.getTotalPages(), productPage.getTotal(),
+                productPage.getNumberOfElements());
         return productPage;
     }
 
@@ -233,14 +551,17 @@ public class ProductServiceImpl implements ProductService {
      * @return a page of ProductResponseDTO
      */
     @Override
+    @Cacheable(value = CacheConfig.PRODUCT_PAGES, key = "{'name', #name, #pageable}", unless = "#result.totalEstimated")
+    @Transactional(readOnly = true)
     public Page<ProductResponseDTO> searchProductsByNamePaged(String name, Pageable pageable) {
         log.info("Searching paged products by name: {} with page: {}, size: {}",
                 name, pageable.getPageNumber(), pageable.getPageSize());
-        Page<Product> productPage = productRepository.findByNameContaining(name, pageable);
-        Page<ProductResponseDTO> result = productPage
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class));
-        log.info("Found page {} of {} with {} products matching name: {}",
-                result.getNumber(), result.getTotalPages(), result.getNumberOfElements(), name);
+        Specification<Product> nameContains = productSearchIndex.nameContains(name);
+        Slice<ProductResponseDTO> productSlice = productRepository.findResponseSlice(nameContains, pageable);
+        TotalAwarePage<ProductResponseDTO> result = pageTotalCache.page(List.of("name", name), productSlice,
+                () -> productRepository.count(nameContains));
+        log.info("Found page {} of {} ({} total) with {} products matching name: {}",
+                result.getNumber(), result.getTotalPages(), result.getTotal(), result.getNumberOfElements(), name);
         return result;
     }
 
@@ -252,14 +573,16 @@ public class ProductServiceImpl implements ProductService {
      * @return a page of ProductResponseDTO
      */
     @Override
+    @Cacheable(value = CacheConfig.PRODUCT_PAGES, key = "{'underPrice', #price, #pageable}", unless = "#result.totalEstimated")
+    @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getProductsUnderPricePaged(BigDecimal price, Pageable pageable) {
         log.info("Retrieving paged products under price: {} with page: {}, size: {}",
                 price, pageable.getPageNumber(), pageable.getPageSize());
-        Page<Product> productPage = productRepository.findByPriceLessThan(price, pageable);
-        Page<ProductResponseDTO> result = productPage
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class));
-        log.info("Found page {} of {} with {} products under price: {}",
-                result.getNumber(), result.getTotalPages(), result.getNumberOfElements(), price);
+        Slice<ProductResponseDTO> productSlice = productRepository.findResponseSliceByPriceLessThan(price, pageable);
+        TotalAwarePage<ProductResponseDTO> result = pageTotalCache.page(List.of("underPrice", price), productSlice,
+                () -> productRepository.countByPriceLessThan(price));
+        log.info("Found page {} of {} ({} total) with {} products under price: {}",
+                result.getNumber(), result.getTotalPages(), result.getTotal(), result.getNumberOfElements(), price);
         return result;
     }
 
@@ -270,14 +593,16 @@ public class ProductServiceImpl implements ProductService {
      * @return a page of ProductResponseDTO
      */
     @Override
+    @Cacheable(value = CacheConfig.PRODUCT_PAGES, key = "{'inStock', #pageable}", unless = "#result.totalEstimated")
+    @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getInStockProductsPaged(Pageable pageable) {
         log.info("Retrieving paged in-stock products with page: {}, size: {}",
                 pageable.getPageNumber(), pageable.getPageSize());
-        Page<Product> productPage = productRepository.findByInStock(true, pageable);
-        Page<ProductResponseDTO> result = productPage
-                .map(product -> modelMapper.map(product, ProductResponseDTO.class));
-        log.info("Found page {} of {} with {} in-stock products",
-                result.getNumber(), result.getTotalPages(), result.getNumberOfElements());
+        Slice<ProductResponseDTO> productSlice = productRepository.findResponseSliceByInStock(true, pageable);
+        TotalAwarePage<ProductResponseDTO> result = pageTotalCache.page(List.of("inStock"), productSlice,
+                () -> productRepository.countByInStock(true));
+        log.info("Found page {} of {} ({} total) with {} in-stock products",
+                result.getNumber(), result.getTotalPages(), result.getTotal(), result.getNumberOfElements());
         return result;
     }
 
@@ -290,7 +615,16 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public Page<ProductResponseDTO> filterProducts(ProductFilterDTO filter) {
         log.info("Filtering products with criteria: {}", filter);
+        return productFilterCache.get(ProductFilterKey.of(filter, false), () -> loadFilteredProducts(filter));
+    }
 
+    /**
+     * Run a filter query with pagination against the database.
+     *
+     * @param filter the filter criteria
+     * @return a page of products matching the filter criteria
+     */
+    private Page<ProductResponseDTO> loadFilteredProducts(ProductFilterDTO filter) {
         // Create pageable with sorting
         Pageable pageable = PageRequest.of(
                 filter.getPage(),
@@ -298,21 +632,20 @@ public class ProductServiceImpl implements ProductService {
                 Sort.by(filter.getSortDirection(), filter.getSortBy())
         );
 
-        // Apply specification and pagination
-        Page<Product> productPage = productRepository.findAll(
-                ProductSpecification.getProductSpecification(filter),
-                pageable
-        );
+        // Fetch one row past the page instead of counting, the total comes from the page total cache
+        Specification<Product> specification = ProductSpecification.getProductSpecification(filter, productSearchIndex);
+        Slice<ProductResponseDTO> productSlice = productRepository.findResponseSlice(specification, pageable);
 
-        // Map to DTOs
-        Page<ProductResponseDTO> responsePage = productPage.map(
-                product -> modelMapper.map(product, ProductResponseDTO.class)
+        TotalAwarePage<ProductResponseDTO> responsePage = pageTotalCache.page(
+                ProductFilterKey.of(filter, false).withoutPaging(), productSlice,
+                () -> productRepository.count(specification)
         );
 
-        log.info("Filtered {} products (page {} of {})",
+        log.info("Filtered {} products (page {} of {}, {} total)",
                 responsePage.getNumberOfElements(),
                 responsePage.getNumber() + 1,
-                responsePage.getTotalPages());
+                responsePage.getTotalPages(),
+                responsePage.getTotal());
 
         return responsePage;
     }
@@ -326,7 +659,16 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public Slice<ProductResponseDTO> filterProductsWithSlice(ProductFilterDTO filter) {
         log.info("Filtering products with criteria using slice: {}", filter);
+        return productFilterCache.get(ProductFilterKey.of(filter, true), () -> loadFilteredProductSlice(filter));
+    }
 
+    /**
+     * Run a filter query with slice-based pagination against the database.
+     *
+     * @param filter the filter criteria
+     * @return a slice of products matching the filter criteria
+     */
+    private Slice<ProductResponseDTO> loadFilteredProductSlice(ProductFilterDTO filter) {
         // Create pageable with sorting
         Pageable pageable = PageRequest.of(
                 filter.getPage(),
@@ -334,18 +676,12 @@ public class ProductServiceImpl implements ProductService {
                 Sort.by(filter.getSortDirection(), filter.getSortBy())
         );
 
-        // Apply specification and pagination
-
-        Slice<Product> productSlice = productRepository.findAll(
-                Specification.where(ProductSpecification.getProductSpecification(filter)),
+        // Apply specification and pagination, selecting only the DTO columns
+        Slice<ProductResponseDTO> responseSlice = productRepository.findResponseSlice(
+                ProductSpecification.getProductSpecification(filter, productSearchIndex),
                 pageable
         );
 
-        // Map to DTOs
-        Slice<ProductResponseDTO> responseSlice = productSlice.map(
-                product -> modelMapper.map(product, ProductResponseDTO.class)
-        );
-
         log.info("Filtered {} products (slice page {})",
                 responseSlice.getNumberOfElements(),
                 responseSlice.getNumber() + 1);
@@ -353,5 +689,56 @@ public class ProductServiceImpl implements ProductService {
         return responseSlice;
     }
 
+    /**
+     * Retrieve products by keyset (cursor) pagination.
+     *
+     * @param cursor    the cursor returned with the previous page, or {@code null} for the first page
+     * @param size      the page size
+     * @param sortBy    the property to sort by
+     * @param direction the sort direction
+     * @return the page of products with the cursor of the next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponseDTO> getAllProductsByCursor(String cursor, int size, String sortBy,
+                                                                 Sort.Direction direction) {
+        log.info("Retrieving products after cursor with size: {}, sorted by: {} {}", size, sortBy, direction);
+        return ProductCursors.scroll(productRepository, Specification.where(null), cursor, size, sortBy, direction,
+                product -> modelMapper.map(product, ProductResponseDTO.class));
+    }
 
+    /**
+     * Filter products using criteria with keyset (cursor) pagination.
+     * The page number of the filter is ignored; the cursor of the filter selects the page.
+     *
+     * @param filter the filter criteria
+     * @return the page of products with the cursor of the next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponseDTO> filterProductsByCursor(ProductFilterDTO filter) {
+        log.info("Filtering products with criteria using cursor: {}", filter);
+        CursorPage<ProductResponseDTO> result = ProductCursors.scroll(productRepository,
+                ProductSpecification.getProductSpecification(filter, productSearchIndex), filter.getCursor(),
+                filter.getSize() != null ? filter.getSize() : 10,
+                filter.getSortBy(), filter.getSortDirection(),
+                product -> modelMapper.map(product, ProductResponseDTO.class));
+        log.info("Filtered {} products (has next: {})", result.getSize(), result.isHasNext());
+        return result;
+    }
+
+    /**
+     * Hand every product of a stream to a consumer, then close the stream and its cursor.
+     *
+     * @return the number of products consumed
+     */
+    private static long drain(Stream<ProductResponseDTO> products, Consumer<? super ProductResponseDTO> consumer) {
+        try (products) {
+            long count = 0;
+            for (Iterator<ProductResponseDTO> iterator = products.iterator(); iterator.hasNext(); count++) {
+                consumer.accept(iterator.next());
+            }
+            return count;
+        }
+    }
 }
@@ -0,0 +1,555 @@
+package app.quantun.backend.stock;
+
+import app.quantun.backend.cache.ProductCacheEvictor;
+import app.quantun.backend.config.AppCacheProperties;
+import app.quantun.backend.config.AppStockProperties;
+import app.quantun.backend.models.entity.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory stock of the hot products, reserved from striped counters without a database write per reservation.
+ * <p>
+ * The stock of a product stays in its row; a counter leases a part of it, counted in {@link Product#getLeased()}
+ * and in a {@code stock_lease} row of this instance, and reservations take from the lease in memory. Stock that is
+ * leased is not available to the conditional reservations in the database, so the two never sell the same units.
+ * The units taken are flushed behind, every {@code app.stock.hot.flush-interval}, in one transaction moving them
+ * from the stock and the lease to the reserved units, after which the product is evicted from the caches as for
+ * any stock update. The stock read through the product is therefore behind by at most one flush interval.
+ * <p>
+ * Every flush renews the leases of this instance. The flushes run on a thread of their own, so the other
+ * scheduled tasks, such as the recovery or the invalidation poll, never delay a renewal. A lease not renewed for {@code app.stock.hot.lease-timeout},
+ * such as the lease of an instance that crashed, is taken back by any instance: since the units sold and not yet
+ * flushed are unknown, all its units are moved to {@link Product#getRecovered()}, apart from the reserved units,
+ * to be reconciled against the orders. Leases are renewed, and their expiry checked, with the clock of the
+ * database rather than of the instances, so an instance whose clock runs ahead does not take back the healthy
+ * leases of the others. An instance
+ * stops reserving from a lease it could not renew for half the timeout, long before it can be taken back.
+ * On shutdown the units taken are flushed and the units left returned to the stock.
+ * <p>
+ * The reserved units of a hot product lag its reservations by up to a flush, so releasing or committing them
+ * flushes the product first, with {@link #flush(Long)}. Deleting a hot product drops its counter and its leases
+ * with {@link #remove(Long)}; a product whose row is gone otherwise, which no flush or recovery can write to, is
+ * dropped the same way by the first flush or recovery that finds it gone, without failing the other products.
+ */
+@Component
+@Slf4j
+public class HotStockCounters {
+
+    private static final String RENEW = "UPDATE stock_lease SET quantity = quantity - ?, "
+            + "renewed_at = CURRENT_TIMESTAMP WHERE product_id = ? AND node_id = ?";
+
+    private static final String INSERT_LEASE = "INSERT INTO stock_lease (product_id, node_id, quantity, renewed_at) "
+            + "VALUES (?, ?, ?, CURRENT_TIMESTAMP)";
+
+    private static final String DELETE_LEASE = "DELETE FROM stock_lease WHERE product_id = ? AND node_id = ?";
+
+    private static final String DELETE_LEASES = "DELETE FROM stock_lease WHERE product_id = ?";
+
+    private static final String AVAILABLE = "SELECT stock - leased FROM product WHERE id = ? FOR UPDATE";
+
+    private static final String LEASE = "UPDATE product SET leased = leased + ?, version = version + 1 WHERE id = ?";
+
+    /**
+     * Moves the units taken from a lease out of the stock, to the column named; when a lease is returned, the
+     * units it releases also include the units left. Like the conditional reservations, it comes in two forms,
+     * completed with {@code > ?} or {@code = ?}, split on whether the units taken are all of the stock, so the
+     * caller knows which products go out of stock. Neither form matches a product that was deleted.
+     */
+    private static final String TAKE = "UPDATE product SET stock = stock - ?, leased = leased - ?, "
+            + "%1$s = %1$s + ?, in_stock = ?, updated_at = ?, version = version + 1 WHERE id = ? AND stock ";
+
+    private static final String FLUSH = TAKE.formatted("reserved");
+
+    private static final String RECOVER = TAKE.formatted("recovered");
+
+    private final AppStockProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCacheEvictor productCacheEvictor;
+    private final String nodeId;
+    private final Map<Long, HotProduct> products = new LinkedHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hot-stock-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean closed;
+
+    public HotStockCounters(AppStockProperties properties, JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate, ProductCacheEvictor productCacheEvictor,
+                            AppCacheProperties cacheProperties) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.productCacheEvictor = productCacheEvictor;
+        this.nodeId = cacheProperties.getInvalidation().getNodeId();
+        int stripes = properties.getStripes() > 0
+                ? properties.getStripes()
+                : Runtime.getRuntime().availableProcessors();
+        properties.getProductIds().forEach(id -> products.put(id, new HotProduct(new StripedStockCounter(stripes))));
+    }
+
+    /**
+     * Whether the stock of a product is reserved from its counter: the hot products are enabled, the product is
+     * one of them, and its lease, if any, was renewed recently enough to be safe from being taken back.
+     *
+     * @param id the ID of the product
+     * @return whether reservations of the product go through {@link #tryReserve(Long, int)}
+     */
+    public boolean isHot(Long id) {
+        if (!properties.isEnabled() || closed) {
+            return false;
+        }
+        HotProduct product = products.get(id);
+        return product != null && !product.removed && (!product.held
+                || System.nanoTime() - product.renewedAt < properties.getLeaseTimeout().toNanos() / 2);
+    }
+
+    /**
+     * Reserve stock of a hot product from its counter, leasing more from the database when the counter runs out.
+     * The reservation reaches the database with the next flush.
+     *
+     * @param id       the ID of a product for which {@link #isHot(Long)} holds
+     * @param quantity the quantity to reserve, positive
+     * @return whether the stock was reserved; {@code false} if the counter and the database together have less
+     * stock than the quantity, or if the product does not exist
+     */
+    public boolean tryReserve(Long id, int quantity) {
+        HotProduct product = products.get(id);
+        if (product.counter.tryTake(quantity)) {
+            return true;
+        }
+        // The counter is short, or its units are spread over the stripes; one thread at a time gathers them
+        synchronized (product) {
+            // Removed since isHot; its counter is empty
+            if (product.removed) {
+                return false;
+            }
+            if (product.counter.tryTake(quantity)) {
+                return true;
+            }
+            long drained = product.counter.drainAvailable();
+            Lease lease;
+            try {
+                lease = drained >= quantity
+                        ? new Lease(false, product.held, 0)
+                        : transactionTemplate.execute(status -> lease(id, product.held, quantity, drained));
+            } catch (RuntimeException e) {
+                product.counter.add(drained);
+                throw e;
+            }
+            long remaining = drained;
+            if (lease.lost()) {
+                // The units of the lost lease were recovered when it was taken back
+                log.warn("The stock lease of product {} was taken back, discarding {} units", id, remaining);
+                product.counter.drainTaken();
+                remaining = 0;
+            }
+            if (drained < quantity) {
+                product.held = lease.held();
+                product.renewedAt = System.nanoTime();
+            }
+            long units = remaining + lease.units();
+            if (units < quantity) {
+                product.counter.add(units);
+                return false;
+            }
+            product.counter.addTaken(quantity);
+            product.counter.add(units - quantity);
+            return true;
+        }
+    }
+
+    /**
+     * Start flushing every {@code app.stock.hot.flush-interval} if the hot products are enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long interval = properties.getFlushInterval().toNanos();
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // An exception would cancel the next flushes, and with them the renewals
+                log.error("Could not flush the hot product stock", e);
+            }
+        }, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Flush the units taken from the counters to the database, renewing the leases of this instance.
+     * Flushes run one at a time, so a flush returns once every unit taken before it is written.
+     */
+    public void flush() {
+        flush(products.keySet());
+    }
+
+    /**
+     * Flush the units taken from the counter of a product, so that its reserved units include every reservation
+     * made before; does nothing if the product is not one of the hot products.
+     *
+     * @param id the ID of the product
+     */
+    public void flush(Long id) {
+        if (products.containsKey(id)) {
+            flush(Set.of(id));
+        }
+    }
+
+    private synchronized void flush(Set<Long> ids) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Map<Long, Long> taken = new LinkedHashMap<>();
+        ids.forEach(id -> {
+            HotProduct product = products.get(id);
+            if (product.held && !product.removed) {
+                taken.put(id, product.counter.drainTaken());
+            }
+        });
+        if (taken.isEmpty()) {
+            return;
+        }
+        Written written;
+        try {
+            written = transactionTemplate.execute(status -> write(taken));
+        } catch (RuntimeException e) {
+            // The next flush writes them again
+            taken.forEach((id, units) -> products.get(id).counter.addTaken(units));
+            log.warn("Could not flush the hot product stock: {}", e.getMessage());
+            return;
+        }
+        long now = System.nanoTime();
+        taken.keySet().forEach(id -> {
+            HotProduct product = products.get(id);
+            if (written.gone().contains(id)) {
+                drop(id, product);
+            } else if (written.lost().contains(id)) {
+                synchronized (product) {
+                    log.warn("The stock lease of product {} was taken back, discarding {} units", id,
+                            product.counter.drainAvailable());
+                    product.counter.drainTaken();
+                    product.held = false;
+                }
+            } else {
+                product.renewedAt = now;
+            }
+        });
+    }
+
+    /**
+     * Drop the counter of a product that is being deleted, and every lease of the product, within the
+     * transaction deleting it; the other instances find their leases gone with their next flush, and discard
+     * their counters. Does nothing to the counters if the product is not one of the hot products.
+     * If the transaction rolls back, the counter is restored as it was.
+     *
+     * @param id the ID of the product
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public synchronized void remove(Long id) {
+        jdbcTemplate.update(DELETE_LEASES, id);
+        HotProduct product = products.get(id);
+        if (product == null) {
+            return;
+        }
+        synchronized (product) {
+            boolean held = product.held;
+            long left = product.counter.drainAvailable();
+            long taken = product.counter.drainTaken();
+            product.removed = true;
+            product.held = false;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        log.info("Dropped the counter of deleted product {}, discarding {} units taken", id, taken);
+                        return;
+                    }
+                    synchronized (product) {
+                        product.counter.add(left);
+                        product.counter.addTaken(taken);
+                        product.held = held;
+                        product.removed = false;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Take back the leases of any instance that were not renewed within the timeout, as of the clock of the
+     * database, moving their units to the recovered units.
+     */
+    @Scheduled(fixedDelayString = "${app.stock.hot.lease-timeout:PT30S}")
+    public void recover() {
+        Timestamp expired = Timestamp.from(databaseTime().minus(properties.getLeaseTimeout()));
+        List<Map<String, Object>> leases = jdbcTemplate.queryForList(
+                "SELECT product_id, node_id FROM stock_lease WHERE renewed_at < ?", expired);
+        for (Map<String, Object> lease : leases) {
+            Long id = ((Number) lease.get("product_id")).longValue();
+            String node = (String) lease.get("node_id");
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<Integer> quantity = jdbcTemplate.queryForList("SELECT quantity FROM stock_lease "
+                            + "WHERE product_id = ? AND node_id = ? AND renewed_at < ? FOR UPDATE",
+                            Integer.class, id, node, expired);
+                    // Renewed or taken back since it was listed
+                    if (quantity.isEmpty()) {
+                        return;
+                    }
+                    int units = quantity.get(0);
+                    jdbcTemplate.update(DELETE_LEASE, id, node);
+                    Taken taken = take(RECOVER, id, units, units);
+                    if (taken == Taken.GONE) {
+                        log.warn("Dropped the expired stock lease of product {} from instance {}, "
+                                + "whose product is gone", id, node);
+                        return;
+                    }
+                    productCacheEvictor.evictStockChange(List.of(id), taken == Taken.OUT_OF_STOCK);
+                    log.warn("Took back the expired stock lease of product {} from instance {}, "
+                            + "recovering its {} units", id, node, units);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Could not take back the stock lease of product {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Flush the units taken and return the units left to the stock, so the leases of this instance end with it.
+     * Runs apart from the flushes, which would otherwise find the leases gone and discard their units.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        closed = true;
+        // A flush running holds the lock of this instance, so none runs from here on
+        flusher.shutdown();
+        products.forEach((id, product) -> {
+            synchronized (product) {
+                if (!product.held || product.removed) {
+                    return;
+                }
+                long left = product.counter.drainAvailable();
+                long taken = product.counter.drainTaken();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (jdbcTemplate.update(DELETE_LEASE, id, nodeId) == 1) {
+                            Taken flushed = take(FLUSH, id, taken, taken + left);
+                            if (flushed != Taken.GONE) {
+                                productCacheEvictor.evictStockChange(List.of(id), flushed == Taken.OUT_OF_STOCK);
+                            }
+                        }
+                    });
+                    product.held = false;
+                } catch (RuntimeException e) {
+                    log.warn("Could not return the stock lease of product {}, it is taken back after {}: {}", id,
+                            properties.getLeaseTimeout(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Lease units of a product to this instance, enough for the quantity with the units remaining in its counter.
+     * The lease row is locked before the product row, in the order of the flush and the recovery.
+     */
+    private Lease lease(Long id, boolean held, int quantity, long remaining) {
+        boolean renewed = jdbcTemplate.update(RENEW, 0, id, nodeId) == 1;
+        boolean lost = held && !renewed;
+        long needed = quantity - (lost ? 0 : remaining);
+        List<Long> available = jdbcTemplate.queryForList(AVAILABLE, Long.class, id);
+        long units = available.isEmpty() ? 0 : Math.min(Math.max(properties.getLeaseSize(), needed), available.get(0));
+        if (units < needed) {
+            return new Lease(lost, renewed, 0);
+        }
+        jdbcTemplate.update(LEASE, units, id);
+        if (renewed) {
+            jdbcTemplate.update(RENEW, -units, id, nodeId);
+        } else {
+            jdbcTemplate.update(INSERT_LEASE, id, nodeId, units);
+        }
+        // Only the leased units and version held by the second-level cache are stale
+        productCacheEvictor.evictVersion(id);
+        log.debug("Leased {} units of product {}", units, id);
+        return new Lease(lost, true, units);
+    }
+
+    /**
+     * Renew the leases of this instance and move the units taken from them to the reserved units.
+     * The lease of a product that is gone is deleted rather than failing the flush of the others.
+     *
+     * @return the IDs of the products whose lease was taken back, and of those that are gone
+     */
+    private Written write(Map<Long, Long> taken) {
+        List<Long> ids = new ArrayList<>(taken.keySet());
+        int[] renewed = jdbcTemplate.batchUpdate(RENEW, ids.stream()
+                .map(id -> new Object[]{taken.get(id), id, nodeId})
+                .toList());
+        Set<Long> lost = new HashSet<>();
+        List<Long> flushedIds = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (renewed[i] == 0) {
+                lost.add(id);
+            } else if (taken.get(id) > 0) {
+                flushedIds.add(id);
+            }
+        }
+        if (flushedIds.isEmpty()) {
+            return new Written(lost, Set.of());
+        }
+        LocalDateTime updatedAt = LocalDateTime.now();
+        int[] kept = jdbcTemplate.batchUpdate(FLUSH + "> ?", flushedIds.stream()
+                .map(id -> flushRow(id, taken.get(id), true, updatedAt))
+                .toList());
+        List<Long> inStockIds = new ArrayList<>();
+        List<Long> shortIds = new ArrayList<>();
+        for (int i = 0; i < kept.length; i++) {
+            (kept[i] == 0 ? shortIds : inStockIds).add(flushedIds.get(i));
+        }
+        List<Long> exhaustedIds = new ArrayList<>();
+        Set<Long> gone = new HashSet<>();
+        if (!shortIds.isEmpty()) {
+            int[] exhausted = jdbcTemplate.batchUpdate(FLUSH + "= ?", shortIds.stream()
+                    .map(id -> flushRow(id, taken.get(id), false, updatedAt))
+                    .toList());
+            for (int i = 0; i < exhausted.length; i++) {
+                Long id = shortIds.get(i);
+                if (exhausted[i] == 0) {
+                    log.warn("Product {} is gone, discarding the {} units taken from its stock lease", id,
+                            taken.get(id));
+                    jdbcTemplate.update(DELETE_LEASE, id, nodeId);
+                    gone.add(id);
+                } else {
+                    exhaustedIds.add(id);
+                }
+            }
+        }
+        // Flushes are batched, so the pages, filter results and totals are dropped at most once per flush interval
+        productCacheEvictor.evictStockChange(inStockIds, false);
+        productCacheEvictor.evictStockChange(exhaustedIds, true);
+        log.debug("Flushed the reservations of {} hot products, {} out of stock", flushedIds.size() - gone.size(),
+                exhaustedIds.size());
+        return new Written(lost, gone);
+    }
+
+    /**
+     * Move the units taken from the lease of a product out of its stock, releasing units of the lease.
+     *
+     * @param sql      {@link #FLUSH} or {@link #RECOVER}
+     * @param id       the ID of the product
+     * @param taken    the units taken from the lease
+     * @param released the units released from the lease, at least the units taken
+     * @return whether the product is still in stock, went out of stock, or is gone
+     */
+    private Taken take(String sql, Long id, long taken, long released) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jdbcTemplate.update(sql + "> ?", taken, released, taken, true, now, id, taken) == 1) {
+            return Taken.IN_STOCK;
+        }
+        if (jdbcTemplate.update(sql + "= ?", taken, released, taken, false, now, id, taken) == 1) {
+            return Taken.OUT_OF_STOCK;
+        }
+        return Taken.GONE;
+    }
+
+    /**
+     * @return the current time of the database, which every instance renews and expires the leases with
+     */
+    private Instant databaseTime() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class).toInstant();
+    }
+
+    /**
+     * Stop reserving from the counter of a product found gone by a flush, whose lease row the flush deleted.
+     */
+    private void drop(Long id, HotProduct product) {
+        synchronized (product) {
+            product.counter.drainAvailable();
+            product.counter.drainTaken();
+            product.held = false;
+            product.removed = true;
+        }
+        log.warn("Dropped the counter of product {}, which is gone", id);
+    }
+
+    private static Object[] flushRow(Long id, long taken, boolean inStock, LocalDateTime updatedAt) {
+        return new Object[]{taken, taken, taken, inStock, updatedAt, id, taken};
+    }
+
+    /**
+     * The counter of a hot product and the state of its lease, written under the lock of the product, and by
+     * the flush, which is the only other writer.
+     */
+    private static final class HotProduct {
+
+        private final StripedStockCounter counter;
+
+        /**
+         * Whether this instance holds a lease row for the product.
+         */
+        private volatile boolean held;
+
+        /**
+         * The {@link System#nanoTime()} of the last renewal of the lease.
+         */
+        private volatile long renewedAt;
+
+        /**
+         * Whether the product was deleted, so its counter no longer reserves and is never flushed.
+         */
+        private volatile boolean removed;
+
+        private HotProduct(StripedStockCounter counter) {
+            this.counter = counter;
+        }
+    }
+
+    /**
+     * The outcome of a lease: whether the previous lease was taken back, whether a lease row is held after it,
+     * and the units leased, zero if they would not cover the quantity.
+     */
+    private record Lease(boolean lost, boolean held, long units) {
+    }
+
+    /**
+     * The outcome of a flush: the IDs of the products whose lease was taken back, and of those that are gone.
+     */
+    private record Written(Set<Long> lost, Set<Long> gone) {
+    }
+
+    /**
+     * The outcome of moving the units taken from a lease out of the stock of a product. Its stock never drops
+     * below its leased units, so a product matching neither form is gone.
+     */
+    private enum Taken {
+        IN_STOCK, OUT_OF_STOCK, GONE
+    }
+}
@@ -0,0 +1,113 @@
+package app.quantun.backend.stock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock of a product spread over stripes, each taken from with compare-and-set.
+ * <p>
+ * Every stripe counts the units available in it and the units taken from it since the last drain. A thread
+ * starts at its own stripe, so threads rarely contend on the same one, and moves on to the next stripes when
+ * its stripe holds too few units. Units are only taken by a compare-and-set that leaves the stripe
+ * non-negative, and only removed by an atomic swap, so no more units are ever taken than were added.
+ */
+final class StripedStockCounter {
+
+    /**
+     * Longs per stripe: 128 bytes keeps stripes on separate cache lines, also with adjacent-line prefetch.
+     */
+    private static final int PADDING = 16;
+    private static final int TAKEN = 1;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    StripedStockCounter(int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+    }
+
+    /**
+     * Take units, from a single stripe.
+     *
+     * @param quantity the units to take
+     * @return whether they were taken; {@code false} does not mean the stripes together hold too few units
+     */
+    boolean tryTake(int quantity) {
+        int start = (int) (Thread.currentThread().getId() % stripes);
+        for (int i = 0; i < stripes; i++) {
+            int cell = ((start + i) % stripes) * PADDING;
+            long available = cells.get(cell);
+            while (available >= quantity) {
+                long witness = cells.compareAndExchange(cell, available, available - quantity);
+                if (witness == available) {
+                    cells.addAndGet(cell + TAKEN, quantity);
+                    return true;
+                }
+                available = witness;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add units, spread evenly over the stripes.
+     *
+     * @param units the units to add
+     */
+    void add(long units) {
+        long share = units / stripes;
+        long remainder = units % stripes;
+        for (int i = 0; i < stripes; i++) {
+            long stripeUnits = share + (i < remainder ? 1 : 0);
+            if (stripeUnits > 0) {
+                cells.addAndGet(i * PADDING, stripeUnits);
+            }
+        }
+    }
+
+    /**
+     * Count units as taken, such as the units taken by a drain, or the units of a failed flush.
+     *
+     * @param units the units taken
+     */
+    void addTaken(long units) {
+        cells.addAndGet(TAKEN, units);
+    }
+
+    /**
+     * Remove all available units.
+     *
+     * @return the units removed
+     */
+    long drainAvailable() {
+        long units = 0;
+        for (int i = 0; i < stripes; i++) {
+            units += cells.getAndSet(i * PADDING, 0);
+        }
+        return units;
+    }
+
+    /**
+     * Reset the counts of units taken.
+     *
+     * @return the units taken since the last drain
+     */
+    long drainTaken() {
+        long units = 0;
+        for (int i = 0; i < stripes; i++) {
+            units += cells.getAndSet(i * PADDING + TAKEN, 0);
+        }
+        return units;
+    }
+
+    /**
+     * @return the units available, a moment's sum over the stripes
+     */
+    long available() {
+        long units = 0;
+        for (int i = 0; i < stripes; i++) {
+            units += cells.get(i * PADDING);
+        }
+        return units;
+    }
+}
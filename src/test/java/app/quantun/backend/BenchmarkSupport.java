@@ -0,0 +1,330 @@
+package app.quantun.backend;
+
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.ProductRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Harness shared by the opt-in benchmarks, which run with {@code -Dbenchmark=true}: the product fixtures, the
+ * warmed-up and timed runs, the concurrent runs and the table of results, so each benchmark keeps only its
+ * scenario.
+ */
+public final class BenchmarkSupport {
+
+    /**
+     * The number of products inserted or deleted per transaction.
+     */
+    public static final int BATCH_SIZE = 1_000;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * The product of a fixture at an index: its name and description are numbered with the index, its price is
+     * between 0.10 and 5.09, two in three are in stock, and its stock is between 0 and 99.
+     *
+     * @param i the index of the product in the fixture
+     * @return the product, not saved
+     */
+    public static Product product(int i) {
+        Product product = new Product();
+        product.setName("Benchmark product " + i);
+        product.setDescription("Description of benchmark product " + i);
+        product.setPrice(BigDecimal.valueOf(10 + i % 500, 2));
+        product.setInStock(i % 3 != 0);
+        product.setStock(i % 100);
+        return product;
+    }
+
+    /**
+     * Insert the products of a fixture, a transaction per {@link #BATCH_SIZE} products.
+     *
+     * @param productRepository   the repository saving the products
+     * @param transactionTemplate the template of the transactions
+     * @param count               the number of products
+     * @param fixture             the product at each index, such as {@link #product(int)}
+     * @return the IDs of the products, in the order of their indexes
+     */
+    public static List<Long> insertProducts(ProductRepository productRepository,
+                                            TransactionTemplate transactionTemplate, int count,
+                                            IntFunction<Product> fixture) {
+        return insertProducts(productRepository, transactionTemplate, count, fixture, saved -> {
+        });
+    }
+
+    /**
+     * Insert the products of a fixture, a transaction per {@link #BATCH_SIZE} products, handing each batch saved
+     * to a consumer within its transaction.
+     *
+     * @param productRepository   the repository saving the products
+     * @param transactionTemplate the template of the transactions
+     * @param count               the number of products
+     * @param fixture             the product at each index, such as {@link #product(int)}
+     * @param saved               receives each batch of saved products
+     * @return the IDs of the products, in the order of their indexes
+     */
+    public static List<Long> insertProducts(ProductRepository productRepository,
+                                            TransactionTemplate transactionTemplate, int count,
+                                            IntFunction<Product> fixture, Consumer<List<Product>> saved) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            int start = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Product> products = new ArrayList<>(BATCH_SIZE);
+                for (int i = start; i < Math.min(start + BATCH_SIZE, count); i++) {
+                    products.add(fixture.apply(i));
+                }
+                List<Product> batch = productRepository.saveAll(products);
+                saved.accept(batch);
+                batch.forEach(product -> ids.add(product.getId()));
+            });
+        }
+        return ids;
+    }
+
+    /**
+     * Delete rows by ID, a transaction per {@link #BATCH_SIZE} IDs.
+     *
+     * @param transactionTemplate the template of the transactions
+     * @param ids                 the IDs of the rows
+     * @param delete              deletes the rows of a batch of IDs
+     */
+    public static void deleteInBatches(TransactionTemplate transactionTemplate, List<Long> ids,
+                                       Consumer<List<Long>> delete) {
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            transactionTemplate.executeWithoutResult(status -> delete.accept(batch));
+        }
+    }
+
+    /**
+     * The highest ID of the products, before a benchmark inserts products whose IDs it does not collect.
+     *
+     * @param jdbcTemplate the template of the database
+     * @return the highest ID, zero without products
+     */
+    public static long maxProductId(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM product", Long.class);
+    }
+
+    /**
+     * Delete the products with a higher ID than a given one, and their search trigrams.
+     *
+     * @param jdbcTemplate the template of the database
+     * @param maxId        the highest ID of the products kept, as of {@link #maxProductId(JdbcTemplate)}
+     */
+    public static void deleteProductsAfter(JdbcTemplate jdbcTemplate, long maxId) {
+        jdbcTemplate.update("DELETE FROM product_trigram WHERE product_id > ?", maxId);
+        jdbcTemplate.update("DELETE FROM product WHERE id > ?", maxId);
+    }
+
+    /**
+     * Run an operation a number of times, so that it is compiled and its caches filled before it is measured.
+     *
+     * @param runs the number of runs
+     * @param run  the operation
+     */
+    public static void warmUp(int runs, Supplier<?> run) {
+        for (int i = 0; i < runs; i++) {
+            run.get();
+        }
+    }
+
+    /**
+     * Run an operation a number of times to warm it up, then time a number of runs, along with the bytes they
+     * allocate on the calling thread.
+     *
+     * @param warmupRuns   the number of runs before the measured ones
+     * @param measuredRuns the number of measured runs
+     * @param run          the operation
+     * @param <T>          the type of the result of the operation
+     * @return the average latency and allocation of a measured run, and the result of the last one
+     */
+    public static <T> Measurement<T> measure(int warmupRuns, int measuredRuns, Supplier<T> run) {
+        warmUp(warmupRuns, run);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        T result = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredRuns; i++) {
+            result = run.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return new Measurement<>(elapsed / 1e6 / measuredRuns, allocated / measuredRuns, result);
+    }
+
+    /**
+     * Time a single run of a long operation.
+     *
+     * @param work the operation
+     * @param <T>  the type of the result of the operation
+     * @return the result of the operation and the time it took
+     * @throws Exception if the operation fails
+     */
+    public static <T> Timed<T> time(Callable<T> work) throws Exception {
+        long start = System.nanoTime();
+        T result = work.call();
+        return new Timed<>(result, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Run an operation concurrently from a number of threads, each running it a number of times.
+     *
+     * @param threads             the number of threads
+     * @param operationsPerThread the number of times each thread runs the operation
+     * @param operation           the operation, returning whether it succeeded
+     * @return the number of operations that succeeded, and the operations run per second
+     * @throws Exception if an operation fails
+     */
+    public static Throughput concurrently(int threads, int operationsPerThread, Callable<Boolean> operation)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    int succeeded = 0;
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        if (operation.call()) {
+                            succeeded++;
+                        }
+                    }
+                    return succeeded;
+                });
+            }
+            long start = System.nanoTime();
+            long succeeded = 0;
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                succeeded += future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Throughput(succeeded, (long) threads * operationsPerThread / seconds);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Start a table of results, printed once its rows are added.
+     *
+     * @param headers the headers of the columns, the first one above the labels of the rows
+     * @return the table
+     */
+    public static Table table(Object... headers) {
+        return new Table(headers);
+    }
+
+    /**
+     * The measured runs of an operation.
+     *
+     * @param averageMillis the average latency of a run, in milliseconds
+     * @param averageBytes  the average bytes allocated by a run on the calling thread
+     * @param result        the result of the last run
+     * @param <T>           the type of the result
+     */
+    public record Measurement<T>(double averageMillis, long averageBytes, T result) {
+    }
+
+    /**
+     * A timed run of an operation.
+     *
+     * @param result  the result of the operation
+     * @param seconds the time it took, in seconds
+     * @param <T>     the type of the result
+     */
+    public record Timed<T>(T result, double seconds) {
+
+        /**
+         * The rate of the run.
+         *
+         * @param operations the number of operations, such as rows, the run processed
+         * @return the operations per second
+         */
+        public double rate(long operations) {
+            return operations / seconds;
+        }
+    }
+
+    /**
+     * The concurrent runs of an operation.
+     *
+     * @param succeeded the number of runs that succeeded
+     * @param rate      the runs per second, whether they succeeded or not
+     */
+    public record Throughput(long succeeded, double rate) {
+    }
+
+    /**
+     * A table of results, whose columns are as wide as their widest cell. Text is aligned left and numbers right;
+     * floating-point numbers are printed with two decimals.
+     */
+    public static final class Table {
+
+        private final List<Object[]> rows = new ArrayList<>();
+
+        private Table(Object[] headers) {
+            rows.add(headers);
+        }
+
+        /**
+         * Add a row.
+         *
+         * @param cells the label of the row, then its values, a cell per column
+         * @return this table
+         */
+        public Table row(Object... cells) {
+            rows.add(cells);
+            return this;
+        }
+
+        /**
+         * Print the table to the standard output.
+         */
+        public void print() {
+            int columns = rows.stream().mapToInt(row -> row.length).max().orElse(0);
+            int[] widths = new int[columns];
+            boolean[] numeric = new boolean[columns];
+            for (int r = 0; r < rows.size(); r++) {
+                Object[] row = rows.get(r);
+                for (int c = 0; c < row.length; c++) {
+                    widths[c] = Math.max(widths[c], format(row[c]).length());
+                    numeric[c] |= r > 0 && row[c] instanceof Number;
+                }
+            }
+            for (Object[] row : rows) {
+                StringBuilder line = new StringBuilder();
+                for (int c = 0; c < columns; c++) {
+                    String cell = c < row.length ? format(row[c]) : "";
+                    String padding = " ".repeat(widths[c] - cell.length());
+                    line.append(c > 0 ? "  " : "").append(numeric[c] ? padding + cell : cell + padding);
+                }
+                System.out.println(line.toString().stripTrailing());
+            }
+        }
+
+        private static String format(Object cell) {
+            if (cell == null) {
+                return "";
+            }
+            if (cell instanceof Double || cell instanceof Float) {
+                return String.format("%.2f", ((Number) cell).doubleValue());
+            }
+            return String.valueOf(cell);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package app.quantun.backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the CacheActivity.
+ * This class verifies that heavy hitters are found with a bounded number of counters.
+ */
+class CacheActivityTest {
+
+    /**
+     * Keys accessed far more often than the others are reported first, even when many more distinct
+     * keys than counters are accessed.
+     */
+    @Test
+    void testHottestKeysAreTracked() {
+        CacheActivity activity = new CacheActivity(10);
+
+        for (long i = 0; i < 10_000; i++) {
+            activity.recordAccess(1_000 + i);
+            if (i % 3 == 0) {
+                activity.recordAccess(1L);
+            }
+            if (i % 5 == 0) {
+                activity.recordAccess(2L);
+            }
+        }
+
+        List<CacheActivity.HotKey> hottest = activity.hottest(2);
+        assertEquals(2, hottest.size());
+        assertEquals("1", hottest.get(0).key());
+        assertEquals("2", hottest.get(1).key());
+        assertTrue(hottest.get(0).count() >= 3_334);
+    }
+}
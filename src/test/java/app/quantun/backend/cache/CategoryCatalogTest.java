@@ -0,0 +1,116 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.models.contract.response.CategoryResponseDTO;
+import app.quantun.backend.models.entity.Category;
+import app.quantun.backend.repository.CategoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for the CategoryCatalog.
+ * This class verifies that lookups are served from the snapshot and see refreshed data.
+ */
+class CategoryCatalogTest {
+
+    private CategoryRepository categoryRepository;
+    private CategoryCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        categoryRepository = mock(CategoryRepository.class);
+        catalog = new CategoryCatalog(categoryRepository, new ModelMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalog.shutdown();
+    }
+
+    /**
+     * Repeated lookups are answered from one snapshot, and a category created after it is found
+     * once a refresh has been requested.
+     */
+    @Test
+    void testLookupsUseSnapshotAndSeeRefresh() {
+        Category books = category(1L, "Books");
+        Category games = category(2L, "Games");
+        when(categoryRepository.findAll(any(Sort.class))).thenReturn(List.of(books), List.of(books, games));
+
+        assertTrue(catalog.contains(1L));
+        assertFalse(catalog.contains(2L));
+        assertEquals(1, catalog.getAll().size());
+        verify(categoryRepository, times(1)).findAll(any(Sort.class));
+
+        catalog.refresh();
+
+        assertEquals("Games", catalog.findById(2L).orElseThrow().getName());
+        assertEquals(2, catalog.getAll().size());
+    }
+
+    /**
+     * A category changed or deleted through this node is seen as such right after the change, even though
+     * the previous snapshot still holds it.
+     */
+    @Test
+    void testLookupsWaitForTheRebuildOfAChange() {
+        when(categoryRepository.findAll(any(Sort.class)))
+                .thenReturn(List.of(category(1L, "Books")), List.of(category(1L, "Novels")), List.of());
+
+        assertEquals("Books", catalog.findById(1L).orElseThrow().getName());
+
+        catalog.refresh();
+        assertEquals("Novels", catalog.findById(1L).orElseThrow().getName());
+
+        catalog.refresh();
+        assertFalse(catalog.contains(1L));
+    }
+
+    /**
+     * The list of all categories includes a category created through this node right after the change, as the
+     * lookups by ID do.
+     */
+    @Test
+    void testGetAllWaitsForTheRebuildOfAChange() {
+        when(categoryRepository.findAll(any(Sort.class)))
+                .thenReturn(List.of(category(1L, "Books")), List.of(category(1L, "Books"), category(2L, "Games")));
+        assertEquals(1, catalog.getAll().size());
+
+        catalog.refresh();
+
+        assertEquals(List.of("Books", "Games"),
+                catalog.getAll().stream().map(CategoryResponseDTO::getName).toList());
+    }
+
+    /**
+     * A failed rebuild is retried after a delay rather than at once, and lookups are served from the last
+     * snapshot meanwhile without waiting.
+     */
+    @Test
+    void testFailedRebuildBacksOff() throws InterruptedException {
+        when(categoryRepository.findAll(any(Sort.class)))
+                .thenReturn(List.of(category(1L, "Books")))
+                .thenThrow(new IllegalStateException("database down"));
+        assertTrue(catalog.contains(1L));
+
+        catalog.refresh();
+        long start = System.nanoTime();
+        assertTrue(catalog.contains(1L));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+
+        Thread.sleep(300);
+        verify(categoryRepository, times(2)).findAll(any(Sort.class));
+    }
+
+    private static Category category(Long id, String name) {
+        return Category.builder().id(id).name(name).build();
+    }
+}
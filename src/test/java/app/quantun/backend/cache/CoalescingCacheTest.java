@@ -0,0 +1,179 @@
+package app.quantun.backend.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the CoalescingCache.
+ * This class verifies that concurrent misses share a single load.
+ */
+class CoalescingCacheTest {
+
+    private static final int CALLERS = 8;
+
+    /**
+     * Concurrent misses for the same key run the loader once and all receive its value.
+     */
+    @Test
+    void testConcurrentMissesShareOneLoad() throws Exception {
+        CoalescingCache cache = newCache(0);
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> cache.get(1L, () -> {
+                    loaderCalls.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "product-1";
+                })));
+            }
+            // Give every caller the chance to join the in-flight load before it completes
+            while (cache.getCoalescedLoadCount() < CALLERS - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("product-1", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loaderCalls.get());
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(CALLERS - 1, cache.getCoalescedLoadCount());
+    }
+
+    /**
+     * A failed load is reported to the caller and not cached.
+     */
+    @Test
+    void testFailedLoadIsNotCached() {
+        CoalescingCache cache = newCache(0);
+
+        assertThrows(Cache.ValueRetrievalException.class, () -> cache.get(1L, () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertNull(cache.get(1L));
+        assertEquals("product-1", cache.get(1L, () -> "product-1"));
+    }
+
+    /**
+     * Cached values are served without calling the loader when early refresh is disabled.
+     */
+    @Test
+    void testHitDoesNotLoad() {
+        CoalescingCache cache = newCache(0);
+        cache.put(1L, "cached");
+
+        assertEquals("cached", cache.get(1L, () -> fail("loader must not run on a hit")));
+        assertEquals(0, cache.getLoadCount());
+    }
+
+    /**
+     * A key whose load returned nothing is not loaded again until a value is written for it.
+     */
+    @Test
+    void testAbsentKeyIsRememberedUntilPut() {
+        CaffeineCache delegate = new CaffeineCache("products", Caffeine.newBuilder().build());
+        CoalescingCache cache = new CoalescingCache(delegate, 100, Duration.ofMinutes(1), 0, 100, Duration.ofMinutes(1));
+
+        assertNull(cache.get(42L, () -> null));
+        assertNull(cache.get(42L, () -> fail("loader must not run for a key known to be absent")));
+        assertNull(delegate.get(42L));
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(1, cache.getNegativeHitCount());
+
+        cache.put(42L, "created");
+        assertEquals("created", cache.get(42L, () -> fail("loader must not run on a hit")));
+
+        cache.evict(42L);
+        assertEquals("reloaded", cache.get(42L, () -> "reloaded"));
+    }
+
+    /**
+     * A load that read the data before a write of its key does not replace the value written.
+     */
+    @Test
+    void testLoadRacingWithPutDoesNotOverwriteIt() {
+        CoalescingCache cache = newCache(0);
+
+        assertEquals("stale", cache.get(1L, () -> {
+            cache.put(1L, "written");
+            return "stale";
+        }));
+        assertEquals("written", cache.get(1L).get());
+
+        cache.evict(2L);
+        cache.get(2L, () -> {
+            cache.evict(2L);
+            return "stale";
+        });
+        assertNull(cache.get(2L));
+    }
+
+    /**
+     * A value loaded outside of the cache is not stored if its key was evicted after the load began.
+     */
+    @Test
+    void testPutLoadedRacingWithEvictDoesNotStoreIt() {
+        CoalescingCache cache = newCache(0);
+
+        long generation = cache.generation(1L);
+        cache.evict(1L);
+        cache.putLoaded(1L, "stale", generation);
+        assertNull(cache.get(1L));
+
+        cache.putLoaded(1L, "loaded", cache.generation(1L));
+        assertEquals("loaded", cache.get(1L).get());
+    }
+
+    /**
+     * An entry due for an early refresh is served to the caller while it is reloaded in the background.
+     */
+    @Test
+    void testEarlyRefreshDoesNotBlockTheCaller() throws Exception {
+        CoalescingCache cache = newCache(1e12);
+        cache.get(1L, () -> {
+            Thread.sleep(1);
+            return "v1";
+        });
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertEquals("v1", cache.get(1L, () -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "v2";
+        }));
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!"v2".equals(cache.get(1L).get()) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("v2", cache.get(1L).get());
+        assertEquals(1, cache.getEarlyRefreshCount());
+    }
+
+    private static CoalescingCache newCache(double earlyRefreshBeta) {
+        CaffeineCache delegate = new CaffeineCache("products", Caffeine.newBuilder().build());
+        return new CoalescingCache(delegate, 100, Duration.ofMinutes(1), earlyRefreshBeta);
+    }
+}
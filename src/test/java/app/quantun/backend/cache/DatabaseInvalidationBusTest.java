@@ -0,0 +1,90 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.BackendApplication;
+import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the DatabaseInvalidationBus.
+ * This class runs two application contexts against one H2 file database and verifies that a change
+ * made through one context evicts the cached copies of the other.
+ */
+class DatabaseInvalidationBusTest {
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        String url = "jdbc:h2:file:./target/invalidation-bus-" + UUID.randomUUID() + ";MODE=Oracle";
+        // The first node creates the schema, the second one uses it as is
+        nodeA = startNode(url, "create");
+        nodeB = startNode(url, "none");
+    }
+
+    @AfterEach
+    void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    /**
+     * An update on one node is seen by another node that had cached the product.
+     */
+    @Test
+    void testUpdateEvictsOtherNode() throws InterruptedException {
+        ProductService serviceA = nodeA.getBean(ProductService.class);
+        ProductService serviceB = nodeB.getBean(ProductService.class);
+
+        Long id = serviceA.createProduct(request("Original")).getId();
+        assertEquals("Original", serviceB.getProductById(id).map(ProductResponseDTO::getName).orElseThrow());
+
+        serviceA.updateProduct(id, request("Renamed"));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        String seenByB = null;
+        while (System.currentTimeMillis() < deadline) {
+            seenByB = serviceB.getProductById(id).map(ProductResponseDTO::getName).orElseThrow();
+            if ("Renamed".equals(seenByB)) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        assertEquals("Renamed", seenByB);
+    }
+
+    private static ConfigurableApplicationContext startNode(String url, String ddlAuto) {
+        return new SpringApplicationBuilder(BackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.datasource.url=" + url,
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--app.cache.invalidation.poll-interval=PT0.1S");
+    }
+
+    private static ProductRequestDTO request(String name) {
+        return ProductRequestDTO.builder()
+                .name(name)
+                .description("Shared between nodes")
+                .price(BigDecimal.TEN)
+                .inStock(true)
+                .stock(5)
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.config.AppCacheProperties;
+import app.quantun.backend.models.contract.response.TotalAwarePage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the PageTotalCache.
+ * This class verifies that totals are told by the slice or the memoized count before a count query runs.
+ */
+class PageTotalCacheTest {
+
+    private static PageTotalCache newCache(AppCacheProperties.TotalMode mode) {
+        AppCacheProperties properties = new AppCacheProperties();
+        properties.getPageTotals().setMode(mode);
+        return new PageTotalCache(properties, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    }
+
+    /**
+     * The last slice tells its total without counting; other slices count once, then use the memoized count
+     * until a write drops it.
+     */
+    @Test
+    void testCountIsMemoizedUntilInvalidated() {
+        PageTotalCache cache = newCache(AppCacheProperties.TotalMode.EXACT);
+        AtomicInteger counts = new AtomicInteger();
+
+        TotalAwarePage<Integer> last = cache.page("all", new SliceImpl<>(List.of(1, 2), PageRequest.of(2, 5), false),
+                () -> {
+                    throw new AssertionError("The last slice should not be counted");
+                });
+        assertEquals(12, last.getTotalElements());
+        assertEquals(TotalAwarePage.Total.EXACT, last.getTotal());
+
+        SliceImpl<Integer> first = new SliceImpl<>(List.of(1, 2, 3, 4, 5), PageRequest.of(0, 5), true);
+        assertEquals(TotalAwarePage.Total.EXACT, cache.page("all", first, () -> 40 + counts.incrementAndGet()).getTotal());
+        TotalAwarePage<Integer> cached = cache.page("all", first, () -> 40 + counts.incrementAndGet());
+        assertEquals(TotalAwarePage.Total.CACHED, cached.getTotal());
+        assertEquals(41, cached.getTotalElements());
+        assertEquals(1, counts.get());
+
+        cache.invalidateAll();
+        assertEquals(42, cache.page("all", first, () -> 40 + counts.incrementAndGet()).getTotalElements());
+    }
+
+    /**
+     * In estimated mode the page reports a lower bound without waiting for the count.
+     */
+    @Test
+    void testEstimatedModeReportsLowerBound() {
+        PageTotalCache cache = newCache(AppCacheProperties.TotalMode.ESTIMATED);
+
+        TotalAwarePage<Integer> page = cache.page("all",
+                new SliceImpl<>(List.of(1, 2, 3, 4, 5), PageRequest.of(1, 5), true), () -> 100);
+
+        assertTrue(page.isTotalEstimated());
+        assertEquals(11, page.getTotalElements());
+        assertTrue(page.hasNext());
+        cache.shutdown();
+    }
+
+    /**
+     * In exact mode a request that prefers an estimate gets a lower bound, while other requests are counted.
+     */
+    @Test
+    void testRequestCanPreferEstimate() {
+        PageTotalCache cache = newCache(AppCacheProperties.TotalMode.EXACT);
+        SliceImpl<Integer> slice = new SliceImpl<>(List.of(1, 2, 3, 4, 5), PageRequest.of(1, 5), true);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(PageTotalCache.PREFER_HEADER, PageTotalCache.PREFER_ESTIMATED);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            TotalAwarePage<Integer> estimated = cache.page("estimated", slice, () -> 100);
+            assertTrue(estimated.isTotalEstimated());
+            assertEquals(11, estimated.getTotalElements());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        TotalAwarePage<Integer> exact = cache.page("exact", slice, () -> 100);
+        assertFalse(exact.isTotalEstimated());
+        assertEquals(100, exact.getTotalElements());
+        cache.shutdown();
+    }
+}
@@ -0,0 +1,72 @@
+package app.quantun.backend.cache;
+
+import app.quantun.backend.models.contract.request.ProductFilterDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the ProductFilterKey.
+ * This class verifies filter normalization and tag matching.
+ */
+class ProductFilterKeyTest {
+
+    /**
+     * Equivalent filters that differ in case, price scale and default paging share one key.
+     */
+    @Test
+    void testEquivalentFiltersShareKey() {
+        ProductFilterDTO first = new ProductFilterDTO();
+        first.setName("Phone");
+        first.setMinPrice(new BigDecimal("10.00"));
+
+        ProductFilterDTO second = new ProductFilterDTO();
+        second.setName("PHONE");
+        second.setMinPrice(new BigDecimal("10"));
+        second.setPage(null);
+        second.setSortBy(" ");
+        second.setSortDirection(null);
+
+        assertEquals(ProductFilterKey.of(first, false), ProductFilterKey.of(second, false));
+        assertNotEquals(ProductFilterKey.of(first, false), ProductFilterKey.of(first, true));
+    }
+
+    /**
+     * Different sorting produces a different key.
+     */
+    @Test
+    void testSortingIsPartOfKey() {
+        ProductFilterDTO ascending = new ProductFilterDTO();
+        ascending.setName("phone");
+
+        ProductFilterDTO descending = new ProductFilterDTO();
+        descending.setName("phone");
+        descending.setSortDirection(Sort.Direction.DESC);
+
+        assertNotEquals(ProductFilterKey.of(ascending, false), ProductFilterKey.of(descending, false));
+    }
+
+    /**
+     * Only products inside the category and price range of the key match its tags.
+     */
+    @Test
+    void testMatchesTags() {
+        ProductFilterDTO filter = new ProductFilterDTO();
+        filter.setCategoryId(1L);
+        filter.setMinPrice(new BigDecimal("10"));
+        filter.setMaxPrice(new BigDecimal("20"));
+        ProductFilterKey key = ProductFilterKey.of(filter, false);
+
+        assertTrue(key.matchesTags(1L, new BigDecimal("15")));
+        assertFalse(key.matchesTags(2L, new BigDecimal("15")));
+        assertFalse(key.matchesTags(1L, new BigDecimal("25")));
+        assertFalse(key.matchesTags(null, new BigDecimal("15")));
+
+        ProductFilterDTO anyCategory = new ProductFilterDTO();
+        anyCategory.setName("phone");
+        assertTrue(ProductFilterKey.of(anyCategory, false).matchesTags(null, new BigDecimal("15")));
+    }
+}
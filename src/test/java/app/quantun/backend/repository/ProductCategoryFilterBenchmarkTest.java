@@ -0,0 +1,189 @@
+package app.quantun.backend.repository;
+
+import app.quantun.backend.BenchmarkSupport;
+import app.quantun.backend.BenchmarkSupport.Measurement;
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.models.entity.Category;
+import app.quantun.backend.models.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the category filter queries: the former catch-all JPQL, with an
+ * {@code (:x IS NULL OR ...)} predicate per filter, against the queries of
+ * {@link ProductCategoryFilterRepository}, written for the filters supplied.
+ * For every combination of filters, both must find the same products; the benchmark prints the index
+ * each query is planned with and its average latency. The catch-all query cannot run with a stock
+ * filter on H2, which compares the bound boolean to the numeric column as a boolean.
+ * Run with {@code mvn test -Dtest=ProductCategoryFilterBenchmarkTest -Dbenchmark=true}; the number of
+ * products defaults to 200,000 and can be changed with {@code -Dbenchmark.products}.
+ */
+@SpringBootTest(properties = QueryPlans.RECORDER_PROPERTY)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductCategoryFilterBenchmarkTest {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 200_000);
+    private static final int CATEGORIES = 10;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 10;
+
+    private static final String CATCH_ALL = ProductRepository.SELECT_RESPONSE
+            + "WHERE p.category.id = :categoryId "
+            + "AND (:name IS NULL OR p.nameSearch LIKE LOWER(CONCAT('%', :name, '%'))) "
+            + "AND (:minPrice IS NULL OR p.price >= :minPrice) "
+            + "AND (:maxPrice IS NULL OR p.price <= :maxPrice) "
+            + "AND (:inStock IS NULL OR p.inStock = :inStock) ORDER BY p.id";
+
+    private static final Pageable PAGE = PageRequest.of(0, 20, Sort.by("id"));
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final List<Category> categories = new ArrayList<>();
+    private List<Long> insertedIds;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < CATEGORIES; i++) {
+            Category category = new Category();
+            category.setName("Benchmark category " + i);
+            category.setDescription("Category of the filter benchmark");
+            categories.add(categoryRepository.save(category));
+        }
+        insertedIds = BenchmarkSupport.insertProducts(productRepository, transactionTemplate, PRODUCTS, i -> {
+            Product product = BenchmarkSupport.product(i);
+            product.setName((i % 50 == 0 ? "Lantern " : "Kettle ") + i);
+            product.setPrice(BigDecimal.valueOf(100 + i % 10_000, 2));
+            product.setCategory(categories.get(i % CATEGORIES));
+            return product;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        BenchmarkSupport.deleteInBatches(transactionTemplate, insertedIds, productRepository::deleteAllByIdInBatch);
+        categoryRepository.deleteAll(categories);
+    }
+
+    /**
+     * For every combination of filters, the shaped query finds the same products as the catch-all one,
+     * and is planned with an index condition.
+     */
+    @Test
+    void benchmarkFilterCombinations() {
+        Long categoryId = categories.get(0).getId();
+        BenchmarkSupport.Table table = BenchmarkSupport.table(PRODUCTS + " products", "catch-all plan", "avg ms",
+                "shaped plan", "avg ms");
+
+        for (int combination = 0; combination < 16; combination++) {
+            String name = (combination & 1) != 0 ? "lantern" : null;
+            BigDecimal minPrice = (combination & 2) != 0 ? new BigDecimal("20.00") : null;
+            BigDecimal maxPrice = (combination & 4) != 0 ? new BigDecimal("40.00") : null;
+            Boolean inStock = (combination & 8) != 0 ? Boolean.TRUE : null;
+            String label = describe(name, minPrice, maxPrice, inStock);
+
+            Supplier<List<ProductResponseDTO>> shapedQuery = () -> productRepository
+                    .findResponseSliceByCategoryWithFilters(categoryId, name, minPrice, maxPrice, inStock, PAGE)
+                    .getContent();
+            String shapedPlan = plan(shapedQuery);
+            Measurement<List<ProductResponseDTO>> shaped = measure(shapedQuery);
+            assertTrue(QueryPlans.scans(shapedPlan).isEmpty(), label + " scans: " + shapedPlan);
+
+            if (inStock != null) {
+                table.row(label, "(fails on H2)", null, access(shapedPlan), shaped.averageMillis());
+                continue;
+            }
+            Supplier<List<ProductResponseDTO>> catchAllQuery = () -> catchAll(categoryId, name, minPrice, maxPrice);
+            String catchAllPlan = plan(catchAllQuery);
+            Measurement<List<ProductResponseDTO>> catchAll = measure(catchAllQuery);
+            table.row(label, access(catchAllPlan), catchAll.averageMillis(), access(shapedPlan),
+                    shaped.averageMillis());
+            assertEquals(ids(catchAll.result()), ids(shaped.result()), label);
+        }
+        table.print();
+    }
+
+    private List<ProductResponseDTO> catchAll(Long categoryId, String name, BigDecimal minPrice, BigDecimal maxPrice) {
+        TypedQuery<ProductResponseDTO> query = entityManager.createQuery(CATCH_ALL, ProductResponseDTO.class)
+                .setParameter("categoryId", categoryId)
+                .setParameter("name", name)
+                .setParameter("minPrice", minPrice)
+                .setParameter("maxPrice", maxPrice)
+                .setParameter("inStock", null);
+        return query.setMaxResults(PAGE.getPageSize() + 1).getResultList();
+    }
+
+    /**
+     * The plan of the last statement a query runs.
+     */
+    private String plan(Supplier<List<ProductResponseDTO>> query) {
+        List<String> statements = QueryPlans.SqlRecorder.record(() -> transactionTemplate.execute(status -> query.get()));
+        return QueryPlans.explain(jdbcTemplate, statements.get(statements.size() - 1));
+    }
+
+    private Measurement<List<ProductResponseDTO>> measure(Supplier<List<ProductResponseDTO>> query) {
+        return BenchmarkSupport.measure(WARMUP_RUNS, MEASURED_RUNS, () -> transactionTemplate.execute(status -> query.get()));
+    }
+
+    /**
+     * The table access of a plan, without the table name.
+     */
+    private static String access(String plan) {
+        int start = plan.indexOf("/* PUBLIC.");
+        int end = plan.indexOf("*/", start);
+        String access = plan.substring(start + "/* PUBLIC.".length(), end).trim().replaceAll("\\s+", " ");
+        return access.length() > 40 ? access.substring(0, 37) + "..." : access;
+    }
+
+    private static String describe(String name, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock) {
+        List<String> filters = new ArrayList<>();
+        if (name != null) {
+            filters.add("name");
+        }
+        if (minPrice != null) {
+            filters.add("minPrice");
+        }
+        if (maxPrice != null) {
+            filters.add("maxPrice");
+        }
+        if (inStock != null) {
+            filters.add("inStock");
+        }
+        return filters.isEmpty() ? "(category only)" : String.join("+", filters);
+    }
+
+    private static List<Long> ids(List<ProductResponseDTO> rows) {
+        return rows.stream().map(ProductResponseDTO::getId).limit(PAGE.getPageSize()).toList();
+    }
+}
@@ -0,0 +1,102 @@
+package app.quantun.backend.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Captures the product SQL of repository calls and explains it with H2 {@code EXPLAIN}.
+ * Tests using it register the recorder with {@link #RECORDER_PROPERTY}.
+ */
+final class QueryPlans {
+
+    /**
+     * The property registering {@link SqlRecorder} with Hibernate, for {@code @SpringBootTest(properties = ...)}.
+     */
+    static final String RECORDER_PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "app.quantun.backend.repository.QueryPlans$SqlRecorder";
+
+    /**
+     * A table access in an H2 plan: the index or scan used, and the index condition if any.
+     */
+    private static final Pattern TABLE_ACCESS = Pattern.compile("/\\* PUBLIC\\.([\\w.]+)(:[^*]*)?\\s*\\*/");
+    private static final Pattern PRODUCT_TABLE = Pattern.compile("\\bproduct\\b", Pattern.CASE_INSENSITIVE);
+
+    private QueryPlans() {
+    }
+
+    /**
+     * Explain a statement.
+     *
+     * @param jdbcTemplate the template of the database
+     * @param sql          the statement, with parameter markers
+     * @return the plan of the statement
+     */
+    static String explain(JdbcTemplate jdbcTemplate, String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                // H2 plans a prepared statement before its parameters are bound, so any value will do
+                for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * The table accesses of a plan that have no index condition.
+     *
+     * @param plan the plan
+     * @return the indexes or scans used without a condition
+     */
+    static List<String> scans(String plan) {
+        List<String> scans = new ArrayList<>();
+        Matcher matcher = TABLE_ACCESS.matcher(plan);
+        while (matcher.find()) {
+            if (matcher.group(2) == null) {
+                scans.add(matcher.group(1));
+            }
+        }
+        return scans;
+    }
+
+    /**
+     * Records the product statements issued by the current thread.
+     */
+    public static class SqlRecorder implements StatementInspector {
+
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        private static volatile Thread recordingThread;
+
+        static List<String> record(Runnable action) {
+            STATEMENTS.clear();
+            recordingThread = Thread.currentThread();
+            try {
+                action.run();
+            } finally {
+                recordingThread = null;
+            }
+            return List.copyOf(STATEMENTS);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (Thread.currentThread() == recordingThread && PRODUCT_TABLE.matcher(sql).find()) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
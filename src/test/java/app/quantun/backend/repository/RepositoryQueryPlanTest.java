@@ -0,0 +1,189 @@
+package app.quantun.backend.repository;
+
+import app.quantun.backend.models.contract.request.ProductFilterDTO;
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.specification.ProductSpecification;
+import app.quantun.backend.search.ProductSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the query plans of the product queries.
+ * This class runs every query method of the ProductRepository, and the product filter, captures the SQL
+ * they issue, and checks with H2 {@code EXPLAIN} that every access to a table goes through an index
+ * condition. A query method without a case here fails the test, so a new query cannot fall back to a
+ * full scan unnoticed.
+ */
+@SpringBootTest(properties = QueryPlans.RECORDER_PROPERTY)
+class RepositoryQueryPlanTest {
+
+    private static final Pageable PAGE = PageRequest.of(1, 5);
+    private static final BigDecimal PRICE = new BigDecimal("10.00");
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    /**
+     * The queries that read all products by design.
+     */
+    private static final Set<String> FULL_READS = Set.of("findAllResponses/0", "streamAllResponses/0",
+            "findResponseSliceBy/1", "findSliceBy/1");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Every query method of the repository, and of its category filter fragment, has a case.
+     */
+    @Test
+    void testEveryQueryMethodIsCovered() {
+        Set<String> methods = new TreeSet<>();
+        for (Class<?> repository : List.of(ProductRepository.class, ProductCategoryFilterRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                if (!method.isSynthetic() && !Modifier.isStatic(method.getModifiers())) {
+                    methods.add(method.getName() + "/" + method.getParameterCount());
+                }
+            }
+        }
+        methods.removeAll(cases().keySet());
+        assertTrue(methods.isEmpty(), "Query methods without a query plan case: " + methods);
+    }
+
+    /**
+     * Every product query uses an index, except those reading all products.
+     */
+    @Test
+    void testQueriesUseIndexes() {
+        List<String> failures = new ArrayList<>();
+        cases().forEach((name, query) -> {
+            // Streaming queries need a transaction
+            List<String> statements = QueryPlans.SqlRecorder.record(() ->
+                    transactionTemplate.executeWithoutResult(status -> query.accept(productRepository)));
+            assertFalse(statements.isEmpty(), "No SQL captured for " + name);
+            if (FULL_READS.contains(name)) {
+                return;
+            }
+            for (String sql : statements) {
+                String plan = QueryPlans.explain(jdbcTemplate, sql);
+                List<String> scans = QueryPlans.scans(plan);
+                if (!scans.isEmpty()) {
+                    failures.add(name + " scans " + scans + ":\n" + plan);
+                }
+            }
+        });
+        assertTrue(failures.isEmpty(), String.join("\n\n", failures));
+    }
+
+    private Map<String, Consumer<ProductRepository>> cases() {
+        Map<String, Consumer<ProductRepository>> cases = new LinkedHashMap<>();
+        cases.put("findByNameContaining/1", repository -> repository.findByNameContaining("phone"));
+        cases.put("findByNameContaining/2", repository -> repository.findByNameContaining("phone", PAGE));
+        cases.put("findSliceByNameContaining/2", repository -> repository.findSliceByNameContaining("phone", PAGE));
+        cases.put("countByNameContaining/1", repository -> repository.countByNameContaining("phone"));
+        cases.put("findResponsesByNameContaining/1", repository -> repository.findResponsesByNameContaining("phone"));
+        cases.put("findResponseSliceByNameContaining/2",
+                repository -> repository.findResponseSliceByNameContaining("phone", PAGE));
+
+        cases.put("findByPriceLessThan/1", repository -> repository.findByPriceLessThan(PRICE));
+        cases.put("findByPriceLessThan/2", repository -> repository.findByPriceLessThan(PRICE, PAGE));
+        cases.put("findSliceByPriceLessThan/2", repository -> repository.findSliceByPriceLessThan(PRICE, PAGE));
+        cases.put("countByPriceLessThan/1", repository -> repository.countByPriceLessThan(PRICE));
+        cases.put("streamResponsesByPriceLessThan/1",
+                repository -> drain(repository.streamResponsesByPriceLessThan(PRICE)));
+        cases.put("findResponseSliceByPriceLessThan/2",
+                repository -> repository.findResponseSliceByPriceLessThan(PRICE, PAGE));
+
+        cases.put("findByInStock/1", repository -> repository.findByInStock(true));
+        cases.put("findByInStock/2", repository -> repository.findByInStock(true, PAGE));
+        cases.put("findSliceByInStock/2", repository -> repository.findSliceByInStock(true, PAGE));
+        cases.put("countByInStock/1", repository -> repository.countByInStock(true));
+        cases.put("streamResponsesByInStock/1", repository -> drain(repository.streamResponsesByInStock(true)));
+        cases.put("findResponseSliceByInStock/2", repository -> repository.findResponseSliceByInStock(true, PAGE));
+
+        cases.put("findProductsByCategoryIdSliced/2", repository -> repository.findProductsByCategoryIdSliced(1L, PAGE));
+        cases.put("findProductsByCategoryWithFilters/6", repository ->
+                repository.findProductsByCategoryWithFilters(1L, "phone", PRICE, PRICE, true, PAGE));
+        cases.put("findProductsByCategoryIdWithJoinFetch/2",
+                repository -> repository.findProductsByCategoryIdWithJoinFetch(1L, PAGE));
+        cases.put("findProductsByCategoryIdOrderByStockStatus/2",
+                repository -> repository.findProductsByCategoryIdOrderByStockStatus(1L, PAGE));
+        cases.put("findProductsByCategoryIdWithTextSearch/3",
+                repository -> repository.findProductsByCategoryIdWithTextSearch(1L, "phone", PAGE));
+        cases.put("findResponsesByCategoryId/1", repository -> repository.findResponsesByCategoryId(1L));
+        cases.put("streamResponsesByCategoryId/1", repository -> drain(repository.streamResponsesByCategoryId(1L)));
+        cases.put("findResponseSliceByCategoryId/2", repository -> repository.findResponseSliceByCategoryId(1L, PAGE));
+        cases.put("findResponseSliceByCategoryWithFilters/6", repository ->
+                repository.findResponseSliceByCategoryWithFilters(1L, "phone", PRICE, PRICE, true, PAGE));
+        cases.put("findResponseSliceByCategoryIdWithTextSearch/3",
+                repository -> repository.findResponseSliceByCategoryIdWithTextSearch(1L, "phone", PAGE));
+
+        cases.put("findResponsesByIdIn/1", repository -> repository.findResponsesByIdIn(List.of(1L, 2L, 3L)));
+        cases.put("findAllResponses/0", ProductRepository::findAllResponses);
+        cases.put("streamAllResponses/0", repository -> drain(repository.streamAllResponses()));
+        cases.put("findSliceBy/1", repository -> repository.findSliceBy(PAGE));
+        cases.put("findResponseSliceBy/1", repository -> repository.findResponseSliceBy(PAGE));
+        cases.put("findUnindexed/2", repository -> repository.findUnindexed(0L, PAGE));
+
+        // The shapes of the product filter
+        cases.put("filter:createdAt", repository -> repository.findAll(filter(filter -> {
+            filter.setCreatedAfter(TIME);
+            filter.setCreatedBefore(TIME.plusDays(1));
+        }), PAGE));
+        cases.put("filter:updatedAt", repository -> repository.findAll(filter(filter -> {
+            filter.setUpdatedAfter(TIME);
+            filter.setUpdatedBefore(TIME.plusDays(1));
+        }), PAGE));
+        cases.put("filter:price", repository -> repository.findAll(filter(filter -> {
+            filter.setMinPrice(PRICE);
+            filter.setMaxPrice(PRICE.add(BigDecimal.TEN));
+        }), PAGE));
+        cases.put("filter:categoryAndPrice", repository -> repository.findAll(filter(filter -> {
+            filter.setCategoryId(1L);
+            filter.setMinPrice(PRICE);
+        }), PAGE));
+        cases.put("filter:minStock", repository -> repository.findAll(filter(filter -> filter.setMinStock(5)), PAGE));
+        cases.put("filter:name", repository -> repository.findAll(filter(filter -> filter.setName("phone")), PAGE));
+        return cases;
+    }
+
+    private static void drain(Stream<?> stream) {
+        try (stream) {
+            stream.forEach(row -> {
+            });
+        }
+    }
+
+    private Specification<Product> filter(Consumer<ProductFilterDTO> criteria) {
+        ProductFilterDTO filter = new ProductFilterDTO();
+        criteria.accept(filter);
+        return ProductSpecification.getProductSpecification(filter, productSearchIndex);
+    }
+}
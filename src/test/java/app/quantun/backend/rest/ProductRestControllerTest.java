@@ -1,26 +1,49 @@
 package app.quantun.backend.rest;
 
+import app.quantun.backend.cache.ProductJsonCache;
+import app.quantun.backend.exception.InsufficientStockException;
+import app.quantun.backend.imports.ProductRow;
+import app.quantun.backend.imports.ProductRowReader;
+import app.quantun.backend.imports.ProductRowReaders;
+import app.quantun.backend.models.contract.request.ProductBulkUpdateDTO;
 import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.ProductBatchResponseDTO;
+import app.quantun.backend.models.contract.response.ProductBulkUpdateResultDTO;
+import app.quantun.backend.models.contract.response.ProductImportResultDTO;
 import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.service.ProductImportService;
 import app.quantun.backend.service.ProductService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,6 +53,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * This class contains unit tests for the ProductController.
  */
 @WebMvcTest(ProductRestController.class)
+@Import({JsonArrayWriter.class, ProductRowReaders.class})
 public class ProductRestControllerTest {
 
     @Autowired
@@ -41,6 +65,12 @@ public class ProductRestControllerTest {
     @MockitoBean
     private ProductService productService;
 
+    @MockitoBean
+    private ProductJsonCache productJsonCache;
+
+    @MockitoBean
+    private ProductImportService productImportService;
+
     private ProductResponseDTO sampleProductResponse;
     private ProductRequestDTO sampleProductRequest;
 
@@ -64,22 +94,41 @@ public class ProductRestControllerTest {
 
     /**
      * Test for retrieving all products.
-     * This test verifies that the getAllProducts endpoint returns a list of products.
+     * This test verifies that the getAllProducts endpoint streams the products as a JSON array.
      */
     @Test
     void testGetAllProducts() throws Exception {
-        List<ProductResponseDTO> products = Arrays.asList(sampleProductResponse);
-
-        when(productService.getAllProducts()).thenReturn(products);
+        doAnswer(streamProducts(0)).when(productService).streamAllProducts(any());
 
-        mockMvc.perform(get("/api/v1/products")
+        MvcResult result = mockMvc.perform(get("/api/v1/products")
                         .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$[0].id").value(1L))
                 .andExpect(jsonPath("$[0].name").value("Test Product"));
     }
 
+    /**
+     * Test for retrieving products by a list of IDs.
+     * This test verifies that the getProductsByIds endpoint returns the products and the missing IDs.
+     */
+    @Test
+    void testGetProductsByIds() throws Exception {
+        when(productService.getProductsByIds(List.of(1L, 5L)))
+                .thenReturn(new ProductBatchResponseDTO(List.of(sampleProductResponse), List.of(5L)));
+
+        mockMvc.perform(get("/api/v1/products/batch")
+                        .param("ids", "1,5")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id").value(1L))
+                .andExpect(jsonPath("$.missingIds[0]").value(5L));
+    }
+
     /**
      * Test for retrieving a product by its ID.
      * This test verifies that the getProductById endpoint returns the correct product.
@@ -99,6 +148,60 @@ public class ProductRestControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Test Product"));
     }
 
+    /**
+     * Test for retrieving a product by its ID from the product JSON cache.
+     * This test verifies that the encoded JSON is written with its ETag and that a matching
+     * If-None-Match is answered with 304.
+     */
+    @Test
+    void testGetProductByIdFromJsonCache() throws Exception {
+        Long productId = 1L;
+        byte[] json = objectMapper.writeValueAsBytes(sampleProductResponse);
+        String etag = "W/\"etag-1\"";
+
+        when(productService.getProductById(productId)).thenReturn(Optional.of(sampleProductResponse));
+        when(productJsonCache.isEnabled()).thenReturn(true);
+        when(productJsonCache.encode(sampleProductResponse))
+                .thenReturn(new ProductJsonCache.EncodedProduct(sampleProductResponse, json, null, etag));
+
+        mockMvc.perform(get("/api/v1/products/{id}", productId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(jsonPath("$.name").value("Test Product"));
+
+        mockMvc.perform(get("/api/v1/products/{id}", productId)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    /**
+     * Test for retrieving a product by its ID from the product JSON cache, with the weights of Accept-Encoding.
+     * This test verifies that the gzip encoding is only sent to clients that accept it with a non-zero weight.
+     */
+    @Test
+    void testGetProductByIdFromJsonCacheHonorsGzipWeights() throws Exception {
+        Long productId = 1L;
+        byte[] json = objectMapper.writeValueAsBytes(sampleProductResponse);
+        byte[] gzip = {31, -117, 8, 0};
+
+        when(productService.getProductById(productId)).thenReturn(Optional.of(sampleProductResponse));
+        when(productJsonCache.isEnabled()).thenReturn(true);
+        when(productJsonCache.encode(sampleProductResponse))
+                .thenReturn(new ProductJsonCache.EncodedProduct(sampleProductResponse, json, gzip, "W/\"etag-1\""));
+
+        for (String accepted : List.of("gzip, deflate", "br, x-gzip;q=0.5", "deflate, *;q=0.1")) {
+            mockMvc.perform(get("/api/v1/products/{id}", productId).header(HttpHeaders.ACCEPT_ENCODING, accepted))
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                    .andExpect(content().bytes(gzip));
+        }
+        for (String refused : List.of("gzip;q=0", "x-gzip;q=0, deflate", "gzip;q=0.0, *", "*;q=0", "deflate")) {
+            mockMvc.perform(get("/api/v1/products/{id}", productId).header(HttpHeaders.ACCEPT_ENCODING, refused))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(content().bytes(json));
+        }
+    }
+
     /**
      * Test for creating a new product.
      * This test verifies that the createProduct endpoint creates a new product.
@@ -158,18 +261,20 @@ public class ProductRestControllerTest {
 
     /**
      * Test for retrieving products under a specific price.
-     * This test verifies that the getProductsUnderPrice endpoint returns products below the given price.
+     * This test verifies that the getProductsUnderPrice endpoint streams products below the given price.
      */
     @Test
     void testGetProductsUnderPrice() throws Exception {
         BigDecimal maxPrice = BigDecimal.valueOf(20);
-        List<ProductResponseDTO> products = Arrays.asList(sampleProductResponse);
-
-        when(productService.getProductsUnderPrice(maxPrice)).thenReturn(products);
+        doAnswer(streamProducts(1)).when(productService).streamProductsUnderPrice(eq(maxPrice), any());
 
-        mockMvc.perform(get("/api/v1/products/under-price")
+        MvcResult result = mockMvc.perform(get("/api/v1/products/under-price")
                         .param("price", "20")
                         .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$[0].price").value(19.99));
@@ -177,18 +282,195 @@ public class ProductRestControllerTest {
 
     /**
      * Test for retrieving products that are in stock.
-     * This test verifies that the getInStockProducts endpoint returns products that are in stock.
+     * This test verifies that the getInStockProducts endpoint streams products that are in stock.
      */
     @Test
     void testGetInStockProducts() throws Exception {
-        List<ProductResponseDTO> products = Arrays.asList(sampleProductResponse);
-
-        when(productService.getInStockProducts()).thenReturn(products);
+        doAnswer(streamProducts(0)).when(productService).streamInStockProducts(any());
 
-        mockMvc.perform(get("/api/v1/products/in-stock")
+        MvcResult result = mockMvc.perform(get("/api/v1/products/in-stock")
                         .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$[0].stock").value(10));
     }
+
+    /**
+     * Test for updating products in bulk.
+     * This test verifies that the update is applied and its counts returned.
+     */
+    @Test
+    void testBulkUpdateProducts() throws Exception {
+        when(productService.bulkUpdateProducts(any(ProductBulkUpdateDTO.class)))
+                .thenReturn(new ProductBulkUpdateResultDTO(2, List.of(3L)));
+
+        mockMvc.perform(patch("/api/v1/products/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[1,2,3],\"priceFactor\":0.9}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(2))
+                .andExpect(jsonPath("$.missingIds[0]").value(3));
+    }
+
+    /**
+     * Test for updating products in bulk with both a category and IDs.
+     * This test verifies that the update is rejected.
+     */
+    @Test
+    void testBulkUpdateProductsWithTwoSelections() throws Exception {
+        mockMvc.perform(patch("/api/v1/products/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"categoryId\":1,\"ids\":[1],\"stock\":5}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test for reserving more stock than a product has.
+     * This test verifies that the reservation is answered with a conflict.
+     */
+    @Test
+    void testReserveStockConflict() throws Exception {
+        doThrow(new InsufficientStockException("Product 1 has less stock than 5"))
+                .when(productService).reserveStock(1L, 5);
+
+        mockMvc.perform(post("/api/v1/products/1/stock/reserve").param("quantity", "5"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.title").value("Insufficient Stock"));
+    }
+
+    /**
+     * Test for importing products from a CSV body.
+     * This test verifies that quoted fields are read whole and that a row that cannot be read is reported
+     * with its row number.
+     */
+    @Test
+    void testImportProductsFromCsv() throws Exception {
+        List<ProductRow> rows = new ArrayList<>();
+        when(productImportService.importProducts(any())).thenAnswer(invocation -> {
+            ProductRowReader reader = invocation.getArgument(0);
+            for (ProductRow row = reader.next(); row != null; row = reader.next()) {
+                rows.add(row);
+            }
+            ProductRow invalid = rows.get(1);
+            return new ProductImportResultDTO(1, 1,
+                    List.of(new ProductImportResultDTO.RowError(invalid.number(), invalid.error())), false);
+        });
+
+        String csv = "name,description,price,in_stock,stock\r\n"
+                + "\"Lamp, desk\",\"Warm \"\"white\"\"\nlight\",19.99,true,4\r\n"
+                + "Chair,Oak,abc,false,1\r\n";
+        mockMvc.perform(post("/api/v1/products/import")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("Invalid price 'abc'"));
+
+        assertEquals(2, rows.size());
+        ProductRequestDTO lamp = rows.get(0).product();
+        assertEquals("Lamp, desk", lamp.getName());
+        assertEquals("Warm \"white\"\nlight", lamp.getDescription());
+        assertEquals(new BigDecimal("19.99"), lamp.getPrice());
+        assertTrue(lamp.isInStock());
+        assertEquals(4, lamp.getStock());
+    }
+
+    /**
+     * Test for importing products from a CSV body without the required columns.
+     * This test verifies that the import is rejected before any row is read.
+     */
+    @Test
+    void testImportProductsWithoutCsvHeader() throws Exception {
+        mockMvc.perform(post("/api/v1/products/import")
+                        .contentType("text/csv")
+                        .content("title,cost\nLamp,19.99\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test for importing products from an XLSX workbook.
+     * This test verifies that shared strings, numeric and boolean cells are read, blank rows skipped
+     * and rows numbered as in the sheet.
+     */
+    @Test
+    void testImportProductsFromXlsx() throws Exception {
+        List<ProductRow> rows = new ArrayList<>();
+        when(productImportService.importProducts(any())).thenAnswer(invocation -> {
+            ProductRowReader reader = invocation.getArgument(0);
+            for (ProductRow row = reader.next(); row != null; row = reader.next()) {
+                rows.add(row);
+            }
+            return new ProductImportResultDTO(rows.size(), 0, List.of(), false);
+        });
+
+        ByteArrayOutputStream xlsx = new ByteArrayOutputStream();
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Products");
+            Row header = sheet.createRow(0);
+            String[] columns = {"Name", "Description", "Price", "In_Stock", "Stock"};
+            for (int i = 0; i < columns.length; i++) {
+                header.createCell(i).setCellValue(columns[i]);
+            }
+            Row lamp = sheet.createRow(1);
+            lamp.createCell(0).setCellValue("Lamp");
+            lamp.createCell(1).setCellValue("Warm white light");
+            lamp.createCell(2).setCellValue(19.99);
+            lamp.createCell(3).setCellValue(true);
+            lamp.createCell(4).setCellValue(4);
+            // Row 3 is left blank
+            Row chair = sheet.createRow(3);
+            chair.createCell(0).setCellValue("Chair");
+            chair.createCell(1).setCellValue("Oak");
+            chair.createCell(3).setCellValue(false);
+            workbook.write(xlsx);
+        }
+
+        mockMvc.perform(post("/api/v1/products/import")
+                        .contentType(ProductRowReaders.XLSX_VALUE)
+                        .content(xlsx.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2));
+
+        assertEquals(2, rows.size());
+        ProductRequestDTO lampProduct = rows.get(0).product();
+        assertEquals(2, rows.get(0).number());
+        assertEquals("Lamp", lampProduct.getName());
+        assertEquals("Warm white light", lampProduct.getDescription());
+        assertEquals(new BigDecimal("19.99"), lampProduct.getPrice());
+        assertTrue(lampProduct.isInStock());
+        assertEquals(4, lampProduct.getStock());
+        ProductRequestDTO chairProduct = rows.get(1).product();
+        assertEquals(4, rows.get(1).number());
+        assertEquals("Chair", chairProduct.getName());
+        assertNull(chairProduct.getPrice());
+        assertFalse(chairProduct.isInStock());
+    }
+
+    /**
+     * Test for importing products from a body that is not a workbook.
+     * This test verifies that the import is rejected before any row is read.
+     */
+    @Test
+    void testImportProductsFromInvalidXlsx() throws Exception {
+        mockMvc.perform(post("/api/v1/products/import")
+                        .contentType(ProductRowReaders.XLSX_VALUE)
+                        .content("name,description\nLamp,Light\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * An answer handing the sample product to the consumer argument at the given index.
+     */
+    private Answer<Void> streamProducts(int consumerIndex) {
+        return invocation -> {
+            Consumer<ProductResponseDTO> consumer = invocation.getArgument(consumerIndex);
+            consumer.accept(sampleProductResponse);
+            return null;
+        };
+    }
 }
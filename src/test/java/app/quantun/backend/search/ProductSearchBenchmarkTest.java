@@ -0,0 +1,121 @@
+package app.quantun.backend.search;
+
+import app.quantun.backend.BenchmarkSupport;
+import app.quantun.backend.BenchmarkSupport.Measurement;
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.ProductRepository;
+import app.quantun.backend.repository.ProductTrigramRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of substring searches on product names: a {@code LOWER(name) LIKE} scan of the products,
+ * against the trigram index lookup of {@link ProductSearchIndex#nameContains(String)}.
+ * Both must find the same products. Run with
+ * {@code mvn test -Dtest=ProductSearchBenchmarkTest -Dbenchmark=true}; the number of products defaults
+ * to one million and can be lowered with {@code -Dbenchmark.products}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductSearchBenchmarkTest {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 1_000_000);
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 10;
+
+    private static final String[] ADJECTIVES = {"Compact", "Deluxe", "Rugged", "Smart", "Classic", "Portable",
+            "Wireless", "Ergonomic", "Premium", "Vintage"};
+    private static final String[] NOUNS = {"Lantern", "Kettle", "Headphones", "Backpack", "Blender", "Monitor",
+            "Keyboard", "Speaker", "Toaster", "Camera", "Drill", "Tent", "Watch", "Router", "Heater"};
+    private static final String[] MATERIALS = {"steel", "bamboo", "aluminium", "leather", "ceramic"};
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductTrigramRepository trigramRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private List<Long> insertedIds;
+
+    @BeforeEach
+    void setUp() {
+        insertedIds = BenchmarkSupport.insertProducts(productRepository, transactionTemplate, PRODUCTS, i -> {
+            Product product = BenchmarkSupport.product(i);
+            product.setName(ADJECTIVES[i % ADJECTIVES.length] + " " + NOUNS[i % NOUNS.length]
+                    + " SKU-" + String.format("%07d", i));
+            product.setDescription("Made of " + MATERIALS[i % MATERIALS.length]);
+            return product;
+        }, productSearchIndex::index);
+    }
+
+    @AfterEach
+    void tearDown() {
+        BenchmarkSupport.deleteInBatches(transactionTemplate, insertedIds, ids -> {
+            trigramRepository.deleteByProductIdIn(ids);
+            productRepository.deleteAllByIdInBatch(ids);
+        });
+    }
+
+    /**
+     * The index finds the same products as the scan, and a selective term faster.
+     */
+    @Test
+    void benchmarkNameSearch() {
+        String selective = "sku-" + String.format("%07d", PRODUCTS / 2);
+        String common = "rugged speaker";
+
+        Measurement<List<ProductResponseDTO>> selectiveScan = measure(selective, this::lowerLike);
+        Measurement<List<ProductResponseDTO>> selectiveIndex = measure(selective, this::trigrams);
+        Measurement<List<ProductResponseDTO>> commonScan = measure(common, this::lowerLike);
+        Measurement<List<ProductResponseDTO>> commonIndex = measure(common, this::trigrams);
+
+        BenchmarkSupport.table(PRODUCTS + " products", "avg ms", "matches")
+                .row("scan '" + selective + "'", selectiveScan.averageMillis(), selectiveScan.result().size())
+                .row("index '" + selective + "'", selectiveIndex.averageMillis(), selectiveIndex.result().size())
+                .row("scan '" + common + "'", commonScan.averageMillis(), commonScan.result().size())
+                .row("index '" + common + "'", commonIndex.averageMillis(), commonIndex.result().size())
+                .print();
+        assertEquals(ids(selectiveScan), ids(selectiveIndex));
+        assertEquals(ids(commonScan), ids(commonIndex));
+        assertEquals(1, selectiveIndex.result().size());
+        assertTrue(selectiveIndex.averageMillis() < selectiveScan.averageMillis());
+    }
+
+    private List<ProductResponseDTO> lowerLike(String term) {
+        Specification<Product> specification = (root, query, criteriaBuilder) ->
+                criteriaBuilder.like(criteriaBuilder.lower(root.get("name")), "%" + term + "%");
+        return productRepository.findResponses(specification);
+    }
+
+    private List<ProductResponseDTO> trigrams(String term) {
+        return productRepository.findResponses(productSearchIndex.nameContains(term));
+    }
+
+    private Measurement<List<ProductResponseDTO>> measure(String term,
+                                                          Function<String, List<ProductResponseDTO>> search) {
+        return BenchmarkSupport.measure(WARMUP_RUNS, MEASURED_RUNS,
+                () -> transactionTemplate.execute(status -> search.apply(term)));
+    }
+
+    private static List<Long> ids(Measurement<List<ProductResponseDTO>> measurement) {
+        return measurement.result().stream().map(ProductResponseDTO::getId).sorted().toList();
+    }
+}
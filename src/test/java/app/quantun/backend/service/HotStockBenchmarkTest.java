@@ -0,0 +1,144 @@
+package app.quantun.backend.service;
+
+import app.quantun.backend.BenchmarkSupport;
+import app.quantun.backend.BenchmarkSupport.Throughput;
+import app.quantun.backend.exception.InsufficientStockException;
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.ProductRepository;
+import app.quantun.backend.stock.HotStockCounters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of concurrent checkouts of a single hot product: reserving its stock with a conditional update per
+ * reservation, against reserving it from the striped in-memory counter that flushes the reservations behind.
+ * Reports the reservations per second of each, and checks that the counter neither oversells nor loses a
+ * reservation once flushed, and that the flushed stock is read through the product.
+ * Run with {@code mvn test -Dtest=HotStockBenchmarkTest -Dbenchmark=true}; the number of threads defaults to 16
+ * and can be changed with {@code -Dbenchmark.threads}.
+ */
+@SpringBootTest(properties = {
+        "app.stock.hot.enabled=true",
+        "app.stock.hot.product-ids=" + HotStockBenchmarkTest.HOT_ID + "," + HotStockBenchmarkTest.SOLD_OUT_ID
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HotStockBenchmarkTest {
+
+    static final long HOT_ID = 900_001L;
+    static final long SOLD_OUT_ID = 900_002L;
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final int RESERVATIONS_PER_THREAD = 2_000;
+    private static final int STOCK = 1_000_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private HotStockCounters hotStockCounters;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long updatedId;
+
+    @BeforeEach
+    void setUp() {
+        Product product = BenchmarkSupport.product(0);
+        product.setPrice(new BigDecimal("49.99"));
+        product.setInStock(true);
+        product.setStock(STOCK);
+        updatedId = productRepository.save(product).getId();
+
+        // The hot products are configured by ID, so they are inserted with fixed ones
+        for (long id : new long[]{HOT_ID, SOLD_OUT_ID}) {
+            jdbcTemplate.update("INSERT INTO product (id, name, description, price, in_stock, stock, reserved, "
+                            + "leased, recovered, version, created_at) VALUES (?, ?, ?, ?, ?, ?, 0, 0, 0, 0, ?)",
+                    id, "Hot product " + id, "Sold out in minutes", new BigDecimal("49.99"), true, STOCK,
+                    LocalDateTime.now());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM stock_lease WHERE product_id IN (?, ?)", HOT_ID, SOLD_OUT_ID);
+        productRepository.deleteAllByIdInBatch(List.of(updatedId, HOT_ID, SOLD_OUT_ID));
+    }
+
+    /**
+     * The counter is faster than conditional updates, and once flushed has reserved every unit it sold.
+     */
+    @Test
+    void benchmarkHotProduct() throws Exception {
+        Throughput updates = run(() -> {
+            productService.reserveStock(updatedId, 1);
+            return true;
+        });
+        Throughput counter = run(() -> {
+            productService.reserveStock(HOT_ID, 1);
+            return true;
+        });
+        hotStockCounters.flush();
+
+        BenchmarkSupport.table("", "ops/s")
+                .row("conditional update", updates.rate())
+                .row("in-memory counter", counter.rate())
+                .print();
+
+        assertEquals(STOCK - counter.succeeded(), stock(HOT_ID));
+        assertEquals(counter.succeeded(), reserved(HOT_ID));
+        assertEquals(STOCK - counter.succeeded(), productService.getProductById(HOT_ID).orElseThrow().getStock());
+        assertTrue(counter.rate() > updates.rate());
+    }
+
+    /**
+     * Concurrent reservations of a hot product with less stock than asked for sell exactly its stock.
+     */
+    @Test
+    void benchmarkNoOversell() throws Exception {
+        int stock = THREADS * RESERVATIONS_PER_THREAD / 2;
+        jdbcTemplate.update("UPDATE product SET stock = ? WHERE id = ?", stock, SOLD_OUT_ID);
+
+        Throughput result = run(() -> {
+            try {
+                productService.reserveStock(SOLD_OUT_ID, 1);
+                return true;
+            } catch (InsufficientStockException e) {
+                return false;
+            }
+        });
+        hotStockCounters.flush();
+
+        assertEquals(stock, result.succeeded());
+        assertEquals(0, stock(SOLD_OUT_ID));
+        assertEquals(stock, reserved(SOLD_OUT_ID));
+        assertFalse(productService.getProductById(SOLD_OUT_ID).orElseThrow().isInStock());
+    }
+
+    private Throughput run(Callable<Boolean> reservation) throws Exception {
+        return BenchmarkSupport.concurrently(THREADS, RESERVATIONS_PER_THREAD, reservation);
+    }
+
+    private int stock(Long id) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = ?", Integer.class, id);
+    }
+
+    private int reserved(Long id) {
+        return jdbcTemplate.queryForObject("SELECT reserved FROM product WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,145 @@
+package app.quantun.backend.service;
+
+import app.quantun.backend.BenchmarkSupport;
+import app.quantun.backend.BenchmarkSupport.Timed;
+import app.quantun.backend.models.contract.request.ProductBulkUpdateDTO;
+import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.ProductBulkUpdateResultDTO;
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.models.entity.Category;
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.CategoryRepository;
+import app.quantun.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of repricing products one update at a time against the set-based bulk update, by ID and by category.
+ * Reports the products updated per second of each, and checks that the bulk updates keep the stock flag and
+ * the update timestamp consistent and are visible through the cached read path.
+ * Run with {@code mvn test -Dtest=ProductBulkUpdateBenchmarkTest -Dbenchmark=true}; the number of products
+ * defaults to 10,000 and can be changed with {@code -Dbenchmark.products}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductBulkUpdateBenchmarkTest {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 10_000);
+    private static final int SINGLE_UPDATES = 1_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Category category;
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setName("Bulk update benchmark");
+        category.setDescription("Category of the bulk update benchmark");
+        category = categoryRepository.save(category);
+
+        ids = BenchmarkSupport.insertProducts(productRepository, transactionTemplate, PRODUCTS, i -> {
+            Product product = BenchmarkSupport.product(i);
+            product.setPrice(BigDecimal.valueOf(1_000 + i % 10_000, 2));
+            product.setInStock(true);
+            product.setStock(10);
+            product.setCategory(category);
+            return product;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        // The single updates index the products they write
+        jdbcTemplate.update("DELETE FROM product_trigram WHERE product_id IN "
+                + "(SELECT id FROM product WHERE category_id = ?)", category.getId());
+        BenchmarkSupport.deleteInBatches(transactionTemplate, ids, productRepository::deleteAllByIdInBatch);
+        categoryRepository.delete(category);
+    }
+
+    /**
+     * The bulk updates are faster per product than single updates and leave consistent, visible products.
+     */
+    @Test
+    void benchmarkBulkUpdate() throws Exception {
+        Timed<Integer> singles = BenchmarkSupport.time(() -> {
+            for (int i = 0; i < SINGLE_UPDATES; i++) {
+                ProductResponseDTO product = productService.getProductById(ids.get(i)).orElseThrow();
+                productService.updateProduct(product.getId(), ProductRequestDTO.builder()
+                        .price(product.getPrice().multiply(new BigDecimal("0.9")))
+                        .inStock(product.isInStock())
+                        .stock(product.getStock())
+                        .build());
+            }
+            return SINGLE_UPDATES;
+        });
+
+        // Cached before the bulk updates, which must evict it
+        Long probeId = ids.get(PRODUCTS - 1);
+        assertTrue(productService.getProductById(probeId).orElseThrow().isInStock());
+
+        LocalDateTime before = LocalDateTime.now();
+        List<Long> requested = new ArrayList<>(ids);
+        requested.add(-1L);
+        Timed<ProductBulkUpdateResultDTO> byIds = BenchmarkSupport.time(() -> productService.bulkUpdateProducts(
+                ProductBulkUpdateDTO.builder()
+                        .ids(requested)
+                        .stock(0)
+                        .build()));
+        Timed<ProductBulkUpdateResultDTO> byCategory = BenchmarkSupport.time(() -> productService.bulkUpdateProducts(
+                ProductBulkUpdateDTO.builder()
+                        .categoryId(category.getId())
+                        .priceFactor(new BigDecimal("0.9"))
+                        .build()));
+        double singleRate = singles.rate(SINGLE_UPDATES);
+        double idsRate = byIds.rate(PRODUCTS);
+        double categoryRate = byCategory.rate(PRODUCTS);
+
+        BenchmarkSupport.table("", "products/s")
+                .row("single updates", singleRate)
+                .row("bulk by ID", idsRate)
+                .row("bulk by category", categoryRate)
+                .print();
+
+        assertEquals(PRODUCTS, byIds.result().getUpdated());
+        assertEquals(List.of(-1L), byIds.result().getMissingIds());
+        assertEquals(PRODUCTS, byCategory.result().getUpdated());
+        ProductResponseDTO probe = productService.getProductById(probeId).orElseThrow();
+        assertEquals(0, probe.getStock());
+        assertFalse(probe.isInStock());
+        Product stored = productRepository.findById(probeId).orElseThrow();
+        assertEquals(BigDecimal.valueOf(1_000 + (PRODUCTS - 1) % 10_000, 2)
+                .multiply(new BigDecimal("0.9")).setScale(2, RoundingMode.HALF_UP), stored.getPrice());
+        assertFalse(stored.getUpdatedAt().isBefore(before));
+        assertTrue(idsRate > singleRate);
+        assertTrue(categoryRate > singleRate);
+    }
+}
@@ -0,0 +1,111 @@
+package app.quantun.backend.service;
+
+import app.quantun.backend.BenchmarkSupport;
+import app.quantun.backend.BenchmarkSupport.Timed;
+import app.quantun.backend.imports.ProductRowReader;
+import app.quantun.backend.imports.ProductRowReaders;
+import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.ProductImportResultDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the bulk product import against creating the same products one request at a time.
+ * The import reads a generated CSV body; both report their throughput in rows per second.
+ * Run with {@code mvn test -Dtest=ProductImportBenchmarkTest -Dbenchmark=true}; the number of imported
+ * products defaults to 100,000 and can be changed with {@code -Dbenchmark.products}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductImportBenchmarkTest {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 100_000);
+    private static final int SINGLE_PRODUCTS = 2_000;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRowReaders productRowReaders;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long maxIdBefore;
+
+    @BeforeEach
+    void setUp() {
+        maxIdBefore = BenchmarkSupport.maxProductId(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        BenchmarkSupport.deleteProductsAfter(jdbcTemplate, maxIdBefore);
+    }
+
+    /**
+     * The import inserts every valid row, reports the invalid ones, and is faster per row than single creates.
+     */
+    @Test
+    void benchmarkImport() throws Exception {
+        Timed<Integer> singles = BenchmarkSupport.time(() -> {
+            for (int i = 0; i < SINGLE_PRODUCTS; i++) {
+                productService.createProduct(ProductRequestDTO.builder()
+                        .name("Single product " + i)
+                        .description("Created one at a time")
+                        .price(BigDecimal.valueOf(100 + i % 10_000, 2))
+                        .inStock(true)
+                        .stock(i % 100)
+                        .build());
+            }
+            return SINGLE_PRODUCTS;
+        });
+
+        StringBuilder csv = new StringBuilder("name,description,price,inStock,stock\n");
+        for (int i = 0; i < PRODUCTS; i++) {
+            // Every 1000th row has no name and fails validation
+            csv.append(i % 1_000 == 999 ? "" : "Imported product " + i).append(',')
+                    .append("\"Supplier feed, row ").append(i).append("\",")
+                    .append(BigDecimal.valueOf(100 + i % 10_000, 2)).append(',')
+                    .append(i % 3 != 0).append(',')
+                    .append(i % 100).append('\n');
+        }
+        byte[] body = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        Timed<ProductImportResultDTO> imported = BenchmarkSupport.time(() -> {
+            try (ProductRowReader rows = productRowReaders.open(MediaType.parseMediaType("text/csv"),
+                    new ByteArrayInputStream(body))) {
+                return productImportService.importProducts(rows);
+            }
+        });
+        double singleRate = singles.rate(SINGLE_PRODUCTS);
+        double importRate = imported.rate(PRODUCTS);
+
+        BenchmarkSupport.table("", "rows/s")
+                .row("single creates", singleRate)
+                .row("bulk import", importRate)
+                .print();
+
+        ProductImportResultDTO result = imported.result();
+        long invalid = PRODUCTS / 1_000;
+        assertEquals(PRODUCTS - invalid, result.getImported());
+        assertEquals(invalid, result.getFailed());
+        assertEquals(1_000, result.getErrors().get(0).getRow());
+        assertTrue(importRate > singleRate);
+    }
+}
@@ -0,0 +1,79 @@
+package app.quantun.backend.service;
+
+import app.quantun.backend.BenchmarkSupport;
+import app.quantun.backend.BenchmarkSupport.Measurement;
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the product list queries: loading entities and mapping them with ModelMapper, against
+ * selecting the DTO columns with a constructor expression.
+ * Each run reads all products in a fresh transaction, and reports the average latency and the bytes
+ * allocated by the reading thread. Run with {@code mvn test -Dtest=ProductProjectionBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductProjectionBenchmarkTest {
+
+    private static final int PRODUCTS = 5_000;
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 50;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ModelMapper modelMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private List<Long> insertedIds;
+
+    @BeforeEach
+    void setUp() {
+        insertedIds = BenchmarkSupport.insertProducts(productRepository, transactionTemplate, PRODUCTS,
+                BenchmarkSupport::product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        BenchmarkSupport.deleteInBatches(transactionTemplate, insertedIds, productRepository::deleteAllByIdInBatch);
+    }
+
+    /**
+     * The projection allocates less than loading and mapping entities.
+     */
+    @Test
+    void benchmarkListProjection() {
+        Measurement<List<ProductResponseDTO>> entities = measure(() -> productRepository.findAll().stream()
+                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
+                .toList());
+        Measurement<List<ProductResponseDTO>> projection = measure(productRepository::findAllResponses);
+
+        BenchmarkSupport.table("", "avg ms", "avg KB alloc")
+                .row("entities + ModelMapper", entities.averageMillis(), entities.averageBytes() / 1024)
+                .row("constructor projection", projection.averageMillis(), projection.averageBytes() / 1024)
+                .print();
+        assertTrue(entities.result().size() >= PRODUCTS);
+        assertTrue(projection.result().size() >= PRODUCTS);
+        assertTrue(projection.averageBytes() < entities.averageBytes());
+    }
+
+    private Measurement<List<ProductResponseDTO>> measure(Supplier<List<ProductResponseDTO>> query) {
+        return BenchmarkSupport.measure(WARMUP_RUNS, MEASURED_RUNS, () -> transactionTemplate.execute(status -> query.get()));
+    }
+}
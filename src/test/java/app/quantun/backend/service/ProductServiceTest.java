@@ -1,24 +1,52 @@
 package app.quantun.backend.service;
 
+import app.quantun.backend.cache.CoalescingCache;
+import app.quantun.backend.cache.InvalidationBus;
+import app.quantun.backend.cache.PageTotalCache;
+import app.quantun.backend.cache.ProductCacheEvictor;
+import app.quantun.backend.cache.ProductFilterCache;
+import app.quantun.backend.config.CacheConfig;
+import app.quantun.backend.exception.InsufficientStockException;
+import app.quantun.backend.models.contract.request.ProductBulkUpdateDTO;
 import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.ProductBatchResponseDTO;
+import app.quantun.backend.models.contract.response.ProductBulkUpdateResultDTO;
 import app.quantun.backend.models.contract.response.ProductResponseDTO;
 import app.quantun.backend.models.entity.Product;
 import app.quantun.backend.repository.ProductRepository;
+import app.quantun.backend.repository.specification.ProductSpecification;
+import app.quantun.backend.search.ProductSearchIndex;
 import app.quantun.backend.service.impl.ProductServiceImpl;
+import app.quantun.backend.stock.HotStockCounters;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,7 +62,30 @@ class ProductServiceTest {
     @Mock
     private ModelMapper modelMapper;
 
-    @InjectMocks
+    @Mock
+    private ProductFilterCache productFilterCache;
+
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    @Mock
+    private PageTotalCache pageTotalCache;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private HotStockCounters hotStockCounters;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     private ProductServiceImpl productService;
 
     private Product testProduct;
@@ -43,6 +94,13 @@ class ProductServiceTest {
 
     @BeforeEach
     void setUp() {
+        // The evictor is real, so the tests check what ends up in the caches
+        ProductCacheEvictor productCacheEvictor = new ProductCacheEvictor(cacheManager, entityManagerFactory,
+                invalidationBus, pageTotalCache, productFilterCache);
+        productService = new ProductServiceImpl(productRepository, modelMapper, productFilterCache, invalidationBus,
+                pageTotalCache, productSearchIndex, cacheManager, productCacheEvictor, hotStockCounters,
+                transactionTemplate);
+
         // Initialize test data
         testProduct = new Product();
         testProduct.setId(1L);
@@ -63,24 +121,24 @@ class ProductServiceTest {
     }
 
     /**
-     * Test for retrieving all products.
-     * This test verifies that the getAllProducts method returns a list of products.
+     * Test for streaming all products.
+     * This test verifies that the streamAllProducts method hands every product to the consumer and closes the stream.
      */
     @Test
-    void testGetAllProducts() {
+    void testStreamAllProducts() {
         // Arrange
-        List<Product> products = List.of(testProduct);
-        when(productRepository.findAll()).thenReturn(products);
-        when(modelMapper.map(any(), eq(ProductResponseDTO.class))).thenReturn(testProductResponseDTO);
+        AtomicBoolean closed = new AtomicBoolean();
+        when(productRepository.streamAllResponses())
+                .thenReturn(Stream.of(testProductResponseDTO).onClose(() -> closed.set(true)));
 
         // Act
-        List<ProductResponseDTO> result = productService.getAllProducts();
+        List<ProductResponseDTO> result = new ArrayList<>();
+        productService.streamAllProducts(result::add);
 
         // Assert
-        assertNotNull(result);
-        assertFalse(result.isEmpty());
-        assertEquals(1, result.size());
-        verify(productRepository).findAll();
+        assertEquals(List.of(testProductResponseDTO), result);
+        assertTrue(closed.get());
+        verify(productRepository).streamAllResponses();
     }
 
     /**
@@ -161,6 +219,29 @@ class ProductServiceTest {
         verify(productRepository).save(existingProduct);
     }
 
+    /**
+     * Test for updating the stock of a product below its units leased to hot stock counters.
+     * This test verifies that the update is rejected and the product not saved.
+     */
+    @Test
+    void testUpdateProductBelowLeasedStock() {
+        // Arrange
+        Product existingProduct = new Product();
+        existingProduct.setId(1L);
+        existingProduct.setStock(100);
+        existingProduct.setLeased(50);
+        testProductRequestDTO.setStock(20);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(existingProduct));
+
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () ->
+                productService.updateProduct(1L, testProductRequestDTO)
+        );
+        assertEquals(100, existingProduct.getStock());
+        verify(productRepository, never()).save(any());
+    }
+
     /**
      * Test for updating a product when the product is not found.
      * This test verifies that the updateProduct method throws a RuntimeException.
@@ -214,9 +295,9 @@ class ProductServiceTest {
     @Test
     void testSearchProductsByName() {
         // Arrange
-        List<Product> products = List.of(testProduct);
-        when(productRepository.findByNameContaining("Test")).thenReturn(products);
-        when(modelMapper.map(any(), eq(ProductResponseDTO.class))).thenReturn(testProductResponseDTO);
+        Specification<Product> nameContains = ProductSpecification.nameContains("Test");
+        when(productSearchIndex.nameContains("Test")).thenReturn(nameContains);
+        when(productRepository.findResponses(nameContains)).thenReturn(List.of(testProductResponseDTO));
 
         // Act
         List<ProductResponseDTO> result = productService.searchProductsByName("Test");
@@ -228,19 +309,219 @@ class ProductServiceTest {
     }
 
     /**
-     * Test for retrieving products under a specific price.
-     * This test verifies that the getProductsUnderPrice method returns products below the given price.
+     * Test for retrieving products by a list of IDs.
+     * This test verifies that cached products are not loaded again, that the others are loaded with one query
+     * and cached, and that the products and missing IDs keep the order of the request.
+     */
+    @Test
+    void testGetProductsByIds() {
+        // Arrange
+        ProductResponseDTO cachedProduct = ProductResponseDTO.builder().id(2L).name("Cached Product").build();
+        Cache cache = new ConcurrentMapCache(CacheConfig.PRODUCTS);
+        cache.put(2L, cachedProduct);
+        when(cacheManager.getCache(CacheConfig.PRODUCTS)).thenReturn(cache);
+        when(productRepository.findResponsesByIdIn(List.of(3L, 1L))).thenReturn(List.of(testProductResponseDTO));
+
+        // Act
+        ProductBatchResponseDTO result = productService.getProductsByIds(List.of(3L, 2L, 1L, 2L));
+
+        // Assert
+        assertEquals(List.of(cachedProduct, testProductResponseDTO), result.getProducts());
+        assertEquals(List.of(3L), result.getMissingIds());
+        assertEquals(testProductResponseDTO, cache.get(1L, ProductResponseDTO.class));
+    }
+
+    /**
+     * Test for retrieving products by a list of IDs that the product cache remembers as absent.
+     * This test verifies that those IDs are reported missing without a lookup, and that the IDs the query does
+     * not find are remembered as absent in turn.
+     */
+    @Test
+    void testGetProductsByIdsSkipsKnownAbsentIds() {
+        // Arrange
+        CoalescingCache cache = new CoalescingCache(new ConcurrentMapCache(CacheConfig.PRODUCTS), 100,
+                Duration.ofMinutes(1), 0, 100, Duration.ofMinutes(1));
+        cache.get(5L, () -> null);
+        when(cacheManager.getCache(CacheConfig.PRODUCTS)).thenReturn(cache);
+        when(productRepository.findResponsesByIdIn(List.of(1L, 3L))).thenReturn(List.of(testProductResponseDTO));
+
+        // Act
+        ProductBatchResponseDTO result = productService.getProductsByIds(List.of(5L, 1L, 3L));
+
+        // Assert
+        assertEquals(List.of(testProductResponseDTO), result.getProducts());
+        assertEquals(List.of(5L, 3L), result.getMissingIds());
+        assertTrue(cache.isKnownAbsent(3L));
+        assertEquals(testProductResponseDTO, cache.get(1L, ProductResponseDTO.class));
+    }
+
+    /**
+     * Test for updating products in bulk by ID.
+     * This test verifies that the IDs matching no product are reported and only the updated products evicted.
+     */
+    @Test
+    void testBulkUpdateProductsByIds() {
+        // Arrange
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        org.hibernate.Cache secondLevelCache = mock(org.hibernate.Cache.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(secondLevelCache);
+        Cache products = new ConcurrentMapCache(CacheConfig.PRODUCTS);
+        products.put(1L, testProductResponseDTO);
+        products.put(3L, testProductResponseDTO);
+        when(cacheManager.getCache(CacheConfig.PRODUCTS)).thenReturn(products);
+        when(productRepository.updateByIds(eq(List.of(1L, 2L)), any())).thenReturn(List.of(1L));
+
+        // Act
+        ProductBulkUpdateResultDTO result = productService.bulkUpdateProducts(ProductBulkUpdateDTO.builder()
+                .ids(List.of(1L, 2L, 1L))
+                .stock(0)
+                .build());
+
+        // Assert
+        assertEquals(1, result.getUpdated());
+        assertEquals(List.of(2L), result.getMissingIds());
+        assertNull(products.get(1L));
+        assertNotNull(products.get(3L));
+        verify(secondLevelCache).evictEntityData(Product.class, 1L);
+        verify(invalidationBus).publish(InvalidationBus.PRODUCT, 1L);
+        verify(productFilterCache).invalidateAll();
+    }
+
+    /**
+     * Test for updating the products of a category in bulk.
+     * This test verifies that the products are evicted at once and a single change is published for them.
+     */
+    @Test
+    void testBulkUpdateProductsByCategory() {
+        // Arrange
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        org.hibernate.Cache secondLevelCache = mock(org.hibernate.Cache.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(secondLevelCache);
+        Cache products = new ConcurrentMapCache(CacheConfig.PRODUCTS);
+        products.put(1L, testProductResponseDTO);
+        when(cacheManager.getCache(CacheConfig.PRODUCTS)).thenReturn(products);
+        when(productRepository.updateByCategoryId(eq(7L), any())).thenReturn(3);
+
+        // Act
+        ProductBulkUpdateResultDTO result = productService.bulkUpdateProducts(ProductBulkUpdateDTO.builder()
+                .categoryId(7L)
+                .stock(0)
+                .build());
+
+        // Assert
+        assertEquals(3, result.getUpdated());
+        assertEquals(List.of(), result.getMissingIds());
+        assertNull(products.get(1L));
+        verify(secondLevelCache).evictEntityData(Product.class);
+        verify(invalidationBus).publish(InvalidationBus.CATEGORY_PRODUCTS, 7L);
+        verify(invalidationBus, never()).publish(eq(InvalidationBus.PRODUCT), any());
+        verify(productFilterCache).invalidate(7L, null);
+    }
+
+    /**
+     * Test for setting the stock of products in bulk below the units leased of one of them.
+     * This test verifies that the update is rejected rather than reporting the leased product as missing.
+     */
+    @Test
+    void testBulkUpdateProductsBelowLeasedStock() {
+        // Arrange
+        when(productRepository.updateByIds(eq(List.of(1L, 2L)), any())).thenReturn(List.of(1L));
+        when(productRepository.findIdsLeasedAbove(List.of(2L), 5)).thenReturn(List.of(2L));
+
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () ->
+                productService.bulkUpdateProducts(ProductBulkUpdateDTO.builder()
+                        .ids(List.of(1L, 2L))
+                        .stock(5)
+                        .build())
+        );
+        verify(invalidationBus, never()).publish(any(), any());
+    }
+
+    /**
+     * Test for reserving the last units of a product.
+     * This test verifies that the product is evicted and the in-stock totals and filter results dropped.
+     */
+    @Test
+    void testReserveStockExhaustingProduct() {
+        // Arrange
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        org.hibernate.Cache secondLevelCache = mock(org.hibernate.Cache.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(secondLevelCache);
+        runTransactions();
+        when(productRepository.reserveStock(eq(1L), eq(2), eq(false), any())).thenReturn(0);
+        when(productRepository.reserveStock(eq(1L), eq(2), eq(true), any())).thenReturn(1);
+
+        // Act
+        productService.reserveStock(1L, 2);
+
+        // Assert
+        verify(secondLevelCache).evictEntityData(Product.class, 1L);
+        verify(invalidationBus).publish(InvalidationBus.PRODUCT, 1L);
+        verify(pageTotalCache).invalidate();
+        verify(productFilterCache).invalidateAll();
+    }
+
+    /**
+     * Test for reserving more stock than a product has.
+     * This test verifies that the reservation fails without evicting anything.
+     */
+    @Test
+    void testReserveStockWithoutEnoughStock() {
+        // Arrange
+        runTransactions();
+        when(productRepository.reserveStock(eq(1L), eq(5), anyBoolean(), any())).thenReturn(0);
+        when(productRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () -> productService.reserveStock(1L, 5));
+        verify(invalidationBus, never()).publish(any(), any());
+    }
+
+    /**
+     * Test for reserving stock of a hot product.
+     * This test verifies that the reservation is taken from the in-memory counter without a database update.
+     */
+    @Test
+    void testReserveStockOfHotProduct() {
+        // Arrange
+        when(hotStockCounters.isHot(1L)).thenReturn(true);
+        when(hotStockCounters.tryReserve(1L, 2)).thenReturn(true);
+
+        // Act
+        productService.reserveStock(1L, 2);
+
+        // Assert
+        verify(productRepository, never()).reserveStock(any(), anyInt(), anyBoolean(), any());
+        verify(invalidationBus, never()).publish(any(), any());
+    }
+
+    /**
+     * Run the callbacks given to the transaction template, as a transaction would.
+     */
+    private void runTransactions() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    /**
+     * Test for streaming products under a specific price.
+     * This test verifies that the streamProductsUnderPrice method hands out products below the given price.
      */
     @Test
-    void testGetProductsUnderPrice() {
+    void testStreamProductsUnderPrice() {
         // Arrange
-        List<Product> products = List.of(testProduct);
         BigDecimal maxPrice = BigDecimal.valueOf(200.00);
-        when(productRepository.findByPriceLessThan(maxPrice)).thenReturn(products);
-        when(modelMapper.map(any(), eq(ProductResponseDTO.class))).thenReturn(testProductResponseDTO);
+        when(productRepository.streamResponsesByPriceLessThan(maxPrice)).thenReturn(Stream.of(testProductResponseDTO));
 
         // Act
-        List<ProductResponseDTO> result = productService.getProductsUnderPrice(maxPrice);
+        List<ProductResponseDTO> result = new ArrayList<>();
+        productService.streamProductsUnderPrice(maxPrice, result::add);
 
         // Assert
         assertNotNull(result);
@@ -249,18 +530,17 @@ class ProductServiceTest {
     }
 
     /**
-     * Test for retrieving products that are in stock.
-     * This test verifies that the getInStockProducts method returns products that are in stock.
+     * Test for streaming products that are in stock.
+     * This test verifies that the streamInStockProducts method hands out products that are in stock.
      */
     @Test
-    void testGetInStockProducts() {
+    void testStreamInStockProducts() {
         // Arrange
-        List<Product> products = List.of(testProduct);
-        when(productRepository.findByInStock(true)).thenReturn(products);
-        when(modelMapper.map(any(), eq(ProductResponseDTO.class))).thenReturn(testProductResponseDTO);
+        when(productRepository.streamResponsesByInStock(true)).thenReturn(Stream.of(testProductResponseDTO));
 
         // Act
-        List<ProductResponseDTO> result = productService.getInStockProducts();
+        List<ProductResponseDTO> result = new ArrayList<>();
+        productService.streamInStockProducts(result::add);
 
         // Assert
         assertNotNull(result);
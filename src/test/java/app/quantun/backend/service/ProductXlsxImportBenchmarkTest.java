@@ -0,0 +1,178 @@
+package app.quantun.backend.service;
+
+import app.quantun.backend.BenchmarkSupport;
+import app.quantun.backend.BenchmarkSupport.Timed;
+import app.quantun.backend.imports.ProductRow;
+import app.quantun.backend.imports.ProductRowReader;
+import app.quantun.backend.imports.ProductRowReaders;
+import app.quantun.backend.models.contract.response.ProductImportResultDTO;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of the XLSX product import at 100,000 and 1,000,000 rows.
+ * For each size the workbook is read once through the streaming row reader alone, then imported; the reader pass
+ * shows the peak heap of parsing, which the import cannot, as the in-memory test database shares the heap.
+ * At the smallest size the peak heap of loading the same workbook with the usermodel API is shown for comparison.
+ * Run with {@code mvn test -Dtest=ProductXlsxImportBenchmarkTest -Dbenchmark=true}; the sizes can be changed with
+ * {@code -Dbenchmark.rows=100000,1000000}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductXlsxImportBenchmarkTest {
+
+    private static final MediaType XLSX = MediaType.parseMediaType(ProductRowReaders.XLSX_VALUE);
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductRowReaders productRowReaders;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long maxIdBefore;
+
+    @BeforeEach
+    void setUp() {
+        maxIdBefore = BenchmarkSupport.maxProductId(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        BenchmarkSupport.deleteProductsAfter(jdbcTemplate, maxIdBefore);
+    }
+
+    /**
+     * Every valid row of the workbook is imported and every invalid one reported, at each size.
+     */
+    @Test
+    void benchmarkXlsxImport() throws Exception {
+        int[] sizes = Arrays.stream(System.getProperty("benchmark.rows", "100000,1000000").split(","))
+                .mapToInt(size -> Integer.parseInt(size.trim()))
+                .toArray();
+
+        BenchmarkSupport.Table table = BenchmarkSupport.table("rows", "file MB", "read peak MB", "read rows/s",
+                "import rows/s");
+        Long usermodelPeak = null;
+        for (int rows : sizes) {
+            Path file = Files.createTempFile("product-benchmark", ".xlsx");
+            try {
+                write(file, rows);
+                if (usermodelPeak == null) {
+                    usermodelPeak = measureUsermodel(file);
+                }
+
+                resetPeakHeap();
+                Timed<Long> read = BenchmarkSupport.time(() -> {
+                    long count = 0;
+                    try (ProductRowReader reader = productRowReaders.open(XLSX, Files.newInputStream(file))) {
+                        for (ProductRow row = reader.next(); row != null; row = reader.next()) {
+                            count++;
+                        }
+                    }
+                    return count;
+                });
+                long readPeak = peakHeap();
+
+                Timed<ProductImportResultDTO> imported = BenchmarkSupport.time(() -> {
+                    try (ProductRowReader reader = productRowReaders.open(XLSX, Files.newInputStream(file))) {
+                        return productImportService.importProducts(reader);
+                    }
+                });
+
+                table.row(rows, Files.size(file) >> 20, readPeak >> 20, read.rate(read.result()),
+                        imported.rate(rows));
+
+                ProductImportResultDTO result = imported.result();
+                long invalid = rows / 1_000;
+                assertEquals(rows, read.result().longValue());
+                assertEquals(rows - invalid, result.getImported());
+                assertEquals(invalid, result.getFailed());
+                // The header is row 1, so the 1000th product is row 1001
+                assertEquals(1_001, result.getErrors().get(0).getRow());
+            } finally {
+                Files.deleteIfExists(file);
+                BenchmarkSupport.deleteProductsAfter(jdbcTemplate, maxIdBefore);
+            }
+        }
+        table.print();
+        System.out.printf("usermodel load of %d rows, peak MB: %d%n", sizes[0], usermodelPeak >> 20);
+    }
+
+    /**
+     * Write a workbook of products with a streaming writer, keeping a window of rows in memory.
+     * Every 1000th row has no name and fails validation.
+     */
+    private static void write(Path file, int rows) throws Exception {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+             OutputStream output = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Products");
+            Row header = sheet.createRow(0);
+            String[] columns = {"name", "description", "price", "inStock", "stock"};
+            for (int i = 0; i < columns.length; i++) {
+                header.createCell(i).setCellValue(columns[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue(i % 1_000 == 999 ? "" : "Imported product " + i);
+                row.createCell(1).setCellValue("Supplier sheet, row " + i);
+                row.createCell(2).setCellValue((100 + i % 10_000) / 100.0);
+                row.createCell(3).setCellValue(i % 3 != 0);
+                row.createCell(4).setCellValue(i % 100);
+            }
+            workbook.write(output);
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * The peak heap of loading a workbook whole with the usermodel API.
+     */
+    private static long measureUsermodel(Path file) throws Exception {
+        resetPeakHeap();
+        try (InputStream input = Files.newInputStream(file);
+             XSSFWorkbook workbook = new XSSFWorkbook(input)) {
+            assertTrue(workbook.getSheetAt(0).getLastRowNum() > 0);
+            return peakHeap();
+        }
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+                .toList();
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long peakHeap() {
+        return heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    }
+}
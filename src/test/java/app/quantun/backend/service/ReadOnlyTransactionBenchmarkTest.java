@@ -0,0 +1,110 @@
+package app.quantun.backend.service;
+
+import app.quantun.backend.BenchmarkSupport;
+import app.quantun.backend.BenchmarkSupport.Measurement;
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.repository.ProductRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of an entity read path in a read-write transaction, against the same read in a read-only one,
+ * where Hibernate keeps no entity snapshots and skips the flush on commit.
+ * The bytes allocated per transaction are read from the {@code transaction.allocated} summary.
+ * Run with {@code mvn test -Dtest=ReadOnlyTransactionBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ReadOnlyTransactionBenchmarkTest {
+
+    private static final int PRODUCTS = 5_000;
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 50;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ModelMapper modelMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate fixtureTemplate;
+    private List<Long> insertedIds;
+
+    @BeforeEach
+    void setUp() {
+        fixtureTemplate = new TransactionTemplate(transactionManager);
+        insertedIds = BenchmarkSupport.insertProducts(productRepository, fixtureTemplate, PRODUCTS,
+                BenchmarkSupport::product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        BenchmarkSupport.deleteInBatches(fixtureTemplate, insertedIds, productRepository::deleteAllByIdInBatch);
+    }
+
+    /**
+     * The read-only transaction allocates less than the read-write one for the same read.
+     */
+    @Test
+    void benchmarkReadOnlyTransaction() {
+        Result readWrite = measure("benchmark.readWrite", false);
+        Result readOnly = measure("benchmark.readOnly", true);
+
+        BenchmarkSupport.table("", "avg ms", "avg KB alloc")
+                .row(readWrite.name(), readWrite.averageMillis(), readWrite.averageBytes() / 1024)
+                .row(readOnly.name(), readOnly.averageMillis(), readOnly.averageBytes() / 1024)
+                .print();
+        assertTrue(readOnly.averageBytes() < readWrite.averageBytes());
+    }
+
+    /**
+     * Time the read in a named transaction, reading the bytes it allocates from the summary of the transaction
+     * rather than from the thread, so the benchmark checks what the metric reports.
+     */
+    private Result measure(String name, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setName(name);
+        transactionTemplate.setReadOnly(readOnly);
+        Supplier<List<ProductResponseDTO>> run = () -> transactionTemplate.execute(status -> readAll());
+        BenchmarkSupport.warmUp(WARMUP_RUNS, run);
+
+        DistributionSummary allocated = meterRegistry.get("transaction.allocated")
+                .tag("name", name).tag("outcome", "commit").summary();
+        long countBefore = allocated.count();
+        double bytesBefore = allocated.totalAmount();
+        Measurement<List<ProductResponseDTO>> measurement = BenchmarkSupport.measure(0, MEASURED_RUNS, run);
+        assertTrue(measurement.result().size() >= PRODUCTS);
+        assertEquals(MEASURED_RUNS, allocated.count() - countBefore);
+        return new Result(name, measurement.averageMillis(),
+                (long) ((allocated.totalAmount() - bytesBefore) / MEASURED_RUNS));
+    }
+
+    private List<ProductResponseDTO> readAll() {
+        return productRepository.findAll().stream()
+                .map(product -> modelMapper.map(product, ProductResponseDTO.class))
+                .toList();
+    }
+
+    private record Result(String name, double averageMillis, long averageBytes) {
+    }
+}
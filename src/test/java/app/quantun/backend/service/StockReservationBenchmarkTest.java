@@ -0,0 +1,145 @@
+package app.quantun.backend.service;
+
+import app.quantun.backend.BenchmarkSupport;
+import app.quantun.backend.BenchmarkSupport.Throughput;
+import app.quantun.backend.exception.InsufficientStockException;
+import app.quantun.backend.models.contract.request.ProductRequestDTO;
+import app.quantun.backend.models.contract.response.ProductResponseDTO;
+import app.quantun.backend.models.entity.Product;
+import app.quantun.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of concurrent checkouts of a single hot product: decrementing its stock through the product
+ * update, which reads the cached product and writes the stock back, against the conditional stock reservation.
+ * Reports the decrements per second of each and how many were lost; the reservations must lose none and,
+ * once the stock runs out, must not oversell.
+ * Run with {@code mvn test -Dtest=StockReservationBenchmarkTest -Dbenchmark=true}; the number of threads
+ * defaults to 16 and can be changed with {@code -Dbenchmark.threads}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StockReservationBenchmarkTest {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final int DECREMENTS_PER_THREAD = 500;
+    private static final int STOCK = 1_000_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 3; i++) {
+            Product product = BenchmarkSupport.product(i);
+            product.setPrice(new BigDecimal("49.99"));
+            product.setInStock(true);
+            product.setStock(STOCK);
+            ids.add(productRepository.save(product).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        // The product updates index the products they write
+        ids.forEach(id -> jdbcTemplate.update("DELETE FROM product_trigram WHERE product_id = ?", id));
+        productRepository.deleteAllByIdInBatch(ids);
+    }
+
+    /**
+     * Reservations are faster than read-modify-write updates on a hot product and lose no decrement.
+     */
+    @Test
+    void benchmarkHotProduct() throws Exception {
+        Long readModifyWriteId = ids.get(0);
+        AtomicInteger conflicts = new AtomicInteger();
+        Throughput readModifyWrite = run(() -> {
+            ProductResponseDTO product = productService.getProductById(readModifyWriteId).orElseThrow();
+            try {
+                productService.updateProduct(readModifyWriteId, ProductRequestDTO.builder()
+                        .inStock(true)
+                        .stock(product.getStock() - 1)
+                        .build());
+                return true;
+            } catch (ConcurrencyFailureException e) {
+                conflicts.incrementAndGet();
+                return false;
+            }
+        });
+        long readModifyWriteLost = readModifyWrite.succeeded() - (STOCK - stock(readModifyWriteId));
+
+        Long reservedId = ids.get(1);
+        Throughput reservations = run(() -> {
+            productService.reserveStock(reservedId, 1);
+            return true;
+        });
+        long reservationsLost = reservations.succeeded() - (STOCK - stock(reservedId));
+
+        BenchmarkSupport.table("", "ops/s", "conflicts", "lost")
+                .row("read-modify-write", readModifyWrite.rate(), conflicts.get(), readModifyWriteLost)
+                .row("reservation", reservations.rate(), 0, reservationsLost)
+                .print();
+
+        assertEquals(0, reservationsLost);
+        assertEquals(reservations.succeeded(), reserved(reservedId));
+        assertTrue(reservations.rate() > readModifyWrite.rate());
+    }
+
+    /**
+     * Concurrent reservations of a product with less stock than asked for sell exactly its stock.
+     */
+    @Test
+    void benchmarkNoOversell() throws Exception {
+        Long id = ids.get(2);
+        int stock = THREADS * DECREMENTS_PER_THREAD / 2;
+        jdbcTemplate.update("UPDATE product SET stock = ? WHERE id = ?", stock, id);
+
+        Throughput result = run(() -> {
+            try {
+                productService.reserveStock(id, 1);
+                return true;
+            } catch (InsufficientStockException e) {
+                return false;
+            }
+        });
+
+        assertEquals(stock, result.succeeded());
+        assertEquals(0, stock(id));
+        assertFalse(productService.getProductById(id).orElseThrow().isInStock());
+    }
+
+    private Throughput run(Callable<Boolean> decrement) throws Exception {
+        return BenchmarkSupport.concurrently(THREADS, DECREMENTS_PER_THREAD, decrement);
+    }
+
+    private int stock(Long id) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = ?", Integer.class, id);
+    }
+
+    private int reserved(Long id) {
+        return jdbcTemplate.queryForObject("SELECT reserved FROM product WHERE id = ?", Integer.class, id);
+    }
+}
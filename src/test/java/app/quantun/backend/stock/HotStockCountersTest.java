@@ -0,0 +1,281 @@
+package app.quantun.backend.stock;
+
+import app.quantun.backend.exception.InsufficientStockException;
+import app.quantun.backend.exception.ProductNotFoundException;
+import app.quantun.backend.models.contract.request.ProductBulkUpdateDTO;
+import app.quantun.backend.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Test class for the HotStockCounters.
+ * This class reserves a hot product against H2 and checks the stock, reserved, leased and recovered units of its
+ * row after each step. The scheduled flushes and recoveries are an hour apart, so the tests run them by hand,
+ * and each test gets a fresh context, since the counters keep their state in memory.
+ */
+@SpringBootTest(properties = {
+        "app.stock.hot.enabled=true",
+        "app.stock.hot.product-ids=" + HotStockCountersTest.HOT_ID + "," + HotStockCountersTest.OTHER_HOT_ID,
+        "app.stock.hot.lease-size=10",
+        "app.stock.hot.flush-interval=PT1H",
+        "app.stock.hot.lease-timeout=PT1H"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class HotStockCountersTest {
+
+    static final long HOT_ID = 910_001L;
+
+    static final long OTHER_HOT_ID = 910_002L;
+
+    private static final int STOCK = 100;
+
+    @Autowired
+    private HotStockCounters hotStockCounters;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        insertHotProduct(HOT_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (long id : List.of(HOT_ID, OTHER_HOT_ID)) {
+            jdbcTemplate.update("DELETE FROM stock_lease WHERE product_id = ?", id);
+            jdbcTemplate.update("DELETE FROM product WHERE id = ?", id);
+        }
+    }
+
+    /**
+     * Test for flushing the reservations of a hot product.
+     * This test verifies that the units taken move from the stock and the lease to the reserved units.
+     */
+    @Test
+    void testFlushMovesTheUnitsTakenToReserved() {
+        // Arrange
+        productService.reserveStock(HOT_ID, 3);
+        assertEquals(Map.of("stock", STOCK, "reserved", 0, "leased", 10, "recovered", 0), units());
+
+        // Act
+        hotStockCounters.flush();
+
+        // Assert
+        assertEquals(Map.of("stock", STOCK - 3, "reserved", 3, "leased", 7, "recovered", 0), units());
+        assertEquals(7, leaseQuantity("%"));
+    }
+
+    /**
+     * Test for a flush that fails.
+     * This test verifies that the units taken are kept in the counter and written by the next flush.
+     */
+    @Test
+    void testFailedFlushIsRetried() {
+        // Arrange
+        productService.reserveStock(HOT_ID, 3);
+        doThrow(new CannotCreateTransactionException("Database unavailable"))
+                .doCallRealMethod()
+                .when(transactionTemplate).execute(any());
+
+        // Act
+        hotStockCounters.flush();
+        Map<String, Integer> failed = units();
+        hotStockCounters.flush();
+
+        // Assert
+        assertEquals(Map.of("stock", STOCK, "reserved", 0, "leased", 10, "recovered", 0), failed);
+        assertEquals(Map.of("stock", STOCK - 3, "reserved", 3, "leased", 7, "recovered", 0), units());
+    }
+
+    /**
+     * Test for taking back an expired lease of another instance.
+     * This test verifies that its units move to the recovered units, apart from the reserved ones, and that
+     * the product goes out of stock when they were all of its stock.
+     */
+    @Test
+    void testRecoverTakesBackAnExpiredLease() {
+        // Arrange
+        jdbcTemplate.update("UPDATE product SET stock = 5, leased = 5 WHERE id = ?", HOT_ID);
+        jdbcTemplate.update("INSERT INTO stock_lease (product_id, node_id, quantity, renewed_at) VALUES (?, ?, ?, ?)",
+                HOT_ID, "crashed-node", 5, Timestamp.from(Instant.now().minus(Duration.ofHours(2))));
+
+        // Act
+        hotStockCounters.recover();
+
+        // Assert
+        assertEquals(Map.of("stock", 0, "reserved", 0, "leased", 0, "recovered", 5), units());
+        assertEquals(0, leaseQuantity("crashed-node"));
+        assertFalse(jdbcTemplate.queryForObject("SELECT in_stock FROM product WHERE id = ?", Boolean.class,
+                HOT_ID));
+    }
+
+    /**
+     * Test for a lease taken back while the counter still holds units of it.
+     * This test verifies that the next flush discards the units of the counter, which were recovered, and that
+     * the next reservation leases again.
+     */
+    @Test
+    void testLostLeaseDiscardsTheUnitsOfTheCounter() {
+        // Arrange
+        productService.reserveStock(HOT_ID, 3);
+        jdbcTemplate.update("UPDATE stock_lease SET renewed_at = ? WHERE product_id = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofHours(2))), HOT_ID);
+        hotStockCounters.recover();
+
+        // Act
+        hotStockCounters.flush();
+        Map<String, Integer> lost = units();
+        productService.reserveStock(HOT_ID, 1);
+        hotStockCounters.flush();
+
+        // Assert
+        assertEquals(Map.of("stock", STOCK - 10, "reserved", 0, "leased", 0, "recovered", 10), lost);
+        assertEquals(Map.of("stock", STOCK - 11, "reserved", 1, "leased", 9, "recovered", 10), units());
+    }
+
+    /**
+     * Test for closing the counters.
+     * This test verifies that the units taken are flushed and the units left returned to the stock.
+     */
+    @Test
+    void testCloseReturnsTheUnitsLeft() {
+        // Arrange
+        productService.reserveStock(HOT_ID, 3);
+
+        // Act
+        hotStockCounters.close();
+
+        // Assert
+        assertEquals(Map.of("stock", STOCK - 3, "reserved", 3, "leased", 0, "recovered", 0), units());
+        assertEquals(0, leaseQuantity("%"));
+        assertFalse(hotStockCounters.isHot(HOT_ID));
+    }
+
+    /**
+     * Test for releasing stock of a hot product before its reservations are flushed.
+     * This test verifies that the reservations are flushed first, so the release finds them.
+     */
+    @Test
+    void testReleaseFlushesTheReservationsFirst() {
+        // Arrange
+        productService.reserveStock(HOT_ID, 3);
+
+        // Act
+        productService.releaseStock(HOT_ID, 2);
+
+        // Assert
+        assertEquals(Map.of("stock", STOCK - 1, "reserved", 1, "leased", 7, "recovered", 0), units());
+    }
+
+    /**
+     * Test for setting the stock of a hot product in bulk below its leased units.
+     * This test verifies that the update is rejected and the stock left unchanged.
+     */
+    @Test
+    void testBulkUpdateBelowTheLeasedUnitsIsRejected() {
+        // Arrange
+        productService.reserveStock(HOT_ID, 3);
+
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () ->
+                productService.bulkUpdateProducts(ProductBulkUpdateDTO.builder()
+                        .ids(List.of(HOT_ID))
+                        .stock(5)
+                        .build())
+        );
+        assertEquals(Map.of("stock", STOCK, "reserved", 0, "leased", 10, "recovered", 0), units());
+    }
+
+    /**
+     * Test for deleting a hot product with reservations that were not flushed.
+     * This test verifies that its counter and lease are dropped with it, so its leased units are no longer
+     * reserved.
+     */
+    @Test
+    void testDeleteDropsTheCounterAndTheLease() {
+        // Arrange
+        productService.reserveStock(HOT_ID, 3);
+
+        // Act
+        productService.deleteProduct(HOT_ID);
+        hotStockCounters.flush();
+
+        // Assert
+        assertFalse(hotStockCounters.isHot(HOT_ID));
+        assertEquals(0, leaseQuantity("%"));
+        assertThrows(ProductNotFoundException.class, () -> productService.reserveStock(HOT_ID, 1));
+    }
+
+    /**
+     * Test for flushing a hot product whose row is gone along with another hot product.
+     * This test verifies that the product gone is dropped with its lease, and the other one still flushed.
+     */
+    @Test
+    void testFlushDropsAProductThatIsGone() {
+        // Arrange
+        insertHotProduct(OTHER_HOT_ID);
+        productService.reserveStock(HOT_ID, 3);
+        productService.reserveStock(OTHER_HOT_ID, 2);
+        jdbcTemplate.update("DELETE FROM product WHERE id = ?", HOT_ID);
+
+        // Act
+        hotStockCounters.flush();
+
+        // Assert
+        assertFalse(hotStockCounters.isHot(HOT_ID));
+        assertEquals(0, leaseQuantity("%"));
+        assertEquals(Map.of("stock", STOCK - 2, "reserved", 2, "leased", 8, "recovered", 0), units(OTHER_HOT_ID));
+        assertTrue(hotStockCounters.isHot(OTHER_HOT_ID));
+    }
+
+    private void insertHotProduct(long id) {
+        // The hot products are configured by ID, so they are inserted with fixed ones
+        jdbcTemplate.update("INSERT INTO product (id, name, description, price, in_stock, stock, reserved, leased, "
+                        + "recovered, version, created_at) VALUES (?, ?, ?, ?, ?, ?, 0, 0, 0, 0, ?)",
+                id, "Hot product " + id, "Sold out in minutes", new BigDecimal("49.99"), true, STOCK,
+                LocalDateTime.now());
+    }
+
+    private Map<String, Integer> units() {
+        return units(HOT_ID);
+    }
+
+    private Map<String, Integer> units(long id) {
+        return jdbcTemplate.queryForObject("SELECT stock, reserved, leased, recovered FROM product WHERE id = ?",
+                (rs, rowNum) -> Map.of("stock", rs.getInt("stock"), "reserved", rs.getInt("reserved"),
+                        "leased", rs.getInt("leased"), "recovered", rs.getInt("recovered")),
+                id);
+    }
+
+    private int leaseQuantity(String nodeId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM stock_lease "
+                + "WHERE product_id = ? AND node_id LIKE ?", Integer.class, HOT_ID, nodeId);
+    }
+}
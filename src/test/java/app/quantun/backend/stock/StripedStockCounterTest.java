@@ -0,0 +1,72 @@
+package app.quantun.backend.stock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the StripedStockCounter.
+ * This class verifies that concurrent takes never take more units than were added.
+ */
+class StripedStockCounterTest {
+
+    /**
+     * Concurrent takes of more units than the counter holds take exactly the units added, and count them as taken.
+     */
+    @Test
+    void testConcurrentTakesDoNotOversell() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(4);
+        counter.add(1_000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    int taken = 0;
+                    for (int i = 0; i < 500; i++) {
+                        if (counter.tryTake(1)) {
+                            taken++;
+                        }
+                    }
+                    return taken;
+                });
+            }
+            long taken = 0;
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                taken += future.get();
+            }
+
+            assertEquals(1_000, taken);
+            assertEquals(0, counter.available());
+            assertEquals(1_000, counter.drainTaken());
+            assertEquals(0, counter.drainTaken());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A take fails when no single stripe holds enough units, and the drained units can be gathered again.
+     */
+    @Test
+    void testUnitsSpreadOverStripesAreDrained() {
+        StripedStockCounter counter = new StripedStockCounter(4);
+        counter.add(6);
+
+        assertFalse(counter.tryTake(3));
+        assertEquals(6, counter.drainAvailable());
+        assertEquals(0, counter.available());
+
+        counter.add(6);
+        assertTrue(counter.tryTake(2));
+        assertEquals(4, counter.available());
+    }
+}